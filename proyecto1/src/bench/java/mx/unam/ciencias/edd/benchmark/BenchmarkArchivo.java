@@ -0,0 +1,139 @@
+package mx.unam.ciencias.edd.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import mx.unam.ciencias.edd.proyecto1.Archivo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>Benchmarks de JMH para {@link Archivo}: la comparación de líneas con
+ * texto ASCII y con acentos, la lectura con {@link Archivo#cargarArchivo} y la
+ * escritura con {@link Archivo#escribirFichero}.</p>
+ *
+ * <p>Los datos se generan con una semilla fija, así que todas las corridas
+ * miden lo mismo. Se ejecutan con
+ * <code>mvn -P bench -Djmh.args=Archivo</code>.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchmarkArchivo {
+
+    /* Semilla de los datos. */
+    private static final long SEMILLA = 2020;
+    /* Número de líneas del texto para leer y escribir. */
+    private static final int LINEAS = 100000;
+    /* Número de pares de líneas para comparar. */
+    private static final int PARES = 1024;
+    /* Caracteres ASCII de las líneas. */
+    private static final String ASCII = "abcdefghijklmnopqrstuvwxyz ABCXYZ0189";
+    /* Caracteres con acentos de las líneas. */
+    private static final String ACENTOS = "aábcdeéfiíñnoóuúüAÁÉÑÓ ¿?¡!";
+
+    /* Escritor que descarta todo lo que se le escribe. */
+    private static class Descartador extends Writer {
+        @Override public void write(char[] cbuf, int off, int len) {}
+        @Override public void write(String str, int off, int len) {}
+        @Override public void flush() {}
+        @Override public void close() {}
+    }
+
+    /** Los caracteres de las líneas: sólo ASCII o con acentos. */
+    @Param({ "ascii", "acentos" })
+    public String texto;
+
+    /* Líneas para comparar. */
+    private String[] lineas;
+    /* Siguiente par a comparar. */
+    private int siguiente;
+    /* Texto completo para leer. */
+    private String entrada;
+    /* Archivo cargado para escribir. */
+    private Archivo archivo;
+
+    /**
+     * Genera las líneas y el texto según los caracteres.
+     *
+     * @throws IOException Si ocurre un error al cargar el archivo.
+     */
+    @Setup(Level.Trial)
+    public void prepara() throws IOException {
+        Random random = new Random(SEMILLA);
+        String alfabeto = texto.equals("ascii") ? ASCII : ACENTOS;
+        lineas = new String[2 * PARES];
+        for (int i = 0; i < lineas.length; i++)
+            lineas[i] = linea(random, alfabeto);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < LINEAS; i++)
+            sb.append(linea(random, alfabeto)).append('\n');
+        entrada = sb.toString();
+        archivo = new Archivo();
+        archivo.cargarArchivo(new BufferedReader(new StringReader(entrada)));
+    }
+
+    /* Genera una línea de entre 10 y 60 caracteres del alfabeto; la mitad
+     * de las veces comparte un prefijo común para que la comparación no
+     * termine en el primer carácter. */
+    private static String linea(Random random, String alfabeto) {
+        StringBuilder sb = new StringBuilder();
+        if (random.nextBoolean())
+            sb.append("Prefijo común ");
+        int longitud = 10 + random.nextInt(50);
+        for (int i = 0; i < longitud; i++)
+            sb.append(alfabeto.charAt(random.nextInt(alfabeto.length())));
+        return sb.toString();
+    }
+
+    /**
+     * Compara un par de líneas con {@link Archivo#compara(String,String)}.
+     *
+     * @return el resultado de la comparación.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int compara() {
+        siguiente = (siguiente + 2) & (lineas.length - 1);
+        return Archivo.compara(lineas[siguiente], lineas[siguiente + 1]);
+    }
+
+    /**
+     * Lee el texto completo con {@link Archivo#cargarArchivo}.
+     *
+     * @return el archivo cargado.
+     * @throws IOException Si ocurre un error al leer.
+     */
+    @Benchmark
+    public Archivo cargarArchivo() throws IOException {
+        Archivo nuevo = new Archivo();
+        nuevo.cargarArchivo(new BufferedReader(new StringReader(entrada)));
+        return nuevo;
+    }
+
+    /**
+     * Escribe el archivo completo con {@link Archivo#escribirFichero}.
+     *
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    @Benchmark
+    public void escribirFichero() throws IOException {
+        archivo.escribirFichero(new Descartador());
+    }
+}
@@ -0,0 +1,142 @@
+package mx.unam.ciencias.edd.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import mx.unam.ciencias.edd.Lista;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>Benchmarks de JMH para las operaciones de {@link Lista}: el mergeSort con
+ * varios tamaños y grados de orden, y agregar, obtener, insertar y
+ * reversar.</p>
+ *
+ * <p>Los datos se generan con una semilla fija, así que todas las corridas
+ * miden lo mismo. Se ejecutan con <code>mvn -P bench -Djmh.args=Lista</code>.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchmarkLista {
+
+    /* Semilla de los datos. */
+    private static final long SEMILLA = 2020;
+
+    /** Número de elementos de la lista. */
+    @Param({ "1000", "100000" })
+    public int tamano;
+
+    /** Qué tan ordenada está la lista: aleatoria, ordenada, casi ordenada
+     *  (uno de cada cien elementos fuera de lugar) o en orden inverso. */
+    @Param({ "aleatoria", "ordenada", "casi", "inversa" })
+    public String orden;
+
+    /* La lista con los datos. */
+    private Lista<Integer> lista;
+    /* Los datos en un arreglo, para agregarlos. */
+    private Integer[] datos;
+    /* Índices aleatorios para get. */
+    private int[] indices;
+    /* Siguiente índice a usar. */
+    private int siguiente;
+
+    /**
+     * Genera los datos según el tamaño y el orden.
+     */
+    @Setup(Level.Trial)
+    public void prepara() {
+        Random random = new Random(SEMILLA);
+        datos = new Integer[tamano];
+        for (int i = 0; i < tamano; i++) {
+            switch (orden) {
+                case "aleatoria":
+                    datos[i] = random.nextInt();
+                    break;
+                case "ordenada":
+                    datos[i] = i;
+                    break;
+                case "casi":
+                    datos[i] = random.nextInt(100) == 0 ? random.nextInt(tamano) : i;
+                    break;
+                default:
+                    datos[i] = tamano - i;
+            }
+        }
+        lista = new Lista<>();
+        for (Integer dato : datos)
+            lista.agregaFinal(dato);
+        indices = new int[1024];
+        for (int i = 0; i < indices.length; i++)
+            indices[i] = random.nextInt(tamano);
+    }
+
+    /**
+     * Ordena la lista con {@link Lista#mergeSort}, que regresa una copia.
+     *
+     * @return la lista ordenada.
+     */
+    @Benchmark
+    public Lista<Integer> mergeSort() {
+        return lista.mergeSort((a, b) -> a.compareTo(b));
+    }
+
+    /**
+     * Construye una lista con {@link Lista#agregaFinal}.
+     *
+     * @return la lista construida.
+     */
+    @Benchmark
+    public Lista<Integer> agregaFinal() {
+        Lista<Integer> nueva = new Lista<>();
+        for (Integer dato : datos)
+            nueva.agregaFinal(dato);
+        return nueva;
+    }
+
+    /**
+     * Obtiene un elemento en una posición aleatoria con {@link Lista#get}.
+     *
+     * @return el elemento.
+     */
+    @Benchmark
+    public Integer get() {
+        siguiente = (siguiente + 1) & (indices.length - 1);
+        return lista.get(indices[siguiente]);
+    }
+
+    /**
+     * Inserta un elemento en una posición aleatoria con {@link Lista#inserta}
+     * y quita el último, para que la lista no crezca.
+     *
+     * @return el elemento quitado.
+     */
+    @Benchmark
+    public Integer inserta() {
+        siguiente = (siguiente + 1) & (indices.length - 1);
+        lista.inserta(indices[siguiente], siguiente);
+        return lista.eliminaUltimo();
+    }
+
+    /**
+     * Reversa la lista con {@link Lista#reversa}, que regresa una copia.
+     *
+     * @return la lista reversa.
+     */
+    @Benchmark
+    public Lista<Integer> reversa() {
+        return lista.reversa();
+    }
+}
@@ -0,0 +1,119 @@
+package mx.unam.ciencias.edd.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.text.Collator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import mx.unam.ciencias.edd.Lista;
+import mx.unam.ciencias.edd.proyecto1.Archivo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>Benchmarks de JMH que comparan ordenar líneas comparando cadenas
+ * directamente contra ordenarlas con llaves precalculadas en
+ * {@link Archivo}.</p>
+ *
+ * <p>Los datos se generan con una semilla fija, así que todas las corridas
+ * miden lo mismo. Se ejecutan con
+ * <code>mvn -P bench -Djmh.args=Llaves</code>.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchmarkLlaves {
+
+    /* Semilla de los datos. */
+    private static final long SEMILLA = 2020;
+    /* Caracteres con los que se generan las líneas. */
+    private static final String ALFABETO =
+        "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789áéíóúñü ,.;:-";
+
+    /** Número de líneas que se ordenan. */
+    @Param({ "10000", "200000" })
+    public int lineas;
+
+    /* Las líneas en una lista, para mergeSort. */
+    private Lista<String> lista;
+    /* Las líneas en un texto, para cargarlas en un Archivo. */
+    private String texto;
+
+    /**
+     * Genera las líneas de prueba.
+     */
+    @Setup(Level.Trial)
+    public void prepara() {
+        Random random = new Random(SEMILLA);
+        lista = new Lista<>();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lineas; i++) {
+            StringBuilder linea = new StringBuilder();
+            int longitud = random.nextInt(60);
+            for (int j = 0; j < longitud; j++)
+                linea.append(ALFABETO.charAt(random.nextInt(ALFABETO.length())));
+            lista.agregaFinal(linea.toString());
+            sb.append(linea).append('\n');
+        }
+        texto = sb.toString();
+    }
+
+    /* Comparación como se hacía antes: un Collator y dos reemplazos por llamada. */
+    private static int comparaOriginal(String a, String b) {
+        Collator comparador = Collator.getInstance();
+        comparador.setStrength(Collator.PRIMARY);
+        String regex = "[^\\p{L}\\p{Nd}+]";
+        return comparador.compare(a.replaceAll(regex, ""), b.replaceAll(regex, ""));
+    }
+
+    /**
+     * Ordena con {@link Lista#mergeSort} creando un Collator y normalizando
+     * ambas cadenas en cada comparación, como se hacía antes.
+     *
+     * @return la lista ordenada.
+     */
+    @Benchmark
+    public Lista<String> collatorPorComparacion() {
+        return lista.mergeSort((a, b) -> comparaOriginal(a, b));
+    }
+
+    /**
+     * Ordena con {@link Lista#mergeSort} y {@link Archivo#compara(String,String)},
+     * que comparte el Collator pero normaliza en cada comparación.
+     *
+     * @return la lista ordenada.
+     */
+    @Benchmark
+    public Lista<String> collatorCompartido() {
+        return lista.mergeSort((a, b) -> Archivo.compara(a, b));
+    }
+
+    /**
+     * Carga las líneas en un {@link Archivo} y las ordena con sus llaves
+     * precalculadas; incluye calcular las llaves.
+     *
+     * @return el archivo ordenado.
+     * @throws IOException Si ocurre un error al cargar el archivo.
+     */
+    @Benchmark
+    public Archivo llavesPrecalculadas() throws IOException {
+        Archivo archivo = new Archivo();
+        archivo.cargarArchivo(new BufferedReader(new StringReader(texto)));
+        archivo.ordena();
+        return archivo;
+    }
+}
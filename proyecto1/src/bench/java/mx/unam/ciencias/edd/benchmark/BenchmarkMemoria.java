@@ -0,0 +1,91 @@
+package mx.unam.ciencias.edd.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import mx.unam.ciencias.edd.Lista;
+import mx.unam.ciencias.edd.proyecto1.Archivo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>Benchmarks de JMH que comparan la memoria que se asigna al cargar líneas
+ * de bitácora en un {@link Archivo} contra guardarlas como cadenas en una
+ * {@link Lista}.</p>
+ *
+ * <p>La memoria se mide con el perfilador de recolección de basura de JMH:
+ * <code>gc.alloc.rate.norm</code> son los bytes asignados por operación, y
+ * entre el número de líneas da los bytes por línea. Las cadenas se crean de
+ * nuevo en cada operación en ambos casos, porque la lista las conserva y el
+ * archivo las copia. Los datos se generan con una semilla fija, así que
+ * todas las corridas miden lo mismo. Se ejecutan con
+ * <code>mvn -P bench -Djmh.args="Memoria -prof gc"</code>.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class BenchmarkMemoria {
+
+    /* Semilla de los datos. */
+    private static final long SEMILLA = 2020;
+
+    /** Número de líneas que se cargan. */
+    @Param({ "1000000" })
+    public int lineas;
+
+    /* Los caracteres de cada línea, para crear cadenas nuevas. */
+    private char[][] caracteres;
+
+    /**
+     * Genera las líneas de prueba, de unos 40 caracteres.
+     */
+    @Setup(Level.Trial)
+    public void prepara() {
+        Random random = new Random(SEMILLA);
+        caracteres = new char[lineas][];
+        for (int i = 0; i < lineas; i++)
+            caracteres[i] = String.format("2020-03-%02d %02d:%02d:%02d srv%d GET /%d",
+                                          1 + random.nextInt(28), random.nextInt(24),
+                                          random.nextInt(60), random.nextInt(60),
+                                          random.nextInt(16), random.nextInt(100000))
+                .toCharArray();
+    }
+
+    /**
+     * Guarda las líneas como cadenas en una {@link Lista}.
+     *
+     * @return la lista con las líneas.
+     */
+    @Benchmark
+    public Lista<String> lista() {
+        Lista<String> lista = new Lista<>();
+        for (char[] c : caracteres)
+            lista.agregaFinal(new String(c));
+        return lista;
+    }
+
+    /**
+     * Carga las líneas en un {@link Archivo} con {@link Archivo#agregaLinea}.
+     *
+     * @return el archivo con las líneas.
+     */
+    @Benchmark
+    public Archivo archivo() {
+        Archivo archivo = new Archivo();
+        for (char[] c : caracteres)
+            archivo.agregaLinea(new String(c));
+        return archivo;
+    }
+}
@@ -0,0 +1,124 @@
+package mx.unam.ciencias.edd.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import mx.unam.ciencias.edd.Lista;
+import mx.unam.ciencias.edd.proyecto1.Archivo;
+import mx.unam.ciencias.edd.proyecto1.Motor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>Benchmarks de JMH que comparan ordenar líneas de bitácora, con prefijos
+ * comunes largos (fecha, hora y servidor), con {@link Lista#mergeSort}
+ * contra cada motor de {@link Archivo}, en particular el radix.</p>
+ *
+ * <p>Sólo se mide el ordenamiento: el archivo se carga antes de cada
+ * invocación. Los datos se generan con una semilla fija, así que todas las
+ * corridas miden lo mismo. Se ejecutan con
+ * <code>mvn -P bench -Djmh.args=Radix</code>.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchmarkRadix {
+
+    /* Semilla de los datos. */
+    private static final long SEMILLA = 2020;
+
+    /** Número de líneas que se ordenan. */
+    @Param({ "100000", "1000000" })
+    public int lineas;
+
+    /** El motor con el que ordena el archivo. */
+    @Param({ "COLADOR", "BYTES", "RADIX" })
+    public Motor motor;
+
+    /* Las líneas en una lista, para mergeSort. */
+    private Lista<String> lista;
+    /* Las líneas en un texto, para cargarlas en un Archivo. */
+    private String texto;
+    /* Archivo cargado y sin ordenar para la siguiente invocación. */
+    private Archivo archivo;
+
+    /**
+     * Genera las líneas de prueba.
+     */
+    @Setup(Level.Trial)
+    public void prepara() {
+        Random random = new Random(SEMILLA);
+        lista = new Lista<>();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lineas; i++) {
+            String linea = String.format(
+                "2020-03-%02d %02d:%02d:%02d servidor%02d.ciencias.unam.mx GET /ruta/%d %d",
+                1 + random.nextInt(3), random.nextInt(24), random.nextInt(60),
+                random.nextInt(60), random.nextInt(4), random.nextInt(1000),
+                random.nextInt(100000));
+            lista.agregaFinal(linea);
+            sb.append(linea).append('\n');
+        }
+        texto = sb.toString();
+    }
+
+    /**
+     * Carga las líneas en un archivo nuevo con el motor, para que cada
+     * invocación ordene líneas desordenadas.
+     *
+     * @throws IOException Si ocurre un error al cargar el archivo.
+     */
+    @Setup(Level.Invocation)
+    public void carga() throws IOException {
+        archivo = new Archivo();
+        archivo.setMotor(motor);
+        archivo.cargarArchivo(new BufferedReader(new StringReader(texto)));
+    }
+
+    /**
+     * Libera las líneas del archivo de la invocación.
+     */
+    @TearDown(Level.Invocation)
+    public void libera() {
+        archivo.libera();
+        archivo = null;
+    }
+
+    /**
+     * Ordena las líneas con {@link Lista#mergeSort} y
+     * {@link Archivo#compara(String,String)}; no depende del motor.
+     *
+     * @return la lista ordenada.
+     */
+    @Benchmark
+    public Lista<String> mergeSort() {
+        return lista.mergeSort((a, b) -> Archivo.compara(a, b));
+    }
+
+    /**
+     * Ordena el archivo cargado con {@link Archivo#ordena}.
+     *
+     * @return el archivo ordenado.
+     */
+    @Benchmark
+    public Archivo ordena() {
+        archivo.ordena();
+        return archivo;
+    }
+}
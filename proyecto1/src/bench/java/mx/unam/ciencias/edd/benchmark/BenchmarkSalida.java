@@ -0,0 +1,121 @@
+package mx.unam.ciencias.edd.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import mx.unam.ciencias.edd.proyecto1.EscritorSalida;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>Benchmarks de JMH que comparan escribir líneas a un archivo como se
+ * hacía antes (<code>println</code> en un PrintStream con vaciado automático
+ * y <code>FileWriter</code> sin búfer) contra {@link EscritorSalida}.</p>
+ *
+ * <p>Los datos se generan con una semilla fija, así que todas las corridas
+ * miden lo mismo. Se ejecutan con
+ * <code>mvn -P bench -Djmh.args=Salida</code>.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchmarkSalida {
+
+    /* Semilla de los datos. */
+    private static final long SEMILLA = 2020;
+    /* Número de líneas distintas que se escriben en ciclo. */
+    private static final int DISTINTAS = 4096;
+
+    /** Número de líneas que se escriben. */
+    @Param({ "1000000" })
+    public int lineas;
+
+    /* Las líneas distintas que se escriben. */
+    private String[] distintas;
+    /* Archivo temporal donde se escribe. */
+    private File destino;
+
+    /**
+     * Genera las líneas de prueba y crea el archivo temporal.
+     *
+     * @throws IOException Si no se puede crear el archivo temporal.
+     */
+    @Setup(Level.Trial)
+    public void prepara() throws IOException {
+        Random random = new Random(SEMILLA);
+        distintas = new String[DISTINTAS];
+        for (int i = 0; i < DISTINTAS; i++)
+            distintas[i] = String.format(
+                "2020-03-%02d %02d:%02d:%02d servidor%d GET /ruta/%d ñandú %d",
+                1 + random.nextInt(28), random.nextInt(24), random.nextInt(60),
+                random.nextInt(60), random.nextInt(16), random.nextInt(1000),
+                random.nextInt());
+        destino = File.createTempFile("benchmark", ".txt");
+    }
+
+    /**
+     * Borra el archivo temporal.
+     */
+    @TearDown(Level.Trial)
+    public void borra() {
+        destino.delete();
+    }
+
+    /**
+     * Escribe con <code>println</code> en un PrintStream con vaciado
+     * automático.
+     *
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    @Benchmark
+    public void println() throws IOException {
+        try (PrintStream salida = new PrintStream(new FileOutputStream(destino), true)) {
+            for (int i = 0; i < lineas; i++)
+                salida.println(distintas[i % DISTINTAS]);
+        }
+    }
+
+    /**
+     * Escribe con un FileWriter sin búfer.
+     *
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    @Benchmark
+    public void fileWriter() throws IOException {
+        try (FileWriter salida = new FileWriter(destino)) {
+            for (int i = 0; i < lineas; i++)
+                salida.write(distintas[i % DISTINTAS] + "\n");
+        }
+    }
+
+    /**
+     * Escribe con {@link EscritorSalida#escribeLinea(String)}.
+     *
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    @Benchmark
+    public void escritorSalida() throws IOException {
+        try (EscritorSalida salida = EscritorSalida.archivo(destino)) {
+            for (int i = 0; i < lineas; i++)
+                salida.escribeLinea(distintas[i % DISTINTAS]);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package mx.unam.ciencias.edd;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Contadores globales para saber en qué se va el tiempo de un
+ * ordenamiento: comparaciones y su costo, líneas guardadas y bytes
+ * asignados.</p>
+ *
+ * <p>Los contadores están apagados por omisión y los ganchos que los alimentan
+ * sólo revisan {@link #activas}, así que apagados no cuestan casi nada. El
+ * costo de una comparación se estima midiendo una de cada {@value #MUESTREO}
+ * comparaciones, para que medir no cambie mucho lo que se mide.</p>
+ */
+public final class Estadisticas {
+
+    /** Una de cada cuántas comparaciones se mide su tiempo. */
+    public static final int MUESTREO = 64;
+
+    /* Comparador que cuenta sus llamadas. */
+    private static class ComparadorContado<T> implements Comparator<T> {
+        /* El comparador que se cuenta. */
+        private Comparator<T> comparador;
+
+        /* Envuelve al comparador. */
+        public ComparadorContado(Comparator<T> comparador) {
+            this.comparador = comparador;
+        }
+
+        @Override
+        public int compare(T a, T b) {
+            long inicio = iniciaComparacion();
+            int c = comparador.compare(a, b);
+            terminaComparacion(inicio);
+            return c;
+        }
+    }
+
+    /* Si los contadores están prendidos. Se define antes de ordenar, y los
+     * hilos que se crean después lo ven. */
+    private static boolean activas;
+    /* Número de comparaciones. */
+    private static final LongAdder comparaciones = new LongAdder();
+    /* Número de comparaciones medidas. */
+    private static final LongAdder medidas = new LongAdder();
+    /* Nanosegundos de las comparaciones medidas. */
+    private static final LongAdder nanosMedidos = new LongAdder();
+    /* Número de líneas que se han agregado. */
+    private static final LongAdder lineas = new LongAdder();
+    /* Número de líneas guardadas en este momento. */
+    private static final AtomicLong lineasGuardadas = new AtomicLong();
+    /* Máximo de líneas guardadas a la vez. */
+    private static final AtomicLong picoLineas = new AtomicLong();
+    /* Bytes asignados por hilos de trabajo que ya terminaron. */
+    private static final LongAdder asignados = new LongAdder();
+
+    /* No se instancia. */
+    private Estadisticas() {}
+
+    /**
+     * Prende o apaga los contadores. Se debe llamar antes de empezar a
+     * ordenar.
+     *
+     * @param activas Si se deben llevar los contadores.
+     */
+    public static void setActivas(boolean activas) {
+        Estadisticas.activas = activas;
+    }
+
+    /**
+     * Nos dice si los contadores están prendidos.
+     *
+     * @return <code>true</code> si se llevan los contadores.
+     */
+    public static boolean activas() {
+        return activas;
+    }
+
+    /**
+     * Pone en cero todos los contadores.
+     */
+    public static void reinicia() {
+        comparaciones.reset();
+        medidas.reset();
+        nanosMedidos.reset();
+        lineas.reset();
+        lineasGuardadas.set(0);
+        picoLineas.set(0);
+        asignados.reset();
+    }
+
+    /**
+     * Regresa un comparador que cuenta sus llamadas y mide algunas. Si el
+     * comparador ya cuenta sus llamadas se regresa tal cual.
+     *
+     * @param <T> El tipo de los elementos que se comparan.
+     * @param comparador El comparador a contar.
+     * @return un comparador equivalente que cuenta sus llamadas.
+     */
+    public static <T> Comparator<T> cuenta(Comparator<T> comparador) {
+        if (comparador instanceof ComparadorContado)
+            return comparador;
+        return new ComparadorContado<>(comparador);
+    }
+
+    /**
+     * Se llama antes de una comparación. Si toca medirla regresa el instante
+     * en que empieza; si no, regresa cero.
+     *
+     * @return el instante en nanosegundos, o cero si no se mide.
+     */
+    public static long iniciaComparacion() {
+        if (ThreadLocalRandom.current().nextInt(MUESTREO) != 0)
+            return 0;
+        return System.nanoTime();
+    }
+
+    /**
+     * Cuenta una comparación que ya terminó.
+     *
+     * @param inicio Lo que regresó {@link #iniciaComparacion}.
+     */
+    public static void terminaComparacion(long inicio) {
+        comparaciones.increment();
+        if (inicio != 0) {
+            nanosMedidos.add(System.nanoTime() - inicio);
+            medidas.increment();
+        }
+    }
+
+    /**
+     * Regresa el número de comparaciones contadas.
+     *
+     * @return el número de comparaciones.
+     */
+    public static long getComparaciones() {
+        return comparaciones.sum();
+    }
+
+    /**
+     * Regresa el tiempo promedio de una comparación, estimado con las que se
+     * midieron.
+     *
+     * @return los nanosegundos de una comparación, o -1 si no se midió
+     *         ninguna.
+     */
+    public static double getCostoComparacion() {
+        long n = medidas.sum();
+        return n == 0 ? -1 : nanosMedidos.sum() / (double) n;
+    }
+
+    /**
+     * Cuenta líneas que se agregan a memoria o, si n es negativo, que se
+     * liberan.
+     *
+     * @param n El número de líneas agregadas, o menos el número de liberadas.
+     */
+    public static void cuentaLineas(long n) {
+        if (n > 0)
+            lineas.add(n);
+        long guardadas = lineasGuardadas.addAndGet(n);
+        if (guardadas > picoLineas.get())
+            picoLineas.accumulateAndGet(guardadas, Math::max);
+    }
+
+    /**
+     * Regresa el número de líneas que se han agregado.
+     *
+     * @return el número de líneas.
+     */
+    public static long getLineas() {
+        return lineas.sum();
+    }
+
+    /**
+     * Regresa el máximo de líneas que se guardaron a la vez.
+     *
+     * @return el pico de líneas.
+     */
+    public static long getPicoLineas() {
+        return picoLineas.get();
+    }
+
+    /**
+     * Regresa los bytes que ha asignado en el montículo el hilo actual, según
+     * {@link ThreadMXBean}.
+     *
+     * @return los bytes asignados, o -1 si la máquina virtual no los mide.
+     */
+    public static long asignadosHilo() {
+        ThreadMXBean hilos = ManagementFactory.getThreadMXBean();
+        if (!(hilos instanceof com.sun.management.ThreadMXBean))
+            return -1;
+        com.sun.management.ThreadMXBean h = (com.sun.management.ThreadMXBean) hilos;
+        if (!h.isThreadAllocatedMemorySupported() || !h.isThreadAllocatedMemoryEnabled())
+            return -1;
+        return h.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Suma los bytes que asignó un hilo de trabajo. Un hilo que termina se
+     * lleva su cuenta, así que cada trabajador la suma antes de terminar.
+     *
+     * @param bytes Los bytes asignados por el hilo.
+     */
+    public static void sumaAsignados(long bytes) {
+        if (bytes > 0)
+            asignados.add(bytes);
+    }
+
+    /**
+     * Regresa los bytes que sumaron los hilos de trabajo.
+     *
+     * @return los bytes asignados por los trabajadores.
+     */
+    public static long getAsignados() {
+        return asignados.sum();
+    }
+}
@@ -3,6 +3,8 @@ package mx.unam.ciencias.edd;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * <p>
@@ -99,6 +101,44 @@ public class Lista<T> implements Coleccion<T> {
         }
     }
 
+    /* Tarea para ordenar una lista en paralelo. */
+    private class OrdenamientoParalelo extends RecursiveTask<Lista<T>> {
+        /* La lista a ordenar. */
+        private Lista<T> lista;
+        /* El comparador. */
+        private Comparator<T> comparador;
+
+        /* Construye la tarea. */
+        public OrdenamientoParalelo(Lista<T> lista, Comparator<T> comparador) {
+            this.lista = lista;
+            this.comparador = comparador;
+        }
+
+        /* Divide la lista como mergeSort y ordena la primera mitad en otra
+         * tarea. Debajo del umbral ordena secuencialmente. */
+        @Override
+        protected Lista<T> compute() {
+            if (lista.longitud <= UMBRAL_PARALELO)
+                return lista.mergeSort(comparador);
+            Lista<T> l1 = new Lista<>();
+            Lista<T> l2 = new Lista<>();
+            lista.divide(l1, l2);
+            OrdenamientoParalelo t1 = new OrdenamientoParalelo(l1, comparador);
+            t1.fork();
+            l2 = new OrdenamientoParalelo(l2, comparador).compute();
+            l1 = t1.join();
+            return mezcla(l1, l2, comparador);
+        }
+    }
+
+    /* Longitud debajo de la cual el ordenamiento paralelo es secuencial. */
+    private static final int UMBRAL_PARALELO = 1 << 13;
+    /* Victorias seguidas a partir de las cuales la mezcla natural galopa. */
+    private static final int MINIMO_GALOPE = 7;
+    /* Tamaño de la pila de tramos de la mezcla natural. Las reglas de la pila
+     * hacen que las longitudes crezcan al menos como Fibonacci. */
+    private static final int MAXIMO_TRAMOS = 64;
+
     /* Primer elemento de la lista. */
     private Nodo cabeza;
     /* Último elemento de la lista. */
@@ -515,17 +555,31 @@ public class Lista<T> implements Coleccion<T> {
     /**
      * Regresa una copia de la lista, pero ordenada. Para poder hacer el
      * ordenamiento, el método necesita una instancia de {@link Comparator} para
-     * poder comparar los elementos de la lista.
+     * poder comparar los elementos de la lista. Si las {@link Estadisticas}
+     * están prendidas, se cuentan las comparaciones.
      * 
      * @param comparador el comparador que la lista usará para hacer el
      *                   ordenamiento.
      * @return una copia de la lista, pero ordenada.
      */
     public Lista<T> mergeSort(Comparator<T> comparador) {
+        if (Estadisticas.activas())
+            comparador = Estadisticas.cuenta(comparador);
         if (this.cabeza == null || this.cabeza == this.rabo)
             return this.copia();
         Lista<T> l1 = new Lista<>();
         Lista<T> l2 = new Lista<>();
+        divide(l1, l2);
+        l1 = l1.mergeSort(comparador);
+        l2 = l2.mergeSort(comparador);
+        return mezcla(l1, l2, comparador);
+    }
+
+    /**
+     * Metodo auxiliar que copia la primera mitad de la lista en l1 y la
+     * segunda en l2.
+     */
+    private void divide(Lista<T> l1, Lista<T> l2) {
         Nodo n = this.cabeza;
         int i = 0;
         while (n != null) {
@@ -536,9 +590,47 @@ public class Lista<T> implements Coleccion<T> {
             }
             n = n.siguiente;
         }
-        l1 = l1.mergeSort(comparador);
-        l2 = l2.mergeSort(comparador);
-        return mezcla(l1, l2, comparador);
+    }
+
+    /**
+     * Regresa una copia de la lista, pero ordenada, usando varios hilos. El
+     * resultado es idéntico al de {@link #mergeSort(Comparator)}; las sublistas
+     * se ordenan en paralelo en un {@link ForkJoinPool} y las que son pequeñas
+     * se ordenan secuencialmente.
+     * 
+     * @param comparador el comparador que la lista usará para hacer el
+     *                   ordenamiento. Debe poder usarse desde varios hilos.
+     * @param hilos      el número de hilos que se usarán.
+     * @return una copia de la lista, pero ordenada.
+     * @throws IllegalArgumentException si <code>hilos</code> es menor que uno.
+     */
+    public Lista<T> mergeSortParalelo(Comparator<T> comparador, int hilos) {
+        if (hilos < 1) {
+            throw new IllegalArgumentException("El numero de hilos debe ser positivo");
+        }
+        if (hilos == 1 || longitud <= UMBRAL_PARALELO)
+            return mergeSort(comparador);
+        if (Estadisticas.activas())
+            comparador = Estadisticas.cuenta(comparador);
+        ForkJoinPool alberca = new ForkJoinPool(hilos);
+        try {
+            return alberca.invoke(new OrdenamientoParalelo(this, comparador));
+        } finally {
+            alberca.shutdown();
+        }
+    }
+
+    /**
+     * Regresa una copia de la lista, pero ordenada, usando tantos hilos como
+     * procesadores disponibles. El resultado es idéntico al de
+     * {@link #mergeSort(Comparator)}.
+     * 
+     * @param comparador el comparador que la lista usará para hacer el
+     *                   ordenamiento. Debe poder usarse desde varios hilos.
+     * @return una copia de la lista, pero ordenada.
+     */
+    public Lista<T> mergeSortParalelo(Comparator<T> comparador) {
+        return mergeSortParalelo(comparador, Runtime.getRuntime().availableProcessors());
     }
 
     /**
@@ -566,6 +658,341 @@ public class Lista<T> implements Coleccion<T> {
         return listaMezclada;
     }
 
+    /**
+     * Ordena la lista sin copiarla. A diferencia de {@link #mergeSort}, el
+     * ordenamiento reacomoda los nodos existentes cambiando sus referencias, así
+     * que no crea nodos nuevos y usa memoria adicional constante. Es estable.
+     * 
+     * @param comparador el comparador que la lista usará para hacer el
+     *                   ordenamiento.
+     */
+    public void mergeSortEnLugar(Comparator<T> comparador) {
+        if (cabeza == null || cabeza == rabo)
+            return;
+        Nodo primero = cabeza;
+        int mezclas;
+        /* Mezcla de abajo hacia arriba: en cada pasada junta parejas de
+         * sublistas ordenadas de tamaño k, ligando sólo por siguiente. */
+        for (int k = 1; ; k *= 2) {
+            Nodo p = primero;
+            Nodo ultimo = null;
+            primero = null;
+            mezclas = 0;
+            while (p != null) {
+                mezclas++;
+                Nodo q = p;
+                int tp = 0;
+                while (tp < k && q != null) {
+                    tp++;
+                    q = q.siguiente;
+                }
+                int tq = k;
+                while (tp > 0 || (tq > 0 && q != null)) {
+                    Nodo e;
+                    if (tp == 0) {
+                        e = q;
+                        q = q.siguiente;
+                        tq--;
+                    } else if (tq == 0 || q == null
+                               || comparador.compare(p.elemento, q.elemento) <= 0) {
+                        e = p;
+                        p = p.siguiente;
+                        tp--;
+                    } else {
+                        e = q;
+                        q = q.siguiente;
+                        tq--;
+                    }
+                    if (ultimo == null)
+                        primero = e;
+                    else
+                        ultimo.siguiente = e;
+                    ultimo = e;
+                }
+                p = q;
+            }
+            ultimo.siguiente = null;
+            if (mezclas <= 1)
+                break;
+        }
+        religa(primero);
+    }
+
+    /**
+     * <p>Ordena la lista sin copiarla aprovechando los tramos que ya están
+     * ordenados, al estilo de TimSort.</p>
+     *
+     * <p>En una pasada se separan los tramos ascendentes y los estrictamente
+     * descendentes, que se voltean; después los tramos se mezclan manteniendo
+     * una pila con las reglas de TimSort y, cuando un tramo gana muchas
+     * comparaciones seguidas, la mezcla galopa sobre él. Una lista que ya está
+     * ordenada sólo necesita <em>n</em>-1 comparaciones. Igual que
+     * {@link #mergeSortEnLugar}, reacomoda los nodos existentes y es
+     * estable.</p>
+     * 
+     * @param comparador el comparador que la lista usará para hacer el
+     *                   ordenamiento.
+     */
+    @SuppressWarnings("unchecked")
+    public void mergeSortNatural(Comparator<T> comparador) {
+        if (cabeza == null || cabeza == rabo)
+            return;
+        Object[] tramos = new Object[MAXIMO_TRAMOS];
+        int[] longitudes = new int[MAXIMO_TRAMOS];
+        int n = 0;
+        Nodo p = cabeza;
+        while (p != null) {
+            /* Separa el siguiente tramo. */
+            Nodo fin = p;
+            int l = 1;
+            boolean descendente = false;
+            if (fin.siguiente != null) {
+                descendente = comparador.compare(fin.siguiente.elemento, fin.elemento) < 0;
+                fin = fin.siguiente;
+                l++;
+            }
+            Nodo resto;
+            if (descendente) {
+                while (fin.siguiente != null
+                       && comparador.compare(fin.siguiente.elemento, fin.elemento) < 0) {
+                    fin = fin.siguiente;
+                    l++;
+                }
+                resto = fin.siguiente;
+                Nodo volteado = null;
+                for (Nodo m = p; m != resto; ) {
+                    Nodo s = m.siguiente;
+                    m.siguiente = volteado;
+                    volteado = m;
+                    m = s;
+                }
+                tramos[n] = volteado;
+            } else {
+                while (fin.siguiente != null
+                       && comparador.compare(fin.siguiente.elemento, fin.elemento) >= 0) {
+                    fin = fin.siguiente;
+                    l++;
+                }
+                resto = fin.siguiente;
+                fin.siguiente = null;
+                tramos[n] = p;
+            }
+            longitudes[n++] = l;
+            p = resto;
+            /* Restablece las reglas de la pila: cada tramo es más largo que
+             * la suma de los dos que tiene encima. */
+            while (n > 1) {
+                int i = n - 2;
+                if ((i > 0 && longitudes[i - 1] <= longitudes[i] + longitudes[i + 1])
+                    || (i > 1 && longitudes[i - 2] <= longitudes[i - 1] + longitudes[i])) {
+                    if (longitudes[i - 1] < longitudes[i + 1])
+                        i--;
+                } else if (longitudes[i] > longitudes[i + 1]) {
+                    break;
+                }
+                n = mezclaTramos(tramos, longitudes, n, i, comparador);
+            }
+        }
+        while (n > 1) {
+            int i = n - 2;
+            if (i > 0 && longitudes[i - 1] < longitudes[i + 1])
+                i--;
+            n = mezclaTramos(tramos, longitudes, n, i, comparador);
+        }
+        religa((Nodo) tramos[0]);
+    }
+
+    /**
+     * Metodo auxiliar que mezcla los tramos i e i+1 de la pila y regresa el
+     * nuevo tamaño de la pila.
+     */
+    @SuppressWarnings("unchecked")
+    private int mezclaTramos(Object[] tramos, int[] longitudes, int n, int i,
+                             Comparator<T> comparador) {
+        tramos[i] = mezclaGalopando((Nodo) tramos[i], (Nodo) tramos[i + 1], comparador);
+        longitudes[i] += longitudes[i + 1];
+        for (int j = i + 1; j < n - 1; j++) {
+            tramos[j] = tramos[j + 1];
+            longitudes[j] = longitudes[j + 1];
+        }
+        tramos[n - 1] = null;
+        return n - 1;
+    }
+
+    /**
+     * Metodo auxiliar que mezcla dos cadenas ordenadas de nodos y regresa la
+     * cabeza del resultado. En los empates gana la primera cadena. Cuando una
+     * cadena gana {@link #MINIMO_GALOPE} veces seguidas se buscan con saltos
+     * exponenciales los bloques que pasan completos.
+     */
+    private Nodo mezclaGalopando(Nodo a, Nodo b, Comparator<T> comparador) {
+        Nodo primero = null;
+        Nodo ultimo = null;
+        int ganaA = 0;
+        int ganaB = 0;
+        while (a != null && b != null) {
+            Nodo e;
+            if (comparador.compare(a.elemento, b.elemento) <= 0) {
+                e = a;
+                a = a.siguiente;
+                ganaA++;
+                ganaB = 0;
+            } else {
+                e = b;
+                b = b.siguiente;
+                ganaB++;
+                ganaA = 0;
+            }
+            if (ultimo == null)
+                primero = e;
+            else
+                ultimo.siguiente = e;
+            ultimo = e;
+            if (ganaA < MINIMO_GALOPE && ganaB < MINIMO_GALOPE)
+                continue;
+            /* Modo galope: alterna bloques de a y de b mientras sean largos. */
+            int na;
+            int nb;
+            do {
+                if (a == null || b == null)
+                    break;
+                na = galopa(a, b.elemento, true, comparador);
+                if (na > 0) {
+                    ultimo.siguiente = a;
+                    ultimo = avanza(a, na - 1);
+                    a = ultimo.siguiente;
+                    if (a == null)
+                        break;
+                }
+                /* La cabeza de b va antes que la de a. */
+                ultimo.siguiente = b;
+                ultimo = b;
+                b = b.siguiente;
+                if (b == null)
+                    break;
+                nb = galopa(b, a.elemento, false, comparador);
+                if (nb > 0) {
+                    ultimo.siguiente = b;
+                    ultimo = avanza(b, nb - 1);
+                    b = ultimo.siguiente;
+                    if (b == null)
+                        break;
+                }
+                /* La cabeza de a va antes que la de b. */
+                ultimo.siguiente = a;
+                ultimo = a;
+                a = a.siguiente;
+            } while (na >= MINIMO_GALOPE || nb >= MINIMO_GALOPE);
+            ganaA = 0;
+            ganaB = 0;
+        }
+        ultimo.siguiente = (a != null) ? a : b;
+        return primero;
+    }
+
+    /**
+     * Metodo auxiliar que cuenta cuántos nodos al inicio de una cadena ordenada
+     * van antes que la clave: los menores o iguales si es inclusivo, o sólo los
+     * menores si no. Prueba las posiciones 1, 2, 4, 8... y luego hace búsqueda
+     * binaria en el último intervalo, así que hace un número logarítmico de
+     * comparaciones.
+     */
+    private int galopa(Nodo desde, T clave, boolean inclusivo, Comparator<T> comparador) {
+        if (!vaAntes(desde, clave, inclusivo, comparador))
+            return 0;
+        /* Los primeros cuenta nodos van antes; ultimo es el último de ellos. */
+        int cuenta = 1;
+        Nodo ultimo = desde;
+        int salto = 1;
+        int limite;
+        while (true) {
+            Nodo m = ultimo;
+            int k = 0;
+            while (k < salto && m.siguiente != null) {
+                m = m.siguiente;
+                k++;
+            }
+            if (k == 0)
+                return cuenta;
+            if (!vaAntes(m, clave, inclusivo, comparador)) {
+                limite = cuenta - 1 + k;
+                break;
+            }
+            cuenta += k;
+            ultimo = m;
+            if (k < salto)
+                return cuenta;
+            salto *= 2;
+        }
+        /* La posición limite no va antes; falta decidir [cuenta, limite). */
+        while (limite > cuenta) {
+            int mitad = (limite - cuenta) / 2;
+            Nodo m = avanza(ultimo, mitad + 1);
+            if (vaAntes(m, clave, inclusivo, comparador)) {
+                cuenta += mitad + 1;
+                ultimo = m;
+            } else {
+                limite = cuenta + mitad;
+            }
+        }
+        return cuenta;
+    }
+
+    /**
+     * Metodo auxiliar para galopa que nos dice si el nodo va antes que la clave.
+     */
+    private boolean vaAntes(Nodo n, T clave, boolean inclusivo, Comparator<T> comparador) {
+        int c = comparador.compare(n.elemento, clave);
+        return inclusivo ? c <= 0 : c < 0;
+    }
+
+    /**
+     * Metodo auxiliar que regresa el nodo k posiciones después de n.
+     */
+    private Nodo avanza(Nodo n, int k) {
+        for (int i = 0; i < k; i++)
+            n = n.siguiente;
+        return n;
+    }
+
+    /**
+     * Ordena la lista recibida sin copiarla, aprovechando los tramos que ya
+     * están ordenados. La lista recibida tiene que contener nada más elementos
+     * que implementan la interfaz {@link Comparable}.
+     * 
+     * @param <T>   tipo del que puede ser la lista.
+     * @param lista la lista que se ordenará.
+     */
+    public static <T extends Comparable<T>> void mergeSortNatural(Lista<T> lista) {
+        lista.mergeSortNatural((a, b) -> a.compareTo(b));
+    }
+
+    /**
+     * Metodo auxiliar que reconstruye las referencias anterior y el rabo a
+     * partir de una cadena de nodos ligada sólo por siguiente.
+     */
+    private void religa(Nodo primero) {
+        cabeza = primero;
+        Nodo anterior = null;
+        for (Nodo n = primero; n != null; n = n.siguiente) {
+            n.anterior = anterior;
+            anterior = n;
+        }
+        rabo = anterior;
+    }
+
+    /**
+     * Ordena la lista recibida sin copiarla. La lista recibida tiene que
+     * contener nada más elementos que implementan la interfaz
+     * {@link Comparable}.
+     * 
+     * @param <T>   tipo del que puede ser la lista.
+     * @param lista la lista que se ordenará.
+     */
+    public static <T extends Comparable<T>> void mergeSortEnLugar(Lista<T> lista) {
+        lista.mergeSortEnLugar((a, b) -> a.compareTo(b));
+    }
+
     /**
      * Regresa una copia de la lista recibida, pero ordenada. La lista recibida
      * tiene que contener nada más elementos que implementan la interfaz
@@ -0,0 +1,388 @@
+package mx.unam.ciencias.edd.proyecto1;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>Almacén compacto de líneas.</p>
+ *
+ * <p>Los caracteres de todas las líneas se copian uno tras otro en bloques
+ * grandes de bytes; de cada línea sólo se guarda en qué bloque y en qué
+ * posición empieza y cuántos bytes ocupa. Así cada línea cuesta doce bytes
+ * además de sus caracteres, en lugar de una cadena, su arreglo y un nodo de
+ * lista. Las líneas se identifican por su índice, en el orden en que se
+ * agregaron.</p>
+ *
+ * <p>Como en las cadenas de Java, las líneas con sólo caracteres de Latin-1 se
+ * guardan con un byte por caracter y las demás en UTF-16, con dos.</p>
+ *
+ * <p>Los bloques pueden ser arreglos en el montículo o búferes directos fuera
+ * de él; en el segundo caso el recolector de basura no recorre ni copia los
+ * caracteres, y {@link #libera} devuelve su memoria en cuanto se llama. Los
+ * búferes directos están limitados por <code>-XX:MaxDirectMemorySize</code>,
+ * que por omisión es igual a <code>-Xmx</code>.</p>
+ */
+class AlmacenLineas {
+
+    /* Forma de liberar búferes directos; se busca la primera vez que se usa. */
+    private static class Liberador {
+        /* Objeto sobre el que se invoca el método, o null si es estático. */
+        private static Object objeto;
+        /* Método que libera un búfer, o null si no se encontró. */
+        private static final Method METODO = buscaMetodo();
+    }
+
+    /* Número de bytes del primer bloque; cada bloque nuevo duplica al anterior
+     * hasta el máximo. */
+    private static final int BLOQUE_INICIAL = 1 << 13;
+    /* Número máximo de bytes de un bloque, salvo líneas más largas. */
+    private static final int TAMANO_BLOQUE = 1 << 21;
+    /* Bit de la longitud que indica que la línea está en UTF-16. */
+    private static final int UTF16 = 1 << 31;
+    /* Capacidad inicial de los arreglos de líneas y bloques. */
+    private static final int CAPACIDAD_INICIAL = 16;
+
+    /* Bloques de bytes en el montículo, o null si son directos. */
+    private byte[][] bloques;
+    /* Bloques de bytes fuera del montículo, o null si están en él. */
+    private ByteBuffer[] directos;
+    /* Número de bloques usados. */
+    private int numeroBloques;
+    /* Bytes usados del último bloque. */
+    private int usados;
+    /* Posición de cada línea: su bloque en los 32 bits altos y su inicio en
+     * los bajos. */
+    private long[] posiciones;
+    /* Bytes que ocupa cada línea, con el bit UTF16 si está en UTF-16. */
+    private int[] longitudes;
+    /* Número de líneas. */
+    private int numeroLineas;
+
+    /**
+     * Construye un almacén vacío con los bloques en el montículo.
+     */
+    public AlmacenLineas() {
+        this(false);
+    }
+
+    /**
+     * Construye un almacén vacío.
+     *
+     * @param fueraDelMonticulo si los bloques son búferes directos fuera del
+     *        montículo.
+     */
+    public AlmacenLineas(boolean fueraDelMonticulo) {
+        if (fueraDelMonticulo)
+            directos = new ByteBuffer[CAPACIDAD_INICIAL];
+        else
+            bloques = new byte[CAPACIDAD_INICIAL][];
+        posiciones = new long[CAPACIDAD_INICIAL];
+        longitudes = new int[CAPACIDAD_INICIAL];
+    }
+
+    /**
+     * Agrega una línea al final del almacén.
+     *
+     * @param linea la línea, sin el salto de línea.
+     */
+    public void agrega(String linea) {
+        int n = linea.length();
+        boolean latin1 = true;
+        for (int i = 0; i < n && latin1; i++)
+            latin1 = linea.charAt(i) <= 0xFF;
+        int bytes = latin1 ? n : 2 * n;
+        if (numeroBloques == 0 || usados + bytes > tamanoBloque(numeroBloques - 1))
+            nuevoBloque(bytes);
+        aseguraLineas(numeroLineas + 1);
+        if (directos == null) {
+            byte[] bloque = bloques[numeroBloques - 1];
+            int j = usados;
+            for (int i = 0; i < n; i++) {
+                char c = linea.charAt(i);
+                if (!latin1)
+                    bloque[j++] = (byte) (c >>> 8);
+                bloque[j++] = (byte) c;
+            }
+        } else {
+            ByteBuffer bloque = directos[numeroBloques - 1];
+            int j = usados;
+            for (int i = 0; i < n; i++) {
+                char c = linea.charAt(i);
+                if (!latin1)
+                    bloque.put(j++, (byte) (c >>> 8));
+                bloque.put(j++, (byte) c);
+            }
+        }
+        posiciones[numeroLineas] = ((long) (numeroBloques - 1) << 32) | usados;
+        longitudes[numeroLineas++] = latin1 ? bytes : bytes | UTF16;
+        usados += bytes;
+    }
+
+    /**
+     * Agrega al final todas las líneas de otro almacén, que queda vacío. Si
+     * ambos guardan sus bloques igual, los bloques del otro pasan a este
+     * almacén sin copiar sus bytes.
+     *
+     * @param otro el almacén cuyas líneas se agregan.
+     */
+    public void agrega(AlmacenLineas otro) {
+        if ((directos == null) != (otro.directos == null)) {
+            for (int i = 0; i < otro.numeroLineas; i++)
+                agrega(otro.linea(i));
+            otro.libera();
+            return;
+        }
+        aseguraLineas(numeroLineas + otro.numeroLineas);
+        long base = (long) numeroBloques << 32;
+        for (int i = 0; i < otro.numeroLineas; i++) {
+            posiciones[numeroLineas + i] = otro.posiciones[i] + base;
+            longitudes[numeroLineas + i] = otro.longitudes[i];
+        }
+        numeroLineas += otro.numeroLineas;
+        for (int i = 0; i < otro.numeroBloques; i++) {
+            if (directos == null)
+                agregaBloque(otro.bloques[i], null);
+            else
+                agregaBloque(null, otro.directos[i]);
+        }
+        if (otro.numeroBloques > 0)
+            usados = otro.usados;
+        otro.vacia();
+    }
+
+    /**
+     * Regresa el número de líneas del almacén.
+     *
+     * @return el número de líneas.
+     */
+    public int getNumeroLineas() {
+        return numeroLineas;
+    }
+
+    /**
+     * Regresa una línea como cadena.
+     *
+     * @param i el índice de la línea.
+     * @return una cadena nueva con el texto de la línea.
+     */
+    public String linea(int i) {
+        int n = longitud(i);
+        byte[] bytes;
+        int inicio;
+        if (directos == null) {
+            bytes = bloques[bloque(i)];
+            inicio = inicio(i);
+        } else {
+            ByteBuffer bloque = directos[bloque(i)];
+            bytes = new byte[n];
+            for (int j = 0, k = inicio(i); j < n; j++, k++)
+                bytes[j] = bloque.get(k);
+            inicio = 0;
+        }
+        return new String(bytes, inicio, n,
+                          esLatin1(i) ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_16BE);
+    }
+
+    /**
+     * Nos dice si una línea es ASCII y la tabla de pesos es válida, es decir,
+     * si la línea se puede comparar con {@link #comparaAscii}.
+     *
+     * @param i el índice de la línea.
+     * @return <code>true</code> si la línea se puede comparar con la tabla,
+     *         <code>false</code> en otro caso.
+     */
+    public boolean esAscii(int i) {
+        if (!esLatin1(i))
+            return false;
+        if (directos == null)
+            return TablaPesos.esAscii(bloques[bloque(i)], inicio(i), longitud(i));
+        return TablaPesos.esAscii(directos[bloque(i)], inicio(i), longitud(i));
+    }
+
+    /**
+     * Compara dos líneas ASCII con {@link TablaPesos}. El resultado tiene el
+     * mismo signo que {@link Archivo#compara} sobre sus textos.
+     *
+     * @param a el índice de la primera línea, debe ser ASCII.
+     * @param b el índice de la segunda línea, debe ser ASCII.
+     * @return un número menor que cero si a va antes, 0 si son iguales y un
+     *         número mayor que cero si va después.
+     */
+    public int comparaAscii(int a, int b) {
+        return comparaAscii(this, a, this, b);
+    }
+
+    /**
+     * Compara dos líneas ASCII de dos almacenes con {@link TablaPesos}.
+     *
+     * @param a el primer almacén.
+     * @param i el índice de la línea en el primer almacén, debe ser ASCII.
+     * @param b el segundo almacén.
+     * @param j el índice de la línea en el segundo almacén, debe ser ASCII.
+     * @return un número menor que cero si la primera línea va antes, 0 si son
+     *         iguales y un número mayor que cero si va después.
+     */
+    public static int comparaAscii(AlmacenLineas a, int i, AlmacenLineas b, int j) {
+        if (a.directos == null && b.directos == null)
+            return TablaPesos.compara(a.bloques[a.bloque(i)], a.inicio(i), a.longitud(i),
+                                      b.bloques[b.bloque(j)], b.inicio(j), b.longitud(j));
+        if (a.directos != null && b.directos != null)
+            return TablaPesos.compara(a.directos[a.bloque(i)], a.inicio(i), a.longitud(i),
+                                      b.directos[b.bloque(j)], b.inicio(j), b.longitud(j));
+        return TablaPesos.compara(a.linea(i), b.linea(j));
+    }
+
+    /**
+     * Estima los bytes que ocupa el almacén en el montículo: los arreglos de
+     * posiciones y longitudes y, si no son directos, los bloques.
+     *
+     * @return la memoria estimada en bytes.
+     */
+    public long memoria() {
+        long bytes = 12L * posiciones.length;
+        if (directos == null)
+            for (int i = 0; i < numeroBloques; i++)
+                bytes += bloques[i].length;
+        return bytes;
+    }
+
+    /**
+     * Libera los bloques y deja el almacén vacío. Los bloques directos se
+     * liberan en ese momento, sin esperar al recolector de basura.
+     */
+    public void libera() {
+        if (directos != null)
+            for (int i = 0; i < numeroBloques; i++)
+                libera(directos[i]);
+        vacia();
+    }
+
+    /* Deja el almacén vacío sin liberar sus bloques. */
+    private void vacia() {
+        if (directos != null)
+            directos = new ByteBuffer[CAPACIDAD_INICIAL];
+        else
+            bloques = new byte[CAPACIDAD_INICIAL][];
+        posiciones = new long[CAPACIDAD_INICIAL];
+        longitudes = new int[CAPACIDAD_INICIAL];
+        numeroBloques = 0;
+        numeroLineas = 0;
+        usados = 0;
+    }
+
+    /* Crece los arreglos de líneas para que quepan n líneas. */
+    private void aseguraLineas(int n) {
+        if (n <= posiciones.length)
+            return;
+        int capacidad = Math.max(n, 2 * posiciones.length);
+        long[] p = new long[capacidad];
+        System.arraycopy(posiciones, 0, p, 0, numeroLineas);
+        posiciones = p;
+        int[] l = new int[capacidad];
+        System.arraycopy(longitudes, 0, l, 0, numeroLineas);
+        longitudes = l;
+    }
+
+    /* Regresa el bloque de una línea. */
+    private int bloque(int i) {
+        return (int) (posiciones[i] >>> 32);
+    }
+
+    /* Regresa la posición en su bloque donde empieza una línea. */
+    private int inicio(int i) {
+        return (int) posiciones[i];
+    }
+
+    /* Regresa el número de bytes que ocupa una línea. */
+    private int longitud(int i) {
+        return longitudes[i] & ~UTF16;
+    }
+
+    /* Nos dice si una línea está guardada con un byte por caracter. */
+    private boolean esLatin1(int i) {
+        return (longitudes[i] & UTF16) == 0;
+    }
+
+    /* Regresa el tamaño en bytes de un bloque. */
+    private int tamanoBloque(int i) {
+        return directos == null ? bloques[i].length : directos[i].capacity();
+    }
+
+    /* Empieza un bloque nuevo donde quepa una línea de n bytes. */
+    private void nuevoBloque(int n) {
+        int tamano = (numeroBloques == 0)
+            ? BLOQUE_INICIAL : Math.min(TAMANO_BLOQUE, 2 * tamanoBloque(numeroBloques - 1));
+        tamano = Math.max(n, tamano);
+        if (directos == null)
+            agregaBloque(new byte[tamano], null);
+        else
+            agregaBloque(null, ByteBuffer.allocateDirect(tamano));
+        usados = 0;
+    }
+
+    /* Agrega un bloque al final, el arreglo si los bloques están en el
+     * montículo y el búfer si no. */
+    private void agregaBloque(byte[] bloque, ByteBuffer directo) {
+        if (directos == null) {
+            if (numeroBloques == bloques.length) {
+                byte[][] b = new byte[2 * bloques.length][];
+                System.arraycopy(bloques, 0, b, 0, numeroBloques);
+                bloques = b;
+            }
+            bloques[numeroBloques++] = bloque;
+        } else {
+            if (numeroBloques == directos.length) {
+                ByteBuffer[] b = new ByteBuffer[2 * directos.length];
+                System.arraycopy(directos, 0, b, 0, numeroBloques);
+                directos = b;
+            }
+            directos[numeroBloques++] = directo;
+        }
+    }
+
+    /* Libera un búfer directo. Si la máquina virtual no lo permite, su memoria
+     * se libera cuando el recolector de basura lo encuentre. */
+    private static void libera(ByteBuffer bufer) {
+        if (Liberador.METODO == null)
+            return;
+        try {
+            Liberador.METODO.invoke(Liberador.objeto, bufer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // se deja al recolector de basura
+        }
+    }
+
+    /* Busca la forma de liberar búferes directos: Unsafe.invokeCleaner a
+     * partir de Java 9 y DirectBuffer.cleaner().clean() en Java 8. */
+    private static Method buscaMetodo() {
+        try {
+            Class<?> clase = Class.forName("sun.misc.Unsafe");
+            Method invoca = clase.getMethod("invokeCleaner", ByteBuffer.class);
+            Field campo = clase.getDeclaredField("theUnsafe");
+            campo.setAccessible(true);
+            Liberador.objeto = campo.get(null);
+            return invoca;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // no es Java 9 o posterior
+        }
+        try {
+            Method limpia = AlmacenLineas.class.getDeclaredMethod("limpiaJava8", ByteBuffer.class);
+            limpia.invoke(null, ByteBuffer.allocateDirect(1));
+            return limpia;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /* Libera un búfer directo en Java 8. */
+    private static void limpiaJava8(ByteBuffer bufer) throws ReflectiveOperationException {
+        Method cleaner = bufer.getClass().getMethod("cleaner");
+        cleaner.setAccessible(true);
+        Object limpiador = cleaner.invoke(bufer);
+        Method clean = limpiador.getClass().getMethod("clean");
+        clean.setAccessible(true);
+        clean.invoke(limpiador);
+    }
+}
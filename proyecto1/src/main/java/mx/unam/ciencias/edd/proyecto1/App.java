@@ -2,20 +2,26 @@ package mx.unam.ciencias.edd.proyecto1;
 
 /**
  * Contiene el método main y se encarga de imprimir en pantalla el resultado y
- * los errores.
+ * los errores, éstos en la salida de error.
  */
 public class App {
 
     /**
      * Método principal. Recibe los argumentos introducidos por el usuario crea. 
      * Ejecuta el programa para ordenar los archivos e imprime el resultado en pantalla.
+     * Si una entrada no está ordenada cuando debía estarlo, termina con estado 1;
+     * con cualquier otro error, con estado 2.
      */
     public static void main(String[] args) {
         try {
             Sort app = new Sort(args);
             app.ejecutar();
+        } catch (ExcepcionEntradaDesordenada e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
         } catch (Exception e) {
-            System.out.println(e.getMessage());
+            System.err.println(e.getMessage());
+            System.exit(2);
         }
     }
 }
\ No newline at end of file
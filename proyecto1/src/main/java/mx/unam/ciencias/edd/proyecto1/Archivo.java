@@ -3,22 +3,56 @@ package mx.unam.ciencias.edd.proyecto1;
 import java.io.IOException;
 import java.io.BufferedReader;
 import java.io.Writer;
+import java.text.CollationKey;
 import java.text.Collator;
-import mx.unam.ciencias.edd.Lista;
+import mx.unam.ciencias.edd.Estadisticas;
 
 /**
  * 
  */
 public class Archivo {
 
-    private Lista<String> lineas;
+    // Comparador compartido por todas las comparaciones. Obvia mayúsculas y
+    // acentos a la hora de comparar.
+    static final Collator COMPARADOR = Collator.getInstance();
+    static {
+        COMPARADOR.setStrength(Collator.PRIMARY);
+    }
+
+    // las líneas del archivo, en el orden en que se agregaron
+    private AlmacenLineas almacen;
+    // índices de las líneas en el orden en que se escriben, o null si es el
+    // orden en que se agregaron
+    private int[] orden;
+    // número de índices que se usan del orden; sin repetidos puede ser menor
+    // que el número de líneas
+    private int enOrden;
+    // llaves de bytes de las líneas del último ordenamiento, o null si no se
+    // calcularon o alguna línea no la tiene
+    private byte[][] bytes;
+    // si las llaves de bytes son las de Campos#llaveColador en vez de las de
+    // LlaveBytes
+    private boolean bytesDelColador;
+    // números de las líneas si se ordena por campos numéricos, o null si no
+    // se han calculado
+    private LlavesNumericas numeros;
+    // llaves del comparador de las líneas, o null si no se han necesitado
+    private ComparadorColador colador;
+    // número de hilos con los que se ordena
+    private int hilos = 1;
+    // motor con el que se ordena
+    private Motor motor = Motor.COLADOR;
+    // si al ordenar se descartan las líneas repetidas
+    private boolean unico;
+    // campos por los que se ordena, o null si se ordena por toda la línea
+    private Campos campos;
 
     /**
      * Constructor por omisión
      * 
      */
     public Archivo() {
-        lineas = new Lista<>();
+        almacen = new AlmacenLineas();
     }
 
     /**
@@ -28,11 +62,160 @@ public class Archivo {
      * @throws IOException Si ocurre un error al leer el archivo.
      */
     public void cargarArchivo(BufferedReader bufer) throws IOException {
-        String linea = bufer.readLine();
+        cargarArchivo(new LectorFlujo(bufer));
+    }
+
+    /**
+     * Lee las lineas de un lector y las agrega al objeto.
+     * 
+     * @param lector Lector del cual leer las líneas.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    public void cargarArchivo(LectorLineas lector) throws IOException {
+        String linea = lector.leeLinea();
         while (linea != null) {
-            lineas.agregaFinal(linea);
-            linea = bufer.readLine();
+            agregaLinea(linea);
+            linea = lector.leeLinea();
+        }
+    }
+
+    /**
+     * Agrega una línea al final del archivo.
+     * 
+     * @param linea La línea a agregar, sin el salto de línea.
+     */
+    public void agregaLinea(String linea) {
+        extiendeOrden(1);
+        olvidaLlaves();
+        almacen.agrega(linea);
+        if (Estadisticas.activas())
+            Estadisticas.cuentaLineas(1);
+    }
+
+    /**
+     * Agrega al final todas las líneas de otro archivo, en el orden en que se
+     * le agregaron, y deja vacío al otro archivo. Si ambos guardan sus líneas
+     * en el mismo lugar, las líneas no se copian.
+     * 
+     * @param otro El archivo cuyas líneas se agregan.
+     */
+    public void agregaArchivo(Archivo otro) {
+        extiendeOrden(otro.almacen.getNumeroLineas());
+        olvidaLlaves();
+        almacen.agrega(otro.almacen);
+        otro.orden = null;
+        otro.olvidaLlaves();
+    }
+
+    /**
+     * Si el archivo ya se ordenó, agrega al final del orden las siguientes n
+     * líneas.
+     */
+    private void extiendeOrden(int n) {
+        if (orden == null)
+            return;
+        int lineas = almacen.getNumeroLineas();
+        if (enOrden + n > orden.length) {
+            int[] nuevo = new int[Math.max(enOrden + n, 2 * enOrden)];
+            System.arraycopy(orden, 0, nuevo, 0, enOrden);
+            orden = nuevo;
         }
+        for (int i = 0; i < n; i++)
+            orden[enOrden++] = lineas + i;
+    }
+
+    /**
+     * Regresa el número de líneas del archivo. Si se ordenó sin repetidos no
+     * cuenta las repetidas.
+     * 
+     * @return el número de líneas que se escriben del archivo.
+     */
+    public int getNumeroLineas() {
+        return orden == null ? almacen.getNumeroLineas() : enOrden;
+    }
+
+    /**
+     * Estima los bytes que ocupan las líneas del archivo en el montículo.
+     * 
+     * @return la memoria estimada en bytes.
+     */
+    public long getMemoria() {
+        return almacen.memoria() + (orden == null ? 0 : 4L * orden.length);
+    }
+
+    /**
+     * Define si las líneas se guardan en búferes directos, fuera del
+     * montículo. Sólo en el montículo quedan sus posiciones y, al ordenar, sus
+     * índices y llaves. La memoria de los búferes se devuelve al llamar
+     * {@link #libera}.
+     * 
+     * @param fueraDelMonticulo Si las líneas se guardan fuera del montículo.
+     * @throws IllegalStateException Si el archivo ya tiene líneas.
+     */
+    public void setFueraDelMonticulo(boolean fueraDelMonticulo) {
+        if (!esVacio())
+            throw new IllegalStateException("El archivo ya tiene líneas.");
+        almacen = new AlmacenLineas(fueraDelMonticulo);
+    }
+
+    /**
+     * Libera la memoria de las líneas y deja el archivo vacío. Si las líneas
+     * están fuera del montículo su memoria se devuelve en ese momento.
+     */
+    public void libera() {
+        if (Estadisticas.activas())
+            Estadisticas.cuentaLineas(-almacen.getNumeroLineas());
+        almacen.libera();
+        orden = null;
+        olvidaLlaves();
+    }
+
+    /**
+     * Define el número de hilos con los que se ordena el archivo. El resultado
+     * es el mismo con cualquier número de hilos.
+     * 
+     * @param hilos El número de hilos, debe ser positivo.
+     */
+    public void setHilos(int hilos) {
+        this.hilos = hilos;
+    }
+
+    /**
+     * Define el motor con el que se ordena el archivo. El resultado es el mismo
+     * con cualquier motor.
+     * 
+     * @param motor El motor de ordenamiento.
+     */
+    public void setMotor(Motor motor) {
+        this.motor = motor;
+    }
+
+    /**
+     * Define si al ordenar se descartan las líneas repetidas, las que son
+     * iguales según {@link #compara}. De cada grupo de líneas iguales sólo se
+     * queda la primera que se agregó. Las repetidas se descartan al mezclar.
+     * 
+     * @param unico Si se descartan las líneas repetidas.
+     */
+    public void setUnico(boolean unico) {
+        this.unico = unico;
+    }
+
+    /**
+     * Define los campos por los que se ordena el archivo. Las líneas se
+     * comparan con {@link Campos#compara} y las que tienen llaves iguales
+     * quedan en el orden en que se agregaron. Los límites de los campos se
+     * buscan una sola vez por línea al ordenar y sus llaves se guardan hasta
+     * que cambian las líneas; con campos todos los motores comparan llaves de
+     * bytes. Si los campos son numéricos no se usa el motor: los números se
+     * interpretan una vez por línea en un arreglo primitivo y se ordenan los
+     * índices comparando ese arreglo.
+     * 
+     * @param campos Los campos, o null para ordenar por toda la línea.
+     */
+    public void setCampos(Campos campos) {
+        this.campos = campos;
+        olvidaLlaves();
     }
 
     /**
@@ -42,21 +225,294 @@ public class Archivo {
      *         false
      */
     public boolean esVacio() {
-        return lineas.esVacia();
+        return almacen.getNumeroLineas() == 0;
     }
 
     /**
-     * Ordena el archivo lexicográficamente usando el orden por defecto.
+     * Ordena el archivo lexicográficamente usando el orden por defecto. Las
+     * líneas no se mueven; se ordenan sus índices.
      */
     public void ordena() {
-        lineas = lineas.mergeSort((a, b) -> compara(a, b));
+        ordena(false);
     }
 
     /**
      * Ordena el archivo lexicográficamente usando el inverso del orden por defecto
      */
     public void ordenaReversa() {
-        lineas = lineas.mergeSort((a, b) -> -compara(a, b));
+        ordena(true);
+    }
+
+    /**
+     * Ordena los índices de las líneas con el motor del archivo. Las líneas
+     * iguales quedan en el orden en que se agregaron. Si las
+     * {@link Estadisticas} están prendidas se cuentan las comparaciones; el
+     * motor radix casi no compara. Sin repetidos, el radix descarta las
+     * líneas con llaves iguales al final, porque no mezcla.
+     */
+    private void ordena(boolean reversa) {
+        int n = almacen.getNumeroLineas();
+        boolean numerico = campos != null && campos.esNumerico();
+        if (numerico && numeros == null)
+            calculaNumeros();
+        if (!numerico && bytes == null && (motor != Motor.COLADOR || campos != null))
+            calculaLlaves();
+        if (motor == Motor.RADIX && !numerico) {
+            byte[][] llaves = bytes;
+            if (llaves == null) {
+                llaves = new byte[n][];
+                for (int i = 0; i < n; i++)
+                    llaves[i] = llave(almacen.linea(i)).toByteArray();
+            }
+            orden = OrdenamientoRadix.ordena(llaves, reversa);
+            enOrden = unico ? compactaOrden(llaves) : n;
+            return;
+        }
+        OrdenamientoIndices.Comparador comparador;
+        if (numerico) {
+            comparador = numeros;
+        } else if (bytes != null) {
+            byte[][] llaves = bytes;
+            comparador = (a, b) -> LlaveBytes.compara(llaves[a], llaves[b]);
+        } else {
+            comparador = getColador();
+            // los hilos del ordenamiento sólo deben leer las llaves
+            if (hilos > 1)
+                getColador().completaLlaves();
+        }
+        if (reversa) {
+            OrdenamientoIndices.Comparador c = comparador;
+            comparador = (a, b) -> -c.compara(a, b);
+        }
+        if (Estadisticas.activas()) {
+            OrdenamientoIndices.Comparador c = comparador;
+            comparador = (a, b) -> {
+                long inicio = Estadisticas.iniciaComparacion();
+                int r = c.compara(a, b);
+                Estadisticas.terminaComparacion(inicio);
+                return r;
+            };
+        }
+        ordenAgregado();
+        enOrden = OrdenamientoIndices.ordena(orden, comparador, hilos, unico);
+    }
+
+    /**
+     * Descarta del orden las líneas cuya llave es igual a la de la anterior y
+     * regresa cuántas quedan.
+     */
+    private int compactaOrden(byte[][] llaves) {
+        int k = 0;
+        for (int i = 0; i < orden.length; i++)
+            if (k == 0 || LlaveBytes.compara(llaves[orden[k - 1]], llaves[orden[i]]) != 0)
+                orden[k++] = orden[i];
+        return k;
+    }
+
+    /**
+     * Compara la línea en la posición i de un archivo con la línea en la
+     * posición j de otro, en el orden actual de cada uno. Usa las llaves que
+     * los archivos calcularon al ordenarse, así que sirve para mezclar
+     * archivos ya ordenados. El resultado tiene el mismo signo que
+     * {@link #compara} sobre los textos, o que {@link Campos#compara} si se
+     * ordenan por campos; ambos archivos deben tener los mismos campos. Si las {@link Estadisticas} están
+     * prendidas, se cuenta la comparación.
+     * 
+     * @param a El primer archivo.
+     * @param i La posición de la línea en el primer archivo.
+     * @param b El segundo archivo.
+     * @param j La posición de la línea en el segundo archivo.
+     * @return un número menor que cero si la primera línea va antes, 0 si son
+     *         iguales y un número mayor que cero si va después.
+     */
+    static int compara(Archivo a, int i, Archivo b, int j) {
+        if (!Estadisticas.activas())
+            return comparaLineas(a, i, b, j);
+        long inicio = Estadisticas.iniciaComparacion();
+        int c = comparaLineas(a, i, b, j);
+        Estadisticas.terminaComparacion(inicio);
+        return c;
+    }
+
+    /**
+     * Compara la línea en la posición i de un archivo con la línea en la
+     * posición j de otro, sin contar la comparación.
+     */
+    private static int comparaLineas(Archivo a, int i, Archivo b, int j) {
+        int x = a.indice(i);
+        int y = b.indice(j);
+        if (a.campos != null && a.campos.esNumerico()) {
+            if (a.numeros == null)
+                a.calculaNumeros();
+            if (b.numeros == null)
+                b.calculaNumeros();
+            return LlavesNumericas.compara(a.numeros, x, b.numeros, y);
+        }
+        if (a.campos != null) {
+            // las llaves de ambos deben ser del mismo tipo
+            if (a.bytes == null || (b.bytesDelColador && !a.bytesDelColador))
+                a.calculaLlavesDelColador();
+            if (b.bytes == null || (a.bytesDelColador && !b.bytesDelColador))
+                b.calculaLlavesDelColador();
+        }
+        if (a.bytes != null && b.bytes != null)
+            return LlaveBytes.compara(a.bytes[x], b.bytes[y]);
+        ComparadorColador ca = a.getColador();
+        ComparadorColador cb = b.getColador();
+        if (ca.ascii[x] && cb.ascii[y])
+            return AlmacenLineas.comparaAscii(a.almacen, x, b.almacen, y);
+        return ca.getLlave(x).compareTo(cb.getLlave(y));
+    }
+
+    /**
+     * Regresa el comparador con las llaves del comparador de las líneas y lo
+     * crea si aún no se tiene.
+     */
+    private ComparadorColador getColador() {
+        if (colador == null)
+            colador = new ComparadorColador();
+        return colador;
+    }
+
+    /**
+     * Olvida las llaves calculadas; se llama cuando cambian las líneas.
+     */
+    private void olvidaLlaves() {
+        bytes = null;
+        bytesDelColador = false;
+        numeros = null;
+        colador = null;
+    }
+
+    /**
+     * Calcula las llaves de bytes de las líneas. Si alguna línea no la tiene,
+     * se quedan en null; con campos, se usan entonces las del comparador.
+     */
+    private void calculaLlaves() {
+        byte[][] llaves = new byte[almacen.getNumeroLineas()][];
+        for (int i = 0; i < llaves.length; i++) {
+            String linea = almacen.linea(i);
+            llaves[i] = (campos == null) ? LlaveBytes.llave(linea) : campos.llaveBytes(linea);
+            if (llaves[i] == null) {
+                if (campos != null)
+                    calculaLlavesDelColador();
+                return;
+            }
+        }
+        bytes = llaves;
+    }
+
+    /**
+     * Interpreta los números de los campos de las líneas.
+     */
+    private void calculaNumeros() {
+        int n = almacen.getNumeroLineas();
+        LlavesNumericas llaves = campos.llavesNumericas(n);
+        for (int i = 0; i < n; i++)
+            campos.asignaNumeros(llaves, i, almacen.linea(i));
+        numeros = llaves;
+    }
+
+    /**
+     * Calcula las llaves de los campos de las líneas con el comparador, que
+     * toda línea tiene.
+     */
+    private void calculaLlavesDelColador() {
+        byte[][] llaves = new byte[almacen.getNumeroLineas()][];
+        for (int i = 0; i < llaves.length; i++)
+            llaves[i] = campos.llaveColador(almacen.linea(i));
+        bytes = llaves;
+        bytesDelColador = true;
+    }
+
+    /**
+     * Deja los índices en el orden en que se agregaron las líneas.
+     */
+    private void ordenAgregado() {
+        orden = new int[almacen.getNumeroLineas()];
+        for (int i = 0; i < orden.length; i++)
+            orden[i] = i;
+        enOrden = orden.length;
+    }
+
+    /**
+     * Regresa el índice de la línea en la posición i del archivo, en el
+     * orden actual; el índice es su posición en el orden en que se agregaron.
+     */
+    int indice(int i) {
+        return orden == null ? i : orden[i];
+    }
+
+    /**
+     * Compara las líneas como {@link Linea}: dos líneas ASCII con la tabla de
+     * pesos y las demás con las llaves del comparador. Las llaves de las
+     * líneas que no son ASCII se calculan al crearlo; las de las ASCII, que
+     * sólo hacen falta al compararlas con una que no lo es, se calculan
+     * cuando se necesitan con un solo hilo, o todas antes de ordenar con
+     * varios.
+     */
+    private class ComparadorColador implements OrdenamientoIndices.Comparador {
+
+        // si cada línea es ASCII
+        private boolean[] ascii;
+        // las llaves de las líneas, o null si aún no se han necesitado
+        private CollationKey[] llaves;
+        // si hay alguna línea que no es ASCII
+        private boolean mezclado;
+        // si ya se calcularon todas las llaves que pueden hacer falta
+        private boolean completas;
+
+        /* Revisa qué líneas son ASCII y calcula las llaves de las demás. */
+        public ComparadorColador() {
+            int n = almacen.getNumeroLineas();
+            ascii = new boolean[n];
+            llaves = new CollationKey[n];
+            for (int i = 0; i < n; i++) {
+                if (!(ascii[i] = almacen.esAscii(i))) {
+                    llaves[i] = llave(almacen.linea(i));
+                    mezclado = true;
+                }
+            }
+        }
+
+        /* Calcula las llaves de las líneas ASCII si hay alguna que no lo es,
+         * para que los hilos del ordenamiento, que las comparten sin
+         * sincronizarse, nunca las escriban. Si todas son ASCII nunca se
+         * usan. */
+        public void completaLlaves() {
+            if (completas || !mezclado)
+                return;
+            for (int i = 0; i < llaves.length; i++)
+                if (llaves[i] == null)
+                    llaves[i] = llave(almacen.linea(i));
+            completas = true;
+        }
+
+        @Override
+        public int compara(int a, int b) {
+            if (ascii[a] && ascii[b])
+                return almacen.comparaAscii(a, b);
+            return getLlave(a).compareTo(getLlave(b));
+        }
+
+        /* Regresa la llave de la línea y la calcula si aún no se tiene; con
+         * varios hilos ya se calcularon todas en completaLlaves. */
+        private CollationKey getLlave(int i) {
+            CollationKey k = llaves[i];
+            if (k == null)
+                llaves[i] = k = llave(almacen.linea(i));
+            return k;
+        }
+    }
+
+    /**
+     * Regresa la línea en una posición del archivo, en el orden actual.
+     * 
+     * @param i La posición de la línea.
+     * @return El texto de la línea.
+     */
+    String getLinea(int i) {
+        return almacen.linea(indice(i));
     }
 
     /**
@@ -64,18 +520,60 @@ public class Archivo {
      */
     @Override
     public String toString() {
-        String s = "";
-        for (String linea : lineas)
-            s += linea + "\n";
-        return s;
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < getNumeroLineas(); i++)
+            s.append(almacen.linea(indice(i))).append('\n');
+        return s.toString();
+    }
+
+    /**
+     * Imprime el archivo en la salida estandar. Si quien lee la salida la
+     * cierra antes de tiempo, deja de escribir sin reportar nada.
+     * @throws IOException Si ocurre otro error I/O
+     */
+    public void imprimirArchivo() throws IOException {
+        EscritorSalida salida = EscritorSalida.salidaEstandar();
+        try {
+            escribir(salida);
+            salida.flush();
+        } catch (IOException e) {
+            if (!EscritorSalida.esTuberiaRota(e))
+                throw e;
+        }
     }
 
     /**
-     * Imprime el archivo en la salida estandar.
+     * Escribe el contenido del archivo en el escritor pasado como parámetro.
+     * No cierra ni vacía el escritor.
+     * @param salida Escritor donde se va a escribir el archivo
+     * @throws IOException Si ocurre un error I/O
      */
-    public void imprimirArchivo() {
-        for (String linea : lineas)
-            System.out.println(linea);
+    public void escribir(EscritorSalida salida) throws IOException {
+        for (int i = 0; i < getNumeroLineas(); i++)
+            salida.escribeLinea(almacen.linea(indice(i)));
+    }
+
+    /**
+     * Regresa un lector de las líneas del archivo en su orden actual, para
+     * mezclarlas con las de otras entradas.
+     *
+     * @return un lector de las líneas del archivo.
+     */
+    public LectorLineas lector() {
+        return new LectorLineas() {
+            private int siguiente;
+
+            @Override
+            public String leeLinea() {
+                if (siguiente == getNumeroLineas())
+                    return null;
+                return almacen.linea(indice(siguiente++));
+            }
+
+            @Override
+            public void close() {
+            }
+        };
     }
 
     /**
@@ -85,8 +583,10 @@ public class Archivo {
      * @throws IOException Si ocurre un error I/O
      */
     public void escribirFichero(Writer f) throws IOException {
-        for (String linea : lineas)
-            f.write(linea + "\n");
+        for (int i = 0; i < getNumeroLineas(); i++) {
+            f.write(almacen.linea(indice(i)));
+            f.write('\n');
+        }
     }
 
     /**
@@ -98,13 +598,43 @@ public class Archivo {
      * @return un número menor que cero si a<b, 0 si a=b y un numero mayor que cero
      *         si a>b
      */
-    private int compara(String a, String b) {
-        // Crea el objeto que va a utilizarse para comparar las cadenas
-        Collator comparador = Collator.getInstance();
-        // Hace que el comparador obvie Mayúsculas y acentos a la hora de comparar.
-        comparador.setStrength(Collator.PRIMARY);
-        // un caracter que no sea una letra o un dígito.
-        String regex = "[^\\p{L}\\p{Nd}+]";
-        return comparador.compare(a.replaceAll(regex, ""), b.replaceAll(regex, ""));
+    public static int compara(String a, String b) {
+        return COMPARADOR.compare(normaliza(a), normaliza(b));
+    }
+
+    /**
+     * Calcula la llave de ordenamiento de una cadena. Comparar las llaves de dos
+     * cadenas da el mismo resultado que {@link #compara}.
+     * 
+     * @param cadena la cadena de la que se calcula la llave.
+     * @return la llave de la cadena normalizada.
+     */
+    static CollationKey llave(String cadena) {
+        return COMPARADOR.getCollationKey(normaliza(cadena));
+    }
+
+    /**
+     * Quita de la cadena todo caracter que no sea una letra, un dígito o '+'. Es
+     * equivalente a reemplazar la expresión regular [^\p{L}\p{Nd}+] por la
+     * cadena vacía, pero sin compilar la expresión en cada llamada.
+     */
+    private static String normaliza(String cadena) {
+        StringBuilder sb = new StringBuilder(cadena.length());
+        int i = 0;
+        while (i < cadena.length()) {
+            int c = cadena.codePointAt(i);
+            if (seConserva(c))
+                sb.appendCodePoint(c);
+            i += Character.charCount(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Nos dice si un caracter se toma en cuenta al comparar: las letras, los
+     * dígitos y '+'.
+     */
+    static boolean seConserva(int c) {
+        return Character.isLetter(c) || Character.isDigit(c) || c == '+';
     }
 }
\ No newline at end of file
@@ -0,0 +1,258 @@
+package mx.unam.ciencias.edd.proyecto1;
+
+/**
+ * <p>Llaves de ordenamiento formadas por campos de la línea.</p>
+ *
+ * <p>Los campos se separan con un caracter separador o, si no se define, con
+ * espacios y tabuladores: entonces cada campo es una racha de caracteres que
+ * no son blancos. Cada llave va del comienzo de un campo inicial al final de
+ * un campo final, o al final de la línea; los campos se cuentan desde uno y
+ * los que faltan en una línea quedan vacíos. Las líneas se comparan llave
+ * por llave como en {@link Archivo#compara}; si todas sus llaves son iguales,
+ * las líneas son iguales.</p>
+ *
+ * <p>Los límites de los campos se buscan en un solo recorrido de la línea y
+ * las llaves de todos los campos se juntan en un solo arreglo de bytes, que
+ * se calcula una vez por línea y se compara byte por byte: la llave de cada
+ * campo termina en un byte menor que cualquier otro, así que comparar los
+ * arreglos es comparar campo por campo.</p>
+ *
+ * <p>Si los campos son numéricos, cada llave se compara por el número con
+ * que empieza, como en {@link LlavesNumericas}, y las líneas guardan sus
+ * números en lugar de llaves de bytes.</p>
+ */
+public class Campos {
+
+    // separador de los campos, o -1 si los separan blancos
+    private int separador = -1;
+    // campo inicial de cada llave, desde uno
+    private int[] inicios;
+    // campo final de cada llave, desde uno, o 0 si llega al final de la línea
+    private int[] finales;
+    // número de llaves
+    private int llaves;
+    // número de campos que hay que separar para obtener todas las llaves
+    private int maximo;
+    // si las llaves se comparan por su número
+    private boolean numerico;
+
+    /**
+     * Crea unas llaves vacías, con los campos separados por blancos.
+     */
+    public Campos() {
+        inicios = new int[1];
+        finales = new int[1];
+    }
+
+    /**
+     * Define el caracter que separa los campos.
+     *
+     * @param separador El caracter separador.
+     */
+    public void setSeparador(char separador) {
+        this.separador = separador;
+    }
+
+    /**
+     * Define si las llaves se comparan por el número con que empiezan.
+     *
+     * @param numerico Si las llaves son numéricas.
+     */
+    public void setNumerico(boolean numerico) {
+        this.numerico = numerico;
+    }
+
+    /**
+     * Nos dice si las llaves se comparan por el número con que empiezan.
+     *
+     * @return true si las llaves son numéricas.
+     */
+    public boolean esNumerico() {
+        return numerico;
+    }
+
+    /**
+     * Agrega una llave que va del campo inicial al final, incluidos.
+     *
+     * @param inicio El campo inicial, desde uno.
+     * @param fin    El campo final, desde uno, o 0 para llegar al final de la
+     *               línea.
+     * @throws ExcepcionArgumentoInvalido Si los campos no forman una llave.
+     */
+    public void agregaLlave(int inicio, int fin) {
+        if (inicio <= 0 || fin < 0 || (fin != 0 && fin < inicio))
+            throw new ExcepcionArgumentoInvalido(
+                "Los campos " + inicio + "," + fin + " no forman una llave.");
+        if (llaves == inicios.length) {
+            int[] nuevosInicios = new int[2 * llaves];
+            int[] nuevosFinales = new int[2 * llaves];
+            System.arraycopy(inicios, 0, nuevosInicios, 0, llaves);
+            System.arraycopy(finales, 0, nuevosFinales, 0, llaves);
+            inicios = nuevosInicios;
+            finales = nuevosFinales;
+        }
+        inicios[llaves] = inicio;
+        finales[llaves++] = fin;
+        maximo = Math.max(maximo, Math.max(inicio, fin));
+    }
+
+    /**
+     * Regresa el número de llaves.
+     *
+     * @return el número de llaves que se agregaron.
+     */
+    public int getNumeroLlaves() {
+        return llaves;
+    }
+
+    /**
+     * Regresa una descripción de los campos: su separador, sus llaves y si
+     * son numéricos. Dos campos con la misma descripción ordenan igual.
+     *
+     * @return la descripción de los campos.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(separador < 0 ? "blancos" : "separador " + separador);
+        for (int i = 0; i < llaves; i++)
+            sb.append(", llave ").append(inicios[i]).append(',').append(finales[i]);
+        if (numerico)
+            sb.append(", numéricos");
+        return sb.toString();
+    }
+
+    /**
+     * Compara dos líneas llave por llave con {@link Archivo#compara}, o con
+     * {@link LlavesNumericas#compara(String, String)} si son numéricas.
+     *
+     * @param a primera línea a comparar.
+     * @param b segunda línea a comparar.
+     * @return un número menor que cero si a&lt;b, 0 si a=b y un número mayor
+     *         que cero si a&gt;b.
+     */
+    public int compara(String a, String b) {
+        String[] llavesA = textos(a);
+        String[] llavesB = textos(b);
+        for (int i = 0; i < llaves; i++) {
+            int c = numerico
+                ? LlavesNumericas.compara(llavesA[i], llavesB[i])
+                : Archivo.compara(llavesA[i], llavesB[i]);
+            if (c != 0)
+                return c;
+        }
+        return 0;
+    }
+
+    /**
+     * Calcula la llave de bytes de una línea: las {@link LlaveBytes} de sus
+     * llaves, cada una seguida de un cero. Regresa null si alguna llave no
+     * tiene llave de bytes.
+     *
+     * @param linea la línea de la que se calcula la llave.
+     * @return la llave de la línea, o null si no se puede representar.
+     */
+    byte[] llaveBytes(String linea) {
+        String[] textos = textos(linea);
+        byte[][] partes = new byte[llaves][];
+        int longitud = 0;
+        for (int i = 0; i < llaves; i++) {
+            if ((partes[i] = LlaveBytes.llave(textos[i])) == null)
+                return null;
+            longitud += partes[i].length + 1;
+        }
+        return junta(partes, longitud, 1);
+    }
+
+    /**
+     * Calcula la llave de una línea con el comparador: los bytes de las
+     * llaves del comparador de sus llaves, cada una seguida de dos ceros.
+     * Toda línea tiene esta llave, pero no se puede comparar con la de
+     * {@link #llaveBytes}.
+     *
+     * @param linea la línea de la que se calcula la llave.
+     * @return la llave de la línea.
+     */
+    byte[] llaveColador(String linea) {
+        String[] textos = textos(linea);
+        byte[][] partes = new byte[llaves][];
+        int longitud = 0;
+        for (int i = 0; i < llaves; i++) {
+            partes[i] = Archivo.llave(textos[i]).toByteArray();
+            longitud += partes[i].length + 2;
+        }
+        return junta(partes, longitud, 2);
+    }
+
+    /**
+     * Crea llaves numéricas en cero para varias líneas, que se llenan con
+     * {@link #asignaNumeros}.
+     *
+     * @param lineas el número de líneas.
+     * @return las llaves numéricas.
+     */
+    LlavesNumericas llavesNumericas(int lineas) {
+        return new LlavesNumericas(lineas, llaves);
+    }
+
+    /**
+     * Interpreta los números de las llaves de una línea y los guarda.
+     *
+     * @param numeros las llaves numéricas donde se guardan.
+     * @param i       el índice de la línea en las llaves numéricas.
+     * @param linea   la línea.
+     */
+    void asignaNumeros(LlavesNumericas numeros, int i, String linea) {
+        String[] textos = textos(linea);
+        for (int k = 0; k < llaves; k++)
+            numeros.asigna(i, k, textos[k]);
+    }
+
+    /* Junta las partes de una llave, cada una seguida de ceros. */
+    private byte[] junta(byte[][] partes, int longitud, int ceros) {
+        byte[] llave = new byte[longitud];
+        int j = 0;
+        for (byte[] parte : partes) {
+            System.arraycopy(parte, 0, llave, j, parte.length);
+            j += parte.length + ceros;
+        }
+        return llave;
+    }
+
+    /* Separa los campos de la línea en un solo recorrido y regresa el texto
+     * de cada llave. */
+    private String[] textos(String linea) {
+        int n = linea.length();
+        int[] comienzos = new int[maximo];
+        int[] terminos = new int[maximo];
+        int i = 0;
+        for (int c = 0; c < maximo; c++) {
+            if (separador < 0) {
+                while (i < n && esBlanco(linea.charAt(i)))
+                    i++;
+            } else if (c > 0 && i < n) {
+                i++;
+            }
+            comienzos[c] = i;
+            if (separador < 0) {
+                while (i < n && !esBlanco(linea.charAt(i)))
+                    i++;
+            } else {
+                while (i < n && linea.charAt(i) != separador)
+                    i++;
+            }
+            terminos[c] = i;
+        }
+        String[] textos = new String[llaves];
+        for (int k = 0; k < llaves; k++) {
+            int fin = (finales[k] == 0) ? n : terminos[finales[k] - 1];
+            textos[k] = linea.substring(comienzos[inicios[k] - 1], fin);
+        }
+        return textos;
+    }
+
+    /* Nos dice si un caracter es un blanco que separa campos. */
+    private static boolean esBlanco(char c) {
+        return c == ' ' || c == '\t';
+    }
+}
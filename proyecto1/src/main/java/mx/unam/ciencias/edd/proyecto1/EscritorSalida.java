@@ -0,0 +1,297 @@
+package mx.unam.ciencias.edd.proyecto1;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>Escritor de líneas con un búfer grande propio.</p>
+ *
+ * <p>Las líneas se codifican directamente en un arreglo de bytes, sin crear
+ * cadenas temporales, y el arreglo se escribe al canal sólo cuando se llena.
+ * UTF-8 se codifica a mano; las demás codificaciones usan un
+ * {@link CharsetEncoder}. Los caracteres que no se pueden codificar se
+ * reemplazan por '?', igual que en {@link java.io.PrintStream}.</p>
+ */
+public class EscritorSalida implements Closeable, Flushable {
+
+    /* Tamaño del búfer en bytes. */
+    private static final int TAMANO_BUFER = 1 << 20;
+
+    // canal donde se escriben los bytes
+    private WritableByteChannel canal;
+    // si se debe cerrar el canal al cerrar el escritor
+    private boolean cerrar;
+    // los bytes pendientes de escribir
+    private byte[] bytes;
+    // envoltura del arreglo para escribirlo al canal
+    private ByteBuffer bufer;
+    // número de bytes pendientes
+    private int usados;
+    // si la codificación es UTF-8
+    private boolean utf8;
+    // codificador para las demás codificaciones
+    private CharsetEncoder codificador;
+
+    /**
+     * Construye un escritor sobre un canal.
+     *
+     * @param canal        El canal donde se escriben los bytes.
+     * @param codificacion La codificación de la salida.
+     * @param cerrar       Si se debe cerrar el canal al cerrar el escritor.
+     */
+    public EscritorSalida(WritableByteChannel canal, Charset codificacion, boolean cerrar) {
+        this.canal = canal;
+        this.cerrar = cerrar;
+        bytes = new byte[TAMANO_BUFER];
+        bufer = ByteBuffer.wrap(bytes);
+        utf8 = codificacion.equals(StandardCharsets.UTF_8);
+        if (!utf8)
+            codificador = codificacion.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .replaceWith(new byte[] { '?' });
+    }
+
+    /**
+     * Crea un escritor sobre la salida estándar, con la codificación por
+     * omisión. Cerrar el escritor no cierra la salida estándar.
+     *
+     * @return un escritor sobre la salida estándar.
+     */
+    public static EscritorSalida salidaEstandar() {
+        return new EscritorSalida(new FileOutputStream(FileDescriptor.out).getChannel(),
+                                  Charset.defaultCharset(), false);
+    }
+
+    /**
+     * Nos dice si un error de escritura se debe a que se cerró el otro extremo
+     * de la tubería, como cuando la salida estándar va a <code>head</code>.
+     * No es un error del programa: quien leía ya no quiere más líneas.
+     *
+     * @param e El error.
+     * @return <code>true</code> si el error es una tubería rota,
+     *         <code>false</code> en otro caso.
+     */
+    public static boolean esTuberiaRota(IOException e) {
+        for (Throwable t = e; t != null; t = t.getCause())
+            if (t instanceof IOException && t.getMessage() != null
+                && t.getMessage().contains("Broken pipe"))
+                return true;
+        return false;
+    }
+
+    /**
+     * Crea un escritor sobre un archivo, con la codificación por omisión. Si el
+     * archivo existe se sobreescribe.
+     *
+     * @param archivo El archivo a escribir.
+     * @return un escritor sobre el archivo.
+     * @throws IOException si no se puede abrir el archivo.
+     */
+    public static EscritorSalida archivo(File archivo) throws IOException {
+        return archivo(archivo, Charset.defaultCharset());
+    }
+
+    /**
+     * Crea un escritor sobre un archivo. Si el archivo existe se sobreescribe.
+     *
+     * @param archivo      El archivo a escribir.
+     * @param codificacion La codificación del archivo.
+     * @return un escritor sobre el archivo.
+     * @throws IOException si no se puede abrir el archivo.
+     */
+    public static EscritorSalida archivo(File archivo, Charset codificacion) throws IOException {
+        return new EscritorSalida(new FileOutputStream(archivo).getChannel(), codificacion, true);
+    }
+
+    /**
+     * Crea un escritor sobre un archivo comprimido con {@link Gzip}. Si el
+     * archivo existe se sobreescribe. Cerrar el escritor termina el archivo
+     * comprimido.
+     *
+     * @param archivo      El archivo a escribir.
+     * @param codificacion La codificación del texto antes de comprimirlo.
+     * @param nivel        El nivel de compresión, de
+     *                     {@link java.util.zip.Deflater}.
+     * @return un escritor sobre el archivo.
+     * @throws IOException si no se puede abrir el archivo.
+     */
+    public static EscritorSalida comprimido(File archivo, Charset codificacion, int nivel)
+        throws IOException {
+        FileOutputStream salida = new FileOutputStream(archivo);
+        try {
+            return new EscritorSalida(Channels.newChannel(Gzip.comprime(salida, nivel)),
+                                      codificacion, true);
+        } catch (IOException e) {
+            salida.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Escribe una línea seguida de '\n'.
+     *
+     * @param linea La línea a escribir.
+     * @throws IOException si ocurre un error al escribir.
+     */
+    public void escribeLinea(String linea) throws IOException {
+        if (utf8)
+            escribeUtf8(linea);
+        else
+            escribeCodificada(linea);
+        if (usados == bytes.length)
+            vacia();
+        bytes[usados++] = '\n';
+    }
+
+    /**
+     * Escribe una línea ya codificada, seguida de '\n'. Los bytes se copian
+     * tal cual, sin pasar por la codificación del escritor.
+     *
+     * @param linea    Los bytes de la línea.
+     * @param inicio   La posición del primer byte de la línea.
+     * @param longitud El número de bytes de la línea.
+     * @throws IOException si ocurre un error al escribir.
+     */
+    public void escribeLinea(byte[] linea, int inicio, int longitud) throws IOException {
+        while (longitud > 0) {
+            if (usados == bytes.length)
+                vacia();
+            int n = Math.min(longitud, bytes.length - usados);
+            System.arraycopy(linea, inicio, bytes, usados, n);
+            usados += n;
+            inicio += n;
+            longitud -= n;
+        }
+        if (usados == bytes.length)
+            vacia();
+        bytes[usados++] = '\n';
+    }
+
+    /**
+     * Copia tal cual bytes de un archivo, sin agregar '\n'. Sirve para copiar
+     * líneas completas de otra salida.
+     *
+     * @param origen   El canal del archivo.
+     * @param posicion La posición del primer byte a copiar.
+     * @param longitud El número de bytes a copiar.
+     * @throws IOException si ocurre un error al leer o al escribir.
+     */
+    public void copia(FileChannel origen, long posicion, long longitud) throws IOException {
+        while (longitud > 0) {
+            if (usados == bytes.length)
+                vacia();
+            ByteBuffer destino = ByteBuffer.wrap(bytes, usados,
+                                                 (int) Math.min(longitud, bytes.length - usados));
+            int n = origen.read(destino, posicion);
+            if (n < 0)
+                throw new EOFException("El archivo terminó antes de lo esperado.");
+            usados += n;
+            posicion += n;
+            longitud -= n;
+        }
+    }
+
+    /**
+     * Escribe al canal los bytes pendientes.
+     *
+     * @throws IOException si ocurre un error al escribir.
+     */
+    @Override
+    public void flush() throws IOException {
+        vacia();
+    }
+
+    /**
+     * Escribe los bytes pendientes y, si así se pidió, cierra el canal.
+     *
+     * @throws IOException si ocurre un error al escribir.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            vacia();
+        } finally {
+            if (cerrar)
+                canal.close();
+        }
+    }
+
+    /* Codifica una cadena en UTF-8 dentro del búfer. */
+    private void escribeUtf8(String linea) throws IOException {
+        int n = linea.length();
+        for (int i = 0; i < n; i++) {
+            if (bytes.length - usados < 4)
+                vacia();
+            char c = linea.charAt(i);
+            if (c < 0x80) {
+                bytes[usados++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[usados++] = (byte) (0xC0 | (c >> 6));
+                bytes[usados++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                int p = (Character.isHighSurrogate(c) && i + 1 < n
+                         && Character.isLowSurrogate(linea.charAt(i + 1)))
+                    ? Character.toCodePoint(c, linea.charAt(++i)) : -1;
+                if (p == -1) {
+                    bytes[usados++] = '?';
+                } else {
+                    bytes[usados++] = (byte) (0xF0 | (p >> 18));
+                    bytes[usados++] = (byte) (0x80 | ((p >> 12) & 0x3F));
+                    bytes[usados++] = (byte) (0x80 | ((p >> 6) & 0x3F));
+                    bytes[usados++] = (byte) (0x80 | (p & 0x3F));
+                }
+            } else {
+                bytes[usados++] = (byte) (0xE0 | (c >> 12));
+                bytes[usados++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[usados++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    /* Codifica una cadena con el codificador dentro del búfer. */
+    private void escribeCodificada(String linea) throws IOException {
+        CharBuffer caracteres = CharBuffer.wrap(linea);
+        codificador.reset();
+        while (true) {
+            ((Buffer) bufer).limit(bytes.length).position(usados);
+            CoderResult r = codificador.encode(caracteres, bufer, true);
+            usados = bufer.position();
+            if (!r.isOverflow())
+                break;
+            vacia();
+        }
+        while (true) {
+            ((Buffer) bufer).limit(bytes.length).position(usados);
+            CoderResult r = codificador.flush(bufer);
+            usados = bufer.position();
+            if (!r.isOverflow())
+                break;
+            vacia();
+        }
+    }
+
+    /* Escribe al canal los bytes pendientes. */
+    private void vacia() throws IOException {
+        ((Buffer) bufer).limit(usados).position(0);
+        while (bufer.hasRemaining())
+            canal.write(bufer);
+        usados = 0;
+    }
+}
@@ -0,0 +1,21 @@
+package mx.unam.ciencias.edd.proyecto1;
+
+/**
+ * Excepcion que se lanza cuando una entrada que se debía recibir ordenada no
+ * lo está.
+ */
+public class ExcepcionEntradaDesordenada extends RuntimeException {
+
+    /**
+     * Constructor que no recibe parámetros
+     */
+    public ExcepcionEntradaDesordenada() {}
+
+    /**
+     * Constructor que recibe un mensaje.
+     * @param mensaje Mensaje recibido
+     */
+    public ExcepcionEntradaDesordenada(String mensaje) {
+        super(mensaje);
+    }
+}
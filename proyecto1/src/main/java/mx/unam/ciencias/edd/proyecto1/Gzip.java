@@ -0,0 +1,89 @@
+package mx.unam.ciencias.edd.proyecto1;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <p>Lectura y escritura de archivos comprimidos con gzip.</p>
+ *
+ * <p>Una entrada se reconoce como gzip por sus dos primeros bytes, sin
+ * importar su nombre, así que los archivos comprimidos se pueden pasar tal
+ * cual, incluso por la entrada estándar. Se descomprimen como flujo, con
+ * búferes grandes para que la descompresión no se haga en pedazos
+ * pequeños.</p>
+ */
+public class Gzip {
+
+    /* Primer byte de un archivo gzip. */
+    private static final int MAGICO_1 = 0x1f;
+    /* Segundo byte de un archivo gzip. */
+    private static final int MAGICO_2 = 0x8b;
+    /* Tamaño de los búferes de compresión y descompresión. */
+    static final int TAMANO_BUFER = 1 << 16;
+
+    /* No se crean instancias. */
+    private Gzip() {}
+
+    /**
+     * Nos dice si un archivo está comprimido con gzip.
+     *
+     * @param archivo El archivo a revisar.
+     * @return true si el archivo empieza como un archivo gzip.
+     * @throws IOException si no se puede leer el archivo.
+     */
+    public static boolean esGzip(File archivo) throws IOException {
+        try (InputStream entrada = new FileInputStream(archivo)) {
+            return entrada.read() == MAGICO_1 && entrada.read() == MAGICO_2;
+        }
+    }
+
+    /**
+     * Regresa un flujo que descomprime la entrada si está comprimida con
+     * gzip, o que la lee tal cual si no.
+     *
+     * @param entrada La entrada, comprimida o no.
+     * @return un flujo con los bytes descomprimidos de la entrada.
+     * @throws IOException si la entrada parece gzip pero no lo es.
+     */
+    public static InputStream detecta(InputStream entrada) throws IOException {
+        BufferedInputStream bufer = new BufferedInputStream(entrada, TAMANO_BUFER);
+        bufer.mark(2);
+        boolean gzip = bufer.read() == MAGICO_1 && bufer.read() == MAGICO_2;
+        bufer.reset();
+        return gzip ? new GZIPInputStream(bufer, TAMANO_BUFER) : bufer;
+    }
+
+    /**
+     * Regresa un flujo que descomprime una entrada comprimida con gzip.
+     *
+     * @param entrada La entrada comprimida.
+     * @return un flujo con los bytes descomprimidos.
+     * @throws IOException si la entrada no es gzip.
+     */
+    public static InputStream descomprime(InputStream entrada) throws IOException {
+        return new GZIPInputStream(entrada, TAMANO_BUFER);
+    }
+
+    /**
+     * Regresa un flujo que comprime con gzip lo que se le escribe. Cerrar el
+     * flujo termina el archivo comprimido.
+     *
+     * @param salida La salida donde se escriben los bytes comprimidos.
+     * @param nivel  El nivel de compresión, de {@link java.util.zip.Deflater}.
+     * @return un flujo que comprime hacia la salida.
+     * @throws IOException si ocurre un error al escribir el encabezado.
+     */
+    public static OutputStream comprime(OutputStream salida, int nivel) throws IOException {
+        return new GZIPOutputStream(salida, TAMANO_BUFER) {
+            {
+                def.setLevel(nivel);
+            }
+        };
+    }
+}
@@ -0,0 +1,362 @@
+package mx.unam.ciencias.edd.proyecto1;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import mx.unam.ciencias.edd.Estadisticas;
+
+/**
+ * <p>Índice de orden persistente de un archivo.</p>
+ *
+ * <p>El índice se guarda junto al archivo, con la extensión
+ * {@link #EXTENSION}, y tiene la posición y la longitud en bytes de cada
+ * línea en el orden en que se escriben, junto con el tamaño, la fecha de
+ * modificación y un CRC32 del contenido del archivo, y una firma de las
+ * opciones con las que se ordenó. Si al cargarlo el archivo y la firma
+ * coinciden, las líneas se escriben directamente desde el archivo mapeado a
+ * memoria, sin decodificarlas ni ordenarlas; si no, se ordena el archivo y
+ * el índice se reconstruye.</p>
+ */
+public class IndiceOrden {
+
+    /** Extensión de los índices. */
+    public static final String EXTENSION = ".indice";
+
+    /* Número que identifica a los índices. */
+    private static final int MAGICO = 0x53525449;
+    /* Versión del formato de los índices. */
+    private static final int VERSION = 1;
+    /* Tamaño de las ventanas con las que se mapea el archivo. */
+    private static final long VENTANA = 1L << 30;
+    /* Tamaño de los búferes para leer y escribir el índice. */
+    private static final int TAMANO_BUFER = 1 << 16;
+    /* Bytes del encabezado del índice sin contar la firma: número mágico,
+     * versión, longitud de la firma, tamaño, fecha, CRC y número de
+     * líneas. */
+    private static final int ENCABEZADO = 4 + 4 + 2 + 8 + 8 + 8 + 4;
+    /* Bytes de cada línea en el índice: su posición y su longitud. */
+    private static final int BYTES_LINEA = 8 + 4;
+
+    // el archivo indexado
+    private File archivo;
+    // el índice del archivo
+    private File indice;
+    // firma de las opciones con las que se ordena
+    private String firma;
+    // codificación del archivo
+    private Charset codificacion;
+    // tamaño del archivo en bytes
+    private long tamano;
+    // fecha de modificación del archivo
+    private long modificacion;
+    // CRC32 del contenido del archivo
+    private long crc;
+    // posición de cada línea en el orden en que se escriben
+    private long[] posiciones;
+    // longitud en bytes de cada línea en el orden en que se escriben
+    private int[] longitudes;
+    // número de líneas del índice
+    private int lineas;
+    // si el índice se cargó de disco en lugar de construirse
+    private boolean cargado;
+    // ventanas mapeadas del archivo, o null si aún no se mapea
+    private MappedByteBuffer[] ventanas;
+
+    /**
+     * Crea el índice de un archivo, vacío hasta que se carga o se construye.
+     *
+     * @param archivo      El archivo indexado; debe ser un archivo regular.
+     * @param firma        La firma de las opciones con las que se ordena.
+     * @param codificacion La codificación del archivo; debe poderse mapear,
+     *                     vea {@link LectorMapeado#soporta}.
+     */
+    public IndiceOrden(File archivo, String firma, Charset codificacion) {
+        this.archivo = archivo;
+        this.firma = firma;
+        this.codificacion = codificacion;
+        indice = new File(archivo.getPath() + EXTENSION);
+    }
+
+    /**
+     * Carga el índice guardado junto al archivo si es del archivo actual y
+     * de la misma firma.
+     *
+     * @return true si se cargó el índice, false si no existe, está dañado o ya
+     *         no sirve.
+     * @throws IOException si ocurre un error al leer el archivo.
+     */
+    public boolean carga() throws IOException {
+        tamano = archivo.length();
+        modificacion = archivo.lastModified();
+        if (!indice.isFile())
+            return false;
+        try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(
+                 new FileInputStream(indice), TAMANO_BUFER))) {
+            if (entrada.readInt() != MAGICO || entrada.readInt() != VERSION
+                || !entrada.readUTF().equals(firma)
+                || entrada.readLong() != tamano || entrada.readLong() != modificacion)
+                return false;
+            crc = entrada.readLong();
+            int n = entrada.readInt();
+            // un número de líneas dañado no debe reservar más de lo que cabe
+            // en el índice
+            long disponibles = (indice.length() - ENCABEZADO
+                                - firma.getBytes(StandardCharsets.UTF_8).length) / BYTES_LINEA;
+            if (n < 0 || n > disponibles)
+                return false;
+            posiciones = new long[n];
+            longitudes = new int[n];
+            for (int i = 0; i < n; i++) {
+                posiciones[i] = entrada.readLong();
+                longitudes[i] = entrada.readInt();
+                if (posiciones[i] < 0 || longitudes[i] < 0
+                    || posiciones[i] + longitudes[i] > tamano)
+                    return false;
+            }
+            lineas = n;
+        } catch (IOException e) {
+            // un índice dañado o a medias se reconstruye
+            return false;
+        }
+        // el tamaño y la fecha pueden coincidir aunque el contenido cambie
+        if (crc != calculaCrc()) {
+            lineas = 0;
+            return false;
+        }
+        cargado = true;
+        return true;
+    }
+
+    /**
+     * Ordena las líneas del archivo en el archivo recibido, que debe estar
+     * vacío y ya configurado, y construye el índice con su orden. El archivo
+     * queda ordenado para que se pueda escribir. Equivale a {@link #lee}
+     * seguido de {@link #ordena}.
+     *
+     * @param destino El archivo donde se ordenan las líneas.
+     * @param reversa Si se ordena en reversa.
+     * @throws IOException si ocurre un error al leer el archivo.
+     */
+    public void construye(Archivo destino, boolean reversa) throws IOException {
+        lee(destino);
+        ordena(destino, reversa);
+    }
+
+    /**
+     * Lee las líneas del archivo en el archivo recibido, que debe estar vacío
+     * y ya configurado, y guarda la posición de cada una en el orden en que
+     * se leen. El índice sólo sirve después de {@link #ordena}.
+     *
+     * @param destino El archivo donde se agregan las líneas.
+     * @throws IOException si ocurre un error al leer el archivo.
+     */
+    public void lee(Archivo destino) throws IOException {
+        tamano = archivo.length();
+        modificacion = archivo.lastModified();
+        crc = calculaCrc();
+        cargado = false;
+        posiciones = new long[1024];
+        longitudes = new int[1024];
+        int n = 0;
+        try (LectorMapeado lector = new LectorMapeado(archivo, codificacion)) {
+            String linea;
+            while ((linea = lector.leeLinea()) != null) {
+                if (n == posiciones.length) {
+                    long[] nuevas = new long[2 * n];
+                    int[] nuevasLongitudes = new int[2 * n];
+                    System.arraycopy(posiciones, 0, nuevas, 0, n);
+                    System.arraycopy(longitudes, 0, nuevasLongitudes, 0, n);
+                    posiciones = nuevas;
+                    longitudes = nuevasLongitudes;
+                }
+                posiciones[n] = lector.getPosicionLinea();
+                longitudes[n++] = lector.getLongitudLinea();
+                destino.agregaLinea(linea);
+            }
+        }
+        lineas = 0;
+    }
+
+    /**
+     * Ordena las líneas que {@link #lee} agregó al archivo y construye el
+     * índice con su orden. El archivo queda ordenado para que se pueda
+     * escribir.
+     *
+     * @param destino El archivo donde se leyeron las líneas.
+     * @param reversa Si se ordena en reversa.
+     */
+    public void ordena(Archivo destino, boolean reversa) {
+        if (reversa)
+            destino.ordenaReversa();
+        else
+            destino.ordena();
+        long[] todas = posiciones;
+        int[] todasLongitudes = longitudes;
+        lineas = destino.getNumeroLineas();
+        posiciones = new long[lineas];
+        longitudes = new int[lineas];
+        for (int i = 0; i < lineas; i++) {
+            int j = destino.indice(i);
+            posiciones[i] = todas[j];
+            longitudes[i] = todasLongitudes[j];
+        }
+    }
+
+    /**
+     * Guarda el índice junto al archivo. Se escribe primero en un archivo
+     * temporal que luego se renombra, así que un índice a medias nunca
+     * reemplaza a uno completo.
+     *
+     * @throws IOException si no se puede escribir el índice.
+     */
+    public void guarda() throws IOException {
+        File temporal = new File(indice.getPath() + ".tmp");
+        try (DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(
+                 new FileOutputStream(temporal), TAMANO_BUFER))) {
+            salida.writeInt(MAGICO);
+            salida.writeInt(VERSION);
+            salida.writeUTF(firma);
+            salida.writeLong(tamano);
+            salida.writeLong(modificacion);
+            salida.writeLong(crc);
+            salida.writeInt(lineas);
+            for (int i = 0; i < lineas; i++) {
+                salida.writeLong(posiciones[i]);
+                salida.writeInt(longitudes[i]);
+            }
+        } catch (IOException e) {
+            temporal.delete();
+            throw e;
+        }
+        indice.delete();
+        if (!temporal.renameTo(indice)) {
+            temporal.delete();
+            throw new IOException("No se pudo escribir " + indice);
+        }
+    }
+
+    /**
+     * Regresa el número de líneas del índice.
+     *
+     * @return el número de líneas que se escriben del archivo.
+     */
+    public int getNumeroLineas() {
+        return lineas;
+    }
+
+    /**
+     * Escribe las líneas en el orden del índice, copiando sus bytes del
+     * archivo mapeado. No cierra el escritor. Si el índice se cargó de disco
+     * y las {@link Estadisticas} están prendidas se cuentan las líneas
+     * escritas, que no pasaron por un {@link Archivo}.
+     *
+     * @param salida Escritor donde se escriben las líneas.
+     * @throws IOException si ocurre un error I/O.
+     */
+    public void escribe(EscritorSalida salida) throws IOException {
+        boolean cuenta = cargado && Estadisticas.activas();
+        if (cuenta)
+            Estadisticas.cuentaLineas(lineas);
+        try {
+            escribeLineas(salida);
+        } finally {
+            if (cuenta)
+                Estadisticas.cuentaLineas(-lineas);
+        }
+    }
+
+    /* Copia las líneas en el orden del índice al escritor. */
+    private void escribeLineas(EscritorSalida salida) throws IOException {
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < lineas; i++) {
+            if (longitudes[i] > bytes.length)
+                bytes = new byte[Math.max(longitudes[i], 2 * bytes.length)];
+            copia(posiciones[i], bytes, longitudes[i]);
+            salida.escribeLinea(bytes, 0, longitudes[i]);
+        }
+    }
+
+    /**
+     * Regresa un lector de las líneas en el orden del índice, para mezclarlas
+     * con las de otros archivos.
+     *
+     * @return un lector de las líneas en orden.
+     */
+    public LectorLineas lector() {
+        return new LectorLineas() {
+            private int siguiente;
+            private byte[] bytes = new byte[256];
+
+            @Override
+            public String leeLinea() throws IOException {
+                if (siguiente == lineas)
+                    return null;
+                int n = longitudes[siguiente];
+                if (n > bytes.length)
+                    bytes = new byte[Math.max(n, 2 * bytes.length)];
+                copia(posiciones[siguiente++], bytes, n);
+                return new String(bytes, 0, n, codificacion);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /* Calcula el CRC32 del contenido del archivo. */
+    private long calculaCrc() throws IOException {
+        mapea();
+        CRC32 suma = new CRC32();
+        for (MappedByteBuffer ventana : ventanas) {
+            ((Buffer) ventana).position(0);
+            suma.update(ventana);
+        }
+        return suma.getValue();
+    }
+
+    /* Copia los bytes del archivo que empiezan en una posición; pueden
+     * cruzar de una ventana a la siguiente. */
+    private void copia(long posicion, byte[] destino, int longitud) throws IOException {
+        mapea();
+        int copiados = 0;
+        while (copiados < longitud) {
+            MappedByteBuffer ventana = ventanas[(int) (posicion / VENTANA)];
+            int inicio = (int) (posicion % VENTANA);
+            int n = Math.min(longitud - copiados, ventana.limit() - inicio);
+            ((Buffer) ventana).position(inicio);
+            ventana.get(destino, copiados, n);
+            copiados += n;
+            posicion += n;
+        }
+    }
+
+    /* Mapea el archivo en ventanas si aún no se mapea. */
+    private void mapea() throws IOException {
+        if (ventanas != null)
+            return;
+        try (RandomAccessFile acceso = new RandomAccessFile(archivo, "r")) {
+            FileChannel canal = acceso.getChannel();
+            long n = canal.size();
+            MappedByteBuffer[] mapeadas = new MappedByteBuffer[(int) ((n + VENTANA - 1) / VENTANA)];
+            for (int i = 0; i < mapeadas.length; i++) {
+                long desde = i * VENTANA;
+                mapeadas[i] = canal.map(FileChannel.MapMode.READ_ONLY, desde,
+                                        Math.min(VENTANA, n - desde));
+            }
+            ventanas = mapeadas;
+        }
+    }
+}
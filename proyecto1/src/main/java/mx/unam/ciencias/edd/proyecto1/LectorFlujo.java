@@ -0,0 +1,33 @@
+package mx.unam.ciencias.edd.proyecto1;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Lector de líneas sobre un {@link BufferedReader}. Se usa para la entrada
+ * estándar y para los archivos que no se pueden mapear a memoria.
+ */
+public class LectorFlujo implements LectorLineas {
+
+    // el búfer del que se leen las líneas
+    private BufferedReader bufer;
+
+    /**
+     * Construye un lector sobre un búfer.
+     *
+     * @param bufer El búfer del que se leen las líneas.
+     */
+    public LectorFlujo(BufferedReader bufer) {
+        this.bufer = bufer;
+    }
+
+    @Override
+    public String leeLinea() throws IOException {
+        return bufer.readLine();
+    }
+
+    @Override
+    public void close() throws IOException {
+        bufer.close();
+    }
+}
@@ -0,0 +1,20 @@
+package mx.unam.ciencias.edd.proyecto1;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Interfaz para fuentes de líneas de texto. Las líneas terminan como en
+ * {@link java.io.BufferedReader#readLine}: con '\n', '\r' o "\r\n", y el
+ * terminador no forma parte de la línea.
+ */
+public interface LectorLineas extends Closeable {
+
+    /**
+     * Lee la siguiente línea.
+     * @return la siguiente línea sin su terminador, o <code>null</code> si ya
+     *         no hay más líneas.
+     * @throws IOException si ocurre un error al leer.
+     */
+    public String leeLinea() throws IOException;
+}
@@ -0,0 +1,182 @@
+package mx.unam.ciencias.edd.proyecto1;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>Lector de líneas que mapea un archivo regular a memoria.</p>
+ *
+ * <p>Los saltos de línea se buscan directamente en los bytes mapeados y cada
+ * línea se decodifica una sola vez, sin pasar por los búferes de caracteres de
+ * un {@link java.io.BufferedReader}. Los archivos se mapean en ventanas de a lo
+ * más 1 GB, así que pueden medir más de 2 GB; cuando una línea queda partida
+ * entre dos ventanas, la siguiente ventana empieza en esa línea.</p>
+ *
+ * <p>Sólo sirve para codificaciones en las que los bytes de '\n' y '\r' no
+ * aparecen dentro de otros caracteres; vea {@link #soporta}.</p>
+ */
+public class LectorMapeado implements LectorLineas {
+
+    /* Tamaño máximo por omisión de cada ventana mapeada. */
+    private static final long VENTANA = 1L << 30;
+
+    // tamaño máximo de cada ventana mapeada
+    private long tamanoVentana;
+    // el archivo mapeado
+    private RandomAccessFile archivo;
+    // el canal del archivo
+    private FileChannel canal;
+    // tamaño del archivo en bytes
+    private long tamano;
+    // posición en el archivo donde empieza la ventana actual
+    private long base;
+    // la ventana actual
+    private MappedByteBuffer ventana;
+    // posición dentro de la ventana del inicio de la siguiente línea
+    private int posicion;
+    // codificación del archivo
+    private Charset codificacion;
+    // arreglo donde se copian los bytes de una línea para decodificarla
+    private byte[] bytes;
+    // posición en el archivo de la última línea leída
+    private long posicionLinea;
+    // longitud en bytes de la última línea leída, sin su terminador
+    private int longitudLinea;
+
+    /**
+     * Abre y mapea un archivo.
+     *
+     * @param ruta         El archivo a leer; debe ser un archivo regular.
+     * @param codificacion La codificación del archivo.
+     * @throws IOException si no se puede abrir o mapear el archivo.
+     */
+    public LectorMapeado(File ruta, Charset codificacion) throws IOException {
+        this(ruta, codificacion, VENTANA);
+    }
+
+    /**
+     * Abre y mapea un archivo en ventanas del tamaño recibido. Ventanas
+     * pequeñas sirven para probar las líneas que cruzan de una ventana a la
+     * siguiente.
+     *
+     * @param ruta          El archivo a leer; debe ser un archivo regular.
+     * @param codificacion  La codificación del archivo.
+     * @param tamanoVentana El tamaño máximo de cada ventana, en bytes; ninguna
+     *                      línea con su terminador puede medir más.
+     * @throws IOException si no se puede abrir o mapear el archivo.
+     */
+    LectorMapeado(File ruta, Charset codificacion, long tamanoVentana) throws IOException {
+        this.codificacion = codificacion;
+        this.tamanoVentana = tamanoVentana;
+        archivo = new RandomAccessFile(ruta, "r");
+        canal = archivo.getChannel();
+        tamano = canal.size();
+        bytes = new byte[256];
+        mapea(0);
+    }
+
+    /**
+     * Nos dice si un archivo codificado con la codificación recibida se puede
+     * leer mapeándolo.
+     *
+     * @param codificacion La codificación.
+     * @return <code>true</code> si la codificación es compatible con ASCII
+     *         byte por byte, <code>false</code> en otro caso.
+     */
+    public static boolean soporta(Charset codificacion) {
+        String nombre = codificacion.name();
+        return codificacion.equals(StandardCharsets.UTF_8)
+            || codificacion.equals(StandardCharsets.US_ASCII)
+            || nombre.startsWith("ISO-8859-")
+            || nombre.startsWith("windows-125");
+    }
+
+    @Override
+    public String leeLinea() throws IOException {
+        while (true) {
+            int limite = ventana.limit();
+            boolean ultima = base + limite >= tamano;
+            if (posicion >= limite) {
+                if (ultima)
+                    return null;
+                mapea(base + posicion);
+                continue;
+            }
+            int i = posicion;
+            while (i < limite) {
+                byte b = ventana.get(i);
+                if (b == '\n' || b == '\r')
+                    break;
+                i++;
+            }
+            /* Si la línea (o un "\r\n") cruza el final de la ventana, se
+             * vuelve a mapear a partir del inicio de la línea. */
+            if (!ultima && (i == limite || (i == limite - 1 && ventana.get(i) == '\r'))) {
+                if (posicion == 0)
+                    throw new IOException("Hay una línea de más de " + tamanoVentana + " bytes.");
+                mapea(base + posicion);
+                continue;
+            }
+            String linea = decodifica(posicion, i);
+            posicionLinea = base + posicion;
+            longitudLinea = i - posicion;
+            if (i < limite) {
+                if (ventana.get(i) == '\r' && i + 1 < limite && ventana.get(i + 1) == '\n')
+                    i++;
+                i++;
+            }
+            posicion = i;
+            return linea;
+        }
+    }
+
+    /**
+     * Regresa la posición en bytes, desde el inicio del archivo, de la última
+     * línea leída.
+     *
+     * @return la posición de la última línea leída.
+     */
+    public long getPosicionLinea() {
+        return posicionLinea;
+    }
+
+    /**
+     * Regresa la longitud en bytes de la última línea leída, sin su
+     * terminador.
+     *
+     * @return la longitud de la última línea leída.
+     */
+    public int getLongitudLinea() {
+        return longitudLinea;
+    }
+
+    @Override
+    public void close() throws IOException {
+        ventana = null;
+        archivo.close();
+    }
+
+    /* Mapea la ventana que empieza en la posición recibida del archivo. */
+    private void mapea(long desde) throws IOException {
+        base = desde;
+        ventana = canal.map(FileChannel.MapMode.READ_ONLY, desde,
+                            Math.min(tamanoVentana, tamano - desde));
+        posicion = 0;
+    }
+
+    /* Decodifica los bytes de la ventana entre inicio y fin. */
+    private String decodifica(int inicio, int fin) {
+        int n = fin - inicio;
+        if (n > bytes.length)
+            bytes = new byte[Math.max(n, 2 * bytes.length)];
+        ((Buffer) ventana).position(inicio);
+        ventana.get(bytes, 0, n);
+        return new String(bytes, 0, n, codificacion);
+    }
+}
@@ -0,0 +1,108 @@
+package mx.unam.ciencias.edd.proyecto1;
+
+import java.text.CollationKey;
+
+/**
+ * Una línea de un archivo junto con su llave de ordenamiento. Al crear la línea
+ * se revisa si es ASCII; dos líneas ASCII se comparan directamente con
+ * {@link TablaPesos}. Las demás usan su llave del comparador, que se calcula
+ * una sola vez y sólo cuando hace falta. Si se ordena por {@link Campos}, la
+ * línea guarda la llave del comparador de sus campos, o sus números si los
+ * campos son numéricos.
+ */
+class Linea implements Comparable<Linea> {
+
+    // el texto original de la línea, es el que se imprime
+    private String texto;
+    // si la línea se puede comparar con la tabla de pesos ASCII
+    private boolean ascii;
+    // la llave de ordenamiento de la línea normalizada, o null si aún no se
+    // ha necesitado; es volatile porque se calcula al compararse y la línea
+    // se puede comparar desde otro hilo
+    private volatile CollationKey llave;
+    // la llave de los campos de la línea, o null si se compara toda la línea
+    // o por números
+    private byte[] llaveCampos;
+    // los números de los campos de la línea, o null si no son numéricos
+    private LlavesNumericas numeros;
+
+    /**
+     * Construye una línea a partir de su texto. Si la línea no es ASCII calcula
+     * su llave.
+     *
+     * @param texto El texto de la línea.
+     */
+    public Linea(String texto) {
+        this(texto, null);
+    }
+
+    /**
+     * Construye una línea que se compara por sus campos y calcula su llave.
+     * Sólo se puede comparar con líneas de los mismos campos.
+     *
+     * @param texto  El texto de la línea.
+     * @param campos Los campos por los que se compara, o null para comparar
+     *               toda la línea.
+     */
+    public Linea(String texto, Campos campos) {
+        this.texto = texto;
+        if (campos != null && campos.esNumerico()) {
+            numeros = campos.llavesNumericas(1);
+            campos.asignaNumeros(numeros, 0, texto);
+        } else if (campos != null) {
+            llaveCampos = campos.llaveColador(texto);
+        } else if (!(ascii = TablaPesos.esAscii(texto))) {
+            llave = Archivo.llave(texto);
+        }
+    }
+
+    /**
+     * Regresa el texto original de la línea.
+     *
+     * @return el texto de la línea.
+     */
+    public String getTexto() {
+        return texto;
+    }
+
+    /**
+     * Nos dice si la línea se compara con la tabla de pesos ASCII; nunca
+     * cuando se compara por campos.
+     *
+     * @return <code>true</code> si la línea es ASCII y la tabla es válida,
+     *         <code>false</code> en otro caso.
+     */
+    boolean esAscii() {
+        return ascii;
+    }
+
+    /**
+     * Compara dos líneas usando sus llaves. El resultado es el mismo que el de
+     * {@link Archivo#compara} sobre sus textos, o el de {@link Campos#compara}
+     * si se comparan por campos.
+     *
+     * @param linea la línea con la que se compara.
+     * @return un número menor que cero si esta línea va antes, 0 si son iguales
+     *         y un número mayor que cero si va después.
+     */
+    @Override
+    public int compareTo(Linea linea) {
+        if (numeros != null)
+            return LlavesNumericas.compara(numeros, 0, linea.numeros, 0);
+        if (llaveCampos != null)
+            return LlaveBytes.compara(llaveCampos, linea.llaveCampos);
+        if (ascii && linea.ascii)
+            return TablaPesos.compara(texto, linea.texto);
+        return getLlave().compareTo(linea.getLlave());
+    }
+
+    /* Regresa la llave de la línea y la calcula si aún no se tiene. Si dos
+     * hilos la calculan a la vez obtienen llaves iguales, y la que queda se
+     * publica completa. */
+    private CollationKey getLlave() {
+        CollationKey k = llave;
+        if (k == null)
+            llave = k = Archivo.llave(texto);
+        return k;
+    }
+}
@@ -0,0 +1,176 @@
+package mx.unam.ciencias.edd.proyecto1;
+
+import java.text.RuleBasedCollator;
+
+/**
+ * <p>Llaves de ordenamiento compactas de un byte por caracter.</p>
+ *
+ * <p>Las reglas de ordenamiento son las del README: se ignora todo lo que no
+ * sea letra, dígito o '+', no importan las mayúsculas, las vocales acentuadas
+ * cuentan como vocales y la ñ como n. Para los caracteres de Latin-1 esas
+ * reglas se reducen a una tabla que manda cada caracter a uno o más bytes, así
+ * que la llave de una línea se construye recorriéndola sin normalizarla ni
+ * crear cadenas intermedias, y dos llaves se comparan byte por byte sin
+ * signo.</p>
+ *
+ * <p>La tabla se calcula a partir del comparador de {@link Archivo}: los bytes
+ * son el rango de cada peso primario entre todos los pesos de Latin-1, así que
+ * comparar llaves da el mismo signo que {@link Archivo#compara}. Las líneas con
+ * caracteres fuera de Latin-1 no tienen llave; tampoco ninguna línea si el
+ * locale tiene contracciones en Latin-1 o más de 255 pesos distintos.</p>
+ */
+public class LlaveBytes {
+
+    /* Tabla de caracteres a bytes; se calcula la primera vez que se usa. */
+    private static class Tabla {
+        /* Bytes de cada caracter de Latin-1: null si el caracter no se puede
+         * representar, vacío si se ignora. */
+        private static final byte[][] BYTES = new byte[256][];
+        /* Si la tabla reproduce al comparador. */
+        private static final boolean VALIDA = calculaTabla();
+    }
+
+    /* Máximo de pesos primarios en los que se expande un caracter. */
+    private static final int MAXIMO_EXPANSION = 3;
+
+    /* Clase sin instancias. */
+    private LlaveBytes() {}
+
+    /**
+     * Construye la llave de una cadena.
+     *
+     * @param cadena la cadena.
+     * @return la llave de la cadena, o <code>null</code> si la cadena tiene
+     *         caracteres que no se pueden representar.
+     */
+    public static byte[] llave(String cadena) {
+        if (!Tabla.VALIDA)
+            return null;
+        byte[][] tabla = Tabla.BYTES;
+        int n = 0;
+        for (int i = 0; i < cadena.length(); i++) {
+            char c = cadena.charAt(i);
+            if (c > 0xFF || tabla[c] == null)
+                return null;
+            n += tabla[c].length;
+        }
+        byte[] llave = new byte[n];
+        int j = 0;
+        for (int i = 0; i < cadena.length(); i++) {
+            byte[] b = tabla[cadena.charAt(i)];
+            for (int k = 0; k < b.length; k++)
+                llave[j++] = b[k];
+        }
+        return llave;
+    }
+
+    /**
+     * Compara dos llaves byte por byte, sin signo. Si una llave es prefijo de
+     * la otra, va antes.
+     *
+     * @param a primera llave.
+     * @param b segunda llave.
+     * @return un número menor que cero si a&lt;b, 0 si a=b y un número mayor
+     *         que cero si a&gt;b.
+     */
+    public static int compara(byte[] a, byte[] b) {
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            int d = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (d != 0)
+                return d;
+        }
+        return a.length - b.length;
+    }
+
+    /* Llena la tabla y verifica que reproduzca al comparador. */
+    private static boolean calculaTabla() {
+        if (!(Archivo.COMPARADOR instanceof RuleBasedCollator))
+            return false;
+        RuleBasedCollator comparador = (RuleBasedCollator) Archivo.COMPARADOR;
+        int[][] pesos = new int[256][];
+        int[] primarios = new int[MAXIMO_EXPANSION + 1];
+        int[] distintos = new int[256 * MAXIMO_EXPANSION];
+        int nd = 0;
+        for (char c = 0; c < 256; c++) {
+            if (!Archivo.seConserva(c)) {
+                pesos[c] = new int[0];
+                continue;
+            }
+            int n = TablaPesos.primarios(comparador, String.valueOf(c), primarios);
+            if (n > MAXIMO_EXPANSION)
+                continue;
+            pesos[c] = new int[n];
+            for (int i = 0; i < n; i++) {
+                pesos[c][i] = primarios[i];
+                distintos[nd++] = primarios[i];
+            }
+        }
+        /* Ordena los pesos distintos; su posición es su byte. */
+        nd = ordenaSinRepetidos(distintos, nd);
+        if (nd > 255)
+            return false;
+        for (char c = 0; c < 256; c++) {
+            if (pesos[c] == null)
+                continue;
+            Tabla.BYTES[c] = new byte[pesos[c].length];
+            for (int i = 0; i < pesos[c].length; i++)
+                Tabla.BYTES[c][i] = (byte) (1 + busca(distintos, nd, pesos[c][i]));
+        }
+        /* Busca contracciones entre parejas de caracteres. */
+        int[] pareja = new int[2 * MAXIMO_EXPANSION + 1];
+        for (char c = 0; c < 256; c++) {
+            if (pesos[c] == null || pesos[c].length == 0)
+                continue;
+            for (char d = 0; d < 256; d++) {
+                if (pesos[d] == null || pesos[d].length == 0)
+                    continue;
+                int n = TablaPesos.primarios(comparador, "" + c + d, pareja);
+                if (n != pesos[c].length + pesos[d].length)
+                    return false;
+                for (int i = 0; i < n; i++) {
+                    int esperado = (i < pesos[c].length)
+                        ? pesos[c][i] : pesos[d][i - pesos[c].length];
+                    if (pareja[i] != esperado)
+                        return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /* Ordena los primeros n enteros del arreglo por inserción, quita los
+     * repetidos y regresa cuántos quedan. */
+    private static int ordenaSinRepetidos(int[] a, int n) {
+        for (int i = 1; i < n; i++) {
+            int x = a[i];
+            int j = i - 1;
+            while (j >= 0 && a[j] > x) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = x;
+        }
+        int m = 0;
+        for (int i = 0; i < n; i++)
+            if (m == 0 || a[m - 1] != a[i])
+                a[m++] = a[i];
+        return m;
+    }
+
+    /* Búsqueda binaria de x entre los primeros n enteros ordenados. */
+    private static int busca(int[] a, int n, int x) {
+        int i = 0;
+        int j = n - 1;
+        while (i <= j) {
+            int m = (i + j) >>> 1;
+            if (a[m] < x)
+                i = m + 1;
+            else if (a[m] > x)
+                j = m - 1;
+            else
+                return m;
+        }
+        return -1;
+    }
+}
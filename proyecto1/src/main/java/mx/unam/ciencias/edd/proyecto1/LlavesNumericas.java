@@ -0,0 +1,196 @@
+package mx.unam.ciencias.edd.proyecto1;
+
+/**
+ * <p>Llaves numéricas de las líneas, para ordenar con <code>-n</code>.</p>
+ *
+ * <p>El número de un texto es el que aparece al principio, después de los
+ * blancos: un signo opcional, dígitos y opcionalmente un punto decimal y más
+ * dígitos. Un texto sin número vale cero. Cada número se interpreta una sola
+ * vez y se guarda en un arreglo primitivo paralelo a las líneas, con tantos
+ * números por línea como llaves: mientras todos sean enteros que caben en un
+ * <code>long</code> el arreglo es de <code>long</code>; en cuanto alguno no
+ * cabe, todos pasan a un arreglo de <code>double</code>. Las comparaciones
+ * sólo leen los arreglos, sin crear objetos.</p>
+ */
+public class LlavesNumericas implements OrdenamientoIndices.Comparador {
+
+    /* Valor de entero() para los números que no son un long. */
+    private static final long NO_ENTERO = Long.MIN_VALUE;
+
+    // números por línea
+    private int llaves;
+    // los números como enteros, o null si alguno no es entero
+    private long[] enteros;
+    // los números como reales, o null si todos son enteros
+    private double[] reales;
+
+    /**
+     * Crea llaves numéricas en cero.
+     *
+     * @param lineas El número de líneas.
+     * @param llaves El número de llaves de cada línea.
+     */
+    LlavesNumericas(int lineas, int llaves) {
+        this.llaves = llaves;
+        enteros = new long[lineas * llaves];
+    }
+
+    /**
+     * Interpreta el número de una llave de una línea y lo guarda.
+     *
+     * @param linea El índice de la línea.
+     * @param llave El índice de la llave en la línea.
+     * @param texto El texto de la llave.
+     */
+    void asigna(int linea, int llave, String texto) {
+        int i = linea * llaves + llave;
+        if (enteros != null) {
+            long n = entero(texto);
+            if (n != NO_ENTERO) {
+                enteros[i] = n;
+                return;
+            }
+            reales = new double[enteros.length];
+            for (int j = 0; j < enteros.length; j++)
+                reales[j] = enteros[j];
+            enteros = null;
+        }
+        reales[i] = real(texto);
+    }
+
+    @Override
+    public int compara(int a, int b) {
+        int i = a * llaves;
+        int j = b * llaves;
+        for (int k = 0; k < llaves; k++, i++, j++) {
+            int c = (enteros != null)
+                ? Long.compare(enteros[i], enteros[j])
+                : Double.compare(reales[i], reales[j]);
+            if (c != 0)
+                return c;
+        }
+        return 0;
+    }
+
+    /**
+     * Compara las llaves de la línea a de unas llaves con las de la línea b
+     * de otras, que deben tener el mismo número de llaves.
+     *
+     * @param x Las primeras llaves.
+     * @param a El índice de la línea en las primeras llaves.
+     * @param y Las segundas llaves.
+     * @param b El índice de la línea en las segundas llaves.
+     * @return un número menor que cero si la primera va antes, 0 si son
+     *         iguales y un número mayor que cero si va después.
+     */
+    static int compara(LlavesNumericas x, int a, LlavesNumericas y, int b) {
+        int i = a * x.llaves;
+        int j = b * y.llaves;
+        for (int k = 0; k < x.llaves; k++, i++, j++) {
+            int c;
+            if (x.enteros != null && y.enteros != null)
+                c = Long.compare(x.enteros[i], y.enteros[j]);
+            else if (x.enteros != null)
+                c = compara(x.enteros[i], y.reales[j]);
+            else if (y.enteros != null)
+                c = -compara(y.enteros[j], x.reales[i]);
+            else
+                c = Double.compare(x.reales[i], y.reales[j]);
+            if (c != 0)
+                return c;
+        }
+        return 0;
+    }
+
+    /**
+     * Compara los números al principio de dos textos.
+     *
+     * @param a el primer texto.
+     * @param b el segundo texto.
+     * @return un número menor que cero si el número de a es menor, 0 si son
+     *         iguales y un número mayor que cero si es mayor.
+     */
+    public static int compara(String a, String b) {
+        long x = entero(a);
+        long y = entero(b);
+        if (x != NO_ENTERO && y != NO_ENTERO)
+            return Long.compare(x, y);
+        if (x != NO_ENTERO)
+            return compara(x, real(b));
+        if (y != NO_ENTERO)
+            return -compara(y, real(a));
+        return Double.compare(real(a), real(b));
+    }
+
+    /* Compara exactamente un entero con un real, sin pasar el entero a
+     * real. */
+    private static int compara(long x, double d) {
+        if (d < -0x1p63)
+            return 1;
+        if (d >= 0x1p63)
+            return -1;
+        long t = (long) d;
+        if (x != t)
+            return x < t ? -1 : 1;
+        double fraccion = d - t;
+        return fraccion > 0 ? -1 : (fraccion < 0 ? 1 : 0);
+    }
+
+    /* Regresa el número al principio del texto si es un entero que cabe en
+     * un long, o NO_ENTERO si no; los decimales en cero no cuentan. */
+    private static long entero(String texto) {
+        int n = texto.length();
+        int i = saltaBlancos(texto);
+        boolean negativo = false;
+        if (i < n && (texto.charAt(i) == '-' || texto.charAt(i) == '+'))
+            negativo = texto.charAt(i++) == '-';
+        // se acumula en negativo, que tiene un valor más
+        long valor = 0;
+        for (; i < n && esDigito(texto.charAt(i)); i++) {
+            int d = texto.charAt(i) - '0';
+            if (valor < (Long.MIN_VALUE + d) / 10)
+                return NO_ENTERO;
+            valor = valor * 10 - d;
+        }
+        if (i < n && texto.charAt(i) == '.')
+            for (i++; i < n && esDigito(texto.charAt(i)); i++)
+                if (texto.charAt(i) != '0')
+                    return NO_ENTERO;
+        if (negativo)
+            return valor;
+        return valor == Long.MIN_VALUE ? NO_ENTERO : -valor;
+    }
+
+    /* Regresa el número al principio del texto como real. */
+    private static double real(String texto) {
+        int n = texto.length();
+        int inicio = saltaBlancos(texto);
+        int i = inicio;
+        if (i < n && (texto.charAt(i) == '-' || texto.charAt(i) == '+'))
+            i++;
+        int digitos = 0;
+        for (; i < n && esDigito(texto.charAt(i)); i++)
+            digitos++;
+        if (i < n && texto.charAt(i) == '.')
+            for (i++; i < n && esDigito(texto.charAt(i)); i++)
+                digitos++;
+        if (digitos == 0)
+            return 0;
+        double valor = Double.parseDouble(texto.substring(inicio, i));
+        // -0 y 0 son iguales
+        return valor == 0 ? 0 : valor;
+    }
+
+    /* Regresa la posición del primer caracter que no es blanco. */
+    private static int saltaBlancos(String texto) {
+        int i = 0;
+        while (i < texto.length() && Character.isWhitespace(texto.charAt(i)))
+            i++;
+        return i;
+    }
+
+    /* Nos dice si un caracter es un dígito del 0 al 9. */
+    private static boolean esDigito(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
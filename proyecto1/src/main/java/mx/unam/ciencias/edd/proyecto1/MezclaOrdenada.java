@@ -0,0 +1,193 @@
+package mx.unam.ciencias.edd.proyecto1;
+
+import java.io.IOException;
+import mx.unam.ciencias.edd.Estadisticas;
+import mx.unam.ciencias.edd.Lista;
+
+/**
+ * <p>Mezcla de entradas que ya están ordenadas.</p>
+ *
+ * <p>Cada entrada se lee línea por línea y las líneas actuales de todas se
+ * mezclan con un montículo mínimo, así que sólo se guarda una línea por
+ * entrada y la primera línea se escribe en cuanto se leyó la primera de cada
+ * entrada. Los empates se resuelven a favor de la entrada que se agregó
+ * primero, así que el resultado es idéntico al de ordenar todas las entradas
+ * juntas.</p>
+ *
+ * <p>Cada línea se compara con la anterior de su entrada; si una entrada no
+ * está ordenada se lanza {@link ExcepcionEntradaDesordenada}.</p>
+ */
+public class MezclaOrdenada {
+
+    /* Una entrada abierta para mezclarse. */
+    private class Entrada {
+        /* Nombre de la entrada, para los errores. */
+        private String nombre;
+        /* Lector de la entrada. */
+        private LectorLineas lector;
+        /* Línea actual de la entrada. */
+        private Linea actual;
+        /* Número de la línea actual, desde uno. */
+        private long numero;
+        /* Orden de la entrada, para desempatar. */
+        private int indice;
+
+        /* Abre la entrada y lee su primera línea. */
+        public Entrada(String nombre, LectorLineas lector, int indice) throws IOException {
+            this.nombre = nombre;
+            this.lector = lector;
+            this.indice = indice;
+            avanza();
+        }
+
+        /* Lee la siguiente línea de la entrada y revisa que no vaya antes que
+         * la anterior. */
+        public void avanza() throws IOException {
+            Linea anterior = actual;
+            String linea = lector.leeLinea();
+            actual = (linea == null) ? null : new Linea(linea, campos);
+            numero++;
+            if (Estadisticas.activas()) {
+                if (actual != null)
+                    Estadisticas.cuentaLineas(1);
+                if (anterior != null)
+                    Estadisticas.cuentaLineas(-1);
+            }
+            if (anterior != null && actual != null && compara(anterior, actual) > 0)
+                throw new ExcepcionEntradaDesordenada(
+                    nombre + ": la línea " + numero + " no está en orden.");
+        }
+    }
+
+    // indica si se ordena en reversa
+    private boolean reversa;
+    // indica si se descartan las líneas repetidas
+    private boolean unico;
+    // campos por los que se ordena, o null si se ordena por toda la línea
+    private Campos campos;
+    // entradas en el orden en que se agregaron
+    private Lista<Entrada> entradas;
+
+    /**
+     * Crea una mezcla.
+     *
+     * @param reversa Si las entradas están ordenadas en reversa.
+     */
+    public MezclaOrdenada(boolean reversa) {
+        this.reversa = reversa;
+        entradas = new Lista<>();
+    }
+
+    /**
+     * Define si se descartan las líneas repetidas. De cada grupo de líneas
+     * iguales sólo se queda la primera.
+     *
+     * @param unico Si se descartan las líneas repetidas.
+     */
+    public void setUnico(boolean unico) {
+        this.unico = unico;
+    }
+
+    /**
+     * Define los campos por los que están ordenadas las entradas. Se debe
+     * llamar antes de agregar entradas.
+     *
+     * @param campos Los campos, o null para ordenar por toda la línea.
+     */
+    public void setCampos(Campos campos) {
+        this.campos = campos;
+    }
+
+    /**
+     * Agrega una entrada ordenada y lee su primera línea. La mezcla cierra el
+     * lector al terminar.
+     *
+     * @param nombre El nombre de la entrada, para los errores.
+     * @param lector El lector de la entrada.
+     * @throws IOException Si ocurre un error al leer.
+     */
+    public void agregaEntrada(String nombre, LectorLineas lector) throws IOException {
+        Entrada entrada;
+        try {
+            entrada = new Entrada(nombre, lector, entradas.getLongitud());
+        } catch (IOException | RuntimeException e) {
+            lector.close();
+            throw e;
+        }
+        entradas.agregaFinal(entrada);
+    }
+
+    /**
+     * Mezcla las entradas, escribe el resultado y cierra las entradas. No
+     * cierra el escritor.
+     *
+     * @param salida Escritor donde se escriben las líneas.
+     * @throws IOException Si ocurre un error I/O.
+     * @throws ExcepcionEntradaDesordenada Si alguna entrada no está ordenada.
+     */
+    public void escribe(EscritorSalida salida) throws IOException {
+        Entrada[] monticulo = new Entrada[entradas.getLongitud()];
+        int elementos = 0;
+        for (Entrada entrada : entradas)
+            if (entrada.actual != null)
+                monticulo[elementos++] = entrada;
+        Linea ultima = null;
+        try {
+            for (int i = elementos / 2 - 1; i >= 0; i--)
+                bajar(monticulo, elementos, i);
+            while (elementos > 0) {
+                Entrada minima = monticulo[0];
+                if (!unico || ultima == null || compara(ultima, minima.actual) != 0) {
+                    salida.escribeLinea(minima.actual.getTexto());
+                    ultima = minima.actual;
+                }
+                minima.avanza();
+                if (minima.actual == null)
+                    monticulo[0] = monticulo[--elementos];
+                bajar(monticulo, elementos, 0);
+            }
+        } finally {
+            for (Entrada entrada : entradas)
+                entrada.lector.close();
+            entradas.limpia();
+        }
+    }
+
+    /* Baja el elemento en la posición i del montículo hasta su lugar. */
+    private void bajar(Entrada[] monticulo, int elementos, int i) {
+        while (true) {
+            int izquierdo = 2 * i + 1;
+            int derecho = izquierdo + 1;
+            int minimo = i;
+            if (izquierdo < elementos && antes(monticulo[izquierdo], monticulo[minimo]))
+                minimo = izquierdo;
+            if (derecho < elementos && antes(monticulo[derecho], monticulo[minimo]))
+                minimo = derecho;
+            if (minimo == i)
+                return;
+            Entrada t = monticulo[i];
+            monticulo[i] = monticulo[minimo];
+            monticulo[minimo] = t;
+            i = minimo;
+        }
+    }
+
+    /* Nos dice si la línea actual de a va antes que la de b. */
+    private boolean antes(Entrada a, Entrada b) {
+        int c = compara(a.actual, b.actual);
+        return c < 0 || (c == 0 && a.indice < b.indice);
+    }
+
+    /* Compara dos líneas en el orden de la mezcla. */
+    private int compara(Linea a, Linea b) {
+        int c;
+        if (Estadisticas.activas()) {
+            long inicio = Estadisticas.iniciaComparacion();
+            c = a.compareTo(b);
+            Estadisticas.terminaComparacion(inicio);
+        } else {
+            c = a.compareTo(b);
+        }
+        return reversa ? -c : c;
+    }
+}
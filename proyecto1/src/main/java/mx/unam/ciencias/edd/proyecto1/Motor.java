@@ -0,0 +1,43 @@
+package mx.unam.ciencias.edd.proyecto1;
+
+/**
+ * Motores con los que {@link Archivo} puede ordenar sus líneas. Todos producen
+ * el mismo orden.
+ */
+public enum Motor {
+
+    /** Compara las líneas con el comparador del locale, o con la tabla de
+     *  pesos cuando ambas son ASCII. Es el motor por omisión. */
+    COLADOR("collator"),
+
+    /** Compara llaves de bytes construidas por {@link LlaveBytes}. Si alguna
+     *  línea no tiene llave de bytes se usa {@link #COLADOR}. */
+    BYTES("bytes"),
+
+    /** Ordena con {@link OrdenamientoRadix} las llaves de bytes, o los bytes
+     *  de las llaves del comparador si alguna línea no tiene llave de bytes.
+     *  No usa hilos. */
+    RADIX("radix");
+
+    /* Nombre del motor en la línea de comandos. */
+    private final String nombre;
+
+    /* Construye un motor con su nombre. */
+    private Motor(String nombre) {
+        this.nombre = nombre;
+    }
+
+    /**
+     * Regresa el motor con el nombre recibido.
+     *
+     * @param nombre el nombre del motor en la línea de comandos.
+     * @return el motor con ese nombre.
+     * @throws ExcepcionArgumentoInvalido si no hay un motor con ese nombre.
+     */
+    public static Motor deNombre(String nombre) {
+        for (Motor m : values())
+            if (m.nombre.equals(nombre))
+                return m;
+        throw new ExcepcionArgumentoInvalido(nombre + " no es un motor de ordenamiento.");
+    }
+}
@@ -0,0 +1,362 @@
+package mx.unam.ciencias.edd.proyecto1;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import mx.unam.ciencias.edd.Lista;
+
+/**
+ * <p>Ordenamiento externo para entradas que no caben en memoria.</p>
+ *
+ * <p>Las líneas se acumulan en un {@link Archivo} hasta alcanzar el presupuesto
+ * de memoria; entonces el bloque se ordena y se escribe como una corrida
+ * ordenada en un archivo temporal. Al final las corridas se mezclan con un
+ * montículo mínimo. Los empates se resuelven a favor de la corrida más antigua,
+ * así que el resultado es idéntico al de ordenar todo en memoria.</p>
+ *
+ * <p>Sin repetidos, cada bloque se escribe ya sin ellos y cada mezcla descarta
+ * las líneas iguales a la última que escribió, así que las corridas
+ * intermedias se encogen conforme se mezclan.</p>
+ *
+ * <p>Las corridas se pueden comprimir con {@link Gzip} al nivel más rápido,
+ * que cambia tiempo de procesador por bytes escritos y leídos del disco.</p>
+ */
+public class OrdenamientoExterno {
+
+    /* Estimación de bytes ocupados por cada línea además de sus caracteres:
+     * su posición en el bloque, su índice y lo que crea el ordenamiento. */
+    private static final long COSTO_LINEA = 64;
+    /* Estimación de bytes por caracter de la línea, contando la llave. */
+    private static final long COSTO_CARACTER = 4;
+    /* Máximo de corridas que se mezclan a la vez. */
+    private static final int MAXIMO_CORRIDAS = 64;
+    /* Tamaño de los búferes de las corridas. */
+    private static final int TAMANO_BUFER = 1 << 16;
+    /* Codificación de las corridas en disco. */
+    private static final Charset CODIFICACION = StandardCharsets.UTF_8;
+
+    /* Una corrida abierta para mezclarse. */
+    private class Corrida {
+        /* Lector de la corrida. */
+        private BufferedReader lector;
+        /* Línea actual de la corrida. */
+        private Linea actual;
+        /* Orden de la corrida, para desempatar. */
+        private int indice;
+
+        /* Abre la corrida y lee su primera línea. */
+        public Corrida(File archivo, int indice) throws IOException {
+            InputStream entrada = new FileInputStream(archivo);
+            try {
+                if (comprimido)
+                    entrada = Gzip.descomprime(entrada);
+            } catch (IOException e) {
+                entrada.close();
+                throw e;
+            }
+            lector = new BufferedReader(new InputStreamReader(entrada, CODIFICACION),
+                                        TAMANO_BUFER);
+            this.indice = indice;
+            avanza();
+        }
+
+        /* Lee la siguiente línea de la corrida. */
+        public void avanza() throws IOException {
+            String linea = lector.readLine();
+            actual = (linea == null) ? null : new Linea(linea, campos);
+        }
+    }
+
+    // presupuesto de memoria en bytes
+    private long memoria;
+    // directorio donde se escriben las corridas
+    private File directorio;
+    // indica si se ordena en reversa
+    private boolean reversa;
+    // indica si se descartan las líneas repetidas
+    private boolean unico;
+    // campos por los que se ordena, o null si se ordena por toda la línea
+    private Campos campos;
+    // indica si las corridas se comprimen
+    private boolean comprimido;
+    // bloque de líneas que aún no se escribe a disco
+    private Archivo bloque;
+    // memoria estimada del bloque actual
+    private long usada;
+    // corridas escritas en disco, en orden
+    private Lista<File> corridas;
+
+    /**
+     * Crea un ordenamiento externo.
+     *
+     * @param memoria    Presupuesto de memoria en bytes para cada bloque.
+     * @param directorio Directorio donde se guardan las corridas temporales.
+     * @param reversa    Si se debe ordenar en reversa.
+     */
+    public OrdenamientoExterno(long memoria, File directorio, boolean reversa) {
+        this.memoria = memoria;
+        this.directorio = directorio;
+        this.reversa = reversa;
+        bloque = new Archivo();
+        corridas = new Lista<>();
+    }
+
+    /**
+     * Define el número de hilos con los que se ordena cada bloque.
+     *
+     * @param hilos El número de hilos, debe ser positivo.
+     */
+    public void setHilos(int hilos) {
+        bloque.setHilos(hilos);
+    }
+
+    /**
+     * Define el motor con el que se ordena cada bloque.
+     *
+     * @param motor El motor de ordenamiento.
+     */
+    public void setMotor(Motor motor) {
+        bloque.setMotor(motor);
+    }
+
+    /**
+     * Define si se descartan las líneas repetidas. De cada grupo de líneas
+     * iguales sólo se queda la primera que se leyó.
+     *
+     * @param unico Si se descartan las líneas repetidas.
+     */
+    public void setUnico(boolean unico) {
+        this.unico = unico;
+        bloque.setUnico(unico);
+    }
+
+    /**
+     * Define los campos por los que se ordena. Se debe llamar antes de
+     * agregar líneas.
+     *
+     * @param campos Los campos, o null para ordenar por toda la línea.
+     */
+    public void setCampos(Campos campos) {
+        this.campos = campos;
+        bloque.setCampos(campos);
+    }
+
+    /**
+     * Define si las corridas se comprimen con gzip. Se debe llamar antes de
+     * agregar líneas.
+     *
+     * @param comprimido Si las corridas se comprimen.
+     */
+    public void setComprimido(boolean comprimido) {
+        this.comprimido = comprimido;
+    }
+
+    /**
+     * Define si cada bloque guarda sus líneas fuera del montículo; su memoria
+     * se libera al escribir la corrida. Se debe llamar antes de agregar
+     * líneas.
+     *
+     * @param fueraDelMonticulo Si las líneas se guardan fuera del montículo.
+     */
+    public void setFueraDelMonticulo(boolean fueraDelMonticulo) {
+        bloque.setFueraDelMonticulo(fueraDelMonticulo);
+    }
+
+    /**
+     * Lee todas las líneas de una entrada. Cada que se llena el presupuesto de
+     * memoria se escribe una corrida en disco.
+     *
+     * @param lector Entrada de la cual leer las líneas.
+     * @throws IOException Si ocurre un error al leer o al escribir una corrida.
+     */
+    public void cargarArchivo(LectorLineas lector) throws IOException {
+        String linea = lector.leeLinea();
+        while (linea != null) {
+            agregaLinea(linea);
+            linea = lector.leeLinea();
+        }
+    }
+
+    /**
+     * Agrega una línea al bloque actual.
+     *
+     * @param linea La línea a agregar.
+     * @throws IOException Si ocurre un error al escribir una corrida.
+     */
+    public void agregaLinea(String linea) throws IOException {
+        bloque.agregaLinea(linea);
+        usada += COSTO_LINEA + COSTO_CARACTER * linea.length();
+        if (usada >= memoria)
+            vaciaBloque();
+    }
+
+    /**
+     * Escribe todas las líneas ordenadas. Si nunca se llenó el presupuesto de
+     * memoria no se usa el disco. No cierra el escritor.
+     *
+     * @param salida Escritor donde se escriben las líneas.
+     * @throws IOException Si ocurre un error I/O.
+     */
+    public void escribe(EscritorSalida salida) throws IOException {
+        try {
+            if (corridas.esVacia()) {
+                ordenaBloque();
+                bloque.escribir(salida);
+                return;
+            }
+            if (!bloque.esVacio())
+                vaciaBloque();
+            while (corridas.getLongitud() > MAXIMO_CORRIDAS)
+                reduceCorridas();
+            mezcla(corridas, salida);
+        } finally {
+            bloque.libera();
+            for (File corrida : corridas)
+                corrida.delete();
+            corridas.limpia();
+        }
+    }
+
+    /* Ordena el bloque actual. */
+    private void ordenaBloque() {
+        if (reversa)
+            bloque.ordenaReversa();
+        else
+            bloque.ordena();
+    }
+
+    /* Ordena el bloque actual y lo escribe en una corrida nueva. */
+    private void vaciaBloque() throws IOException {
+        ordenaBloque();
+        File corrida = nuevaCorrida();
+        corridas.agregaFinal(corrida);
+        try (EscritorSalida w = escritorCorrida(corrida)) {
+            bloque.escribir(w);
+        }
+        bloque.libera();
+        usada = 0;
+    }
+
+    /* Mezcla las corridas en grupos consecutivos para no abrir demasiadas a
+     * la vez. Mezclar grupos consecutivos preserva la estabilidad. */
+    private void reduceCorridas() throws IOException {
+        Lista<File> reducidas = new Lista<>();
+        while (!corridas.esVacia()) {
+            Lista<File> grupo = new Lista<>();
+            while (!corridas.esVacia() && grupo.getLongitud() < MAXIMO_CORRIDAS)
+                grupo.agregaFinal(corridas.eliminaPrimero());
+            if (grupo.getLongitud() == 1) {
+                reducidas.agregaFinal(grupo.getPrimero());
+                continue;
+            }
+            File corrida = nuevaCorrida();
+            reducidas.agregaFinal(corrida);
+            try (EscritorSalida w = escritorCorrida(corrida)) {
+                mezcla(grupo, w);
+            } finally {
+                for (File f : grupo)
+                    f.delete();
+            }
+        }
+        corridas = reducidas;
+    }
+
+    /* Mezcla las corridas recibidas y escribe el resultado. Sin repetidos,
+     * descarta las líneas iguales a la última que escribió. */
+    private void mezcla(Lista<File> archivos, EscritorSalida salida) throws IOException {
+        Corrida[] monticulo = new Corrida[archivos.getLongitud()];
+        int elementos = 0;
+        int indice = 0;
+        Linea ultima = null;
+        try {
+            for (File archivo : archivos) {
+                Corrida corrida = new Corrida(archivo, indice);
+                monticulo[indice++] = corrida;
+                if (corrida.actual == null)
+                    corrida.lector.close();
+                else
+                    elementos++;
+            }
+            // las corridas vacías se recorren al final del arreglo
+            for (int i = 0, j = 0; i < indice; i++)
+                if (monticulo[i].actual != null) {
+                    Corrida t = monticulo[j];
+                    monticulo[j++] = monticulo[i];
+                    monticulo[i] = t;
+                }
+            for (int i = elementos / 2 - 1; i >= 0; i--)
+                bajar(monticulo, elementos, i);
+            while (elementos > 0) {
+                Corrida minima = monticulo[0];
+                if (!unico || ultima == null || ultima.compareTo(minima.actual) != 0) {
+                    salida.escribeLinea(minima.actual.getTexto());
+                    ultima = minima.actual;
+                }
+                minima.avanza();
+                if (minima.actual == null) {
+                    minima.lector.close();
+                    monticulo[0] = monticulo[--elementos];
+                    monticulo[elementos] = minima;
+                }
+                bajar(monticulo, elementos, 0);
+            }
+        } finally {
+            for (Corrida corrida : monticulo)
+                if (corrida != null)
+                    corrida.lector.close();
+        }
+    }
+
+    /* Baja el elemento en la posición i del montículo hasta su lugar. */
+    private void bajar(Corrida[] monticulo, int elementos, int i) {
+        while (true) {
+            int izquierdo = 2 * i + 1;
+            int derecho = izquierdo + 1;
+            int minimo = i;
+            if (izquierdo < elementos && antes(monticulo[izquierdo], monticulo[minimo]))
+                minimo = izquierdo;
+            if (derecho < elementos && antes(monticulo[derecho], monticulo[minimo]))
+                minimo = derecho;
+            if (minimo == i)
+                return;
+            Corrida t = monticulo[i];
+            monticulo[i] = monticulo[minimo];
+            monticulo[minimo] = t;
+            i = minimo;
+        }
+    }
+
+    /* Nos dice si la línea actual de a va antes que la de b. */
+    private boolean antes(Corrida a, Corrida b) {
+        int c = a.actual.compareTo(b.actual);
+        if (reversa)
+            c = -c;
+        return c < 0 || (c == 0 && a.indice < b.indice);
+    }
+
+    /* Abre una corrida para escribirla, comprimida si así se pidió. */
+    private EscritorSalida escritorCorrida(File corrida) throws IOException {
+        if (comprimido)
+            return EscritorSalida.comprimido(corrida, CODIFICACION, Deflater.BEST_SPEED);
+        return EscritorSalida.archivo(corrida, CODIFICACION);
+    }
+
+    /* Crea un archivo temporal para una corrida. */
+    private File nuevaCorrida() throws IOException {
+        File corrida;
+        try {
+            corrida = File.createTempFile("sort", ".corrida", directorio);
+        } catch (IOException e) {
+            throw new ExcepcionArchivoNoEncontrado(
+                "No se pudo crear un archivo temporal en " + directorio + ": " + e.getMessage(), e);
+        }
+        corrida.deleteOnExit();
+        return corrida;
+    }
+}
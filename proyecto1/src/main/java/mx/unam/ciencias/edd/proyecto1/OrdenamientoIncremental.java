@@ -0,0 +1,408 @@
+package mx.unam.ciencias.edd.proyecto1;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import mx.unam.ciencias.edd.Estadisticas;
+
+/**
+ * <p>Ordenamiento incremental de un archivo al que sólo se le agregan líneas
+ * al final.</p>
+ *
+ * <p>Se recibe la salida ordenada de una ejecución anterior y el número de
+ * bytes del archivo que ya estaban en ella. Sólo se leen y se ordenan en
+ * memoria las líneas agregadas después de esos bytes, y se mezclan con la
+ * salida anterior en una sola pasada.</p>
+ *
+ * <p>Si la salida anterior es un archivo que se puede leer con acceso
+ * aleatorio, cada línea agregada busca su lugar en ella con una búsqueda
+ * exponencial desde el lugar de la anterior, y los bytes de la salida
+ * anterior que quedan entre dos líneas agregadas se copian tal cual, sin
+ * decodificarlos ni compararlos. Así las comparaciones crecen con lo
+ * agregado y no con el tamaño del archivo; de la salida anterior sólo se
+ * copian bytes. Se confía en que la salida anterior está ordenada con las
+ * mismas opciones. Si no, por ejemplo si está comprimida, se mezcla línea
+ * por línea con {@link MezclaOrdenada}, que además revisa su orden.</p>
+ *
+ * <p>Sólo se toman las líneas completas, las que ya terminan en '\n': una
+ * última línea sin terminar, que quizá todavía se está escribiendo, se deja
+ * para la siguiente ejecución.</p>
+ *
+ * <p>En los empates van primero las líneas de la salida anterior, que en el
+ * archivo están antes que las agregadas, así que el resultado es idéntico al
+ * de ordenar todo el archivo con las mismas opciones.</p>
+ */
+public class OrdenamientoIncremental {
+
+    /* Tamaño de los bloques que se leen de la salida anterior. */
+    private static final int TAMANO_BLOQUE = 1 << 13;
+    /* Primer salto en bytes de la búsqueda exponencial. */
+    private static final long SALTO_INICIAL = 1 << 7;
+
+    /* Flujo que sólo deja leer un número de bytes. */
+    private static class FlujoAcotado extends FilterInputStream {
+        /* Bytes que quedan por leer. */
+        private long restantes;
+
+        /* Envuelve al flujo. */
+        public FlujoAcotado(InputStream flujo, long restantes) {
+            super(flujo);
+            this.restantes = restantes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (restantes == 0)
+                return -1;
+            int b = super.read();
+            if (b != -1)
+                restantes--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (restantes == 0)
+                return -1;
+            int n = super.read(b, off, (int) Math.min(len, restantes));
+            if (n > 0)
+                restantes -= n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long saltados = super.skip(Math.min(n, restantes));
+            restantes -= saltados;
+            return saltados;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), restantes);
+        }
+    }
+
+    /* La salida anterior, leída con acceso aleatorio por bloques. */
+    private class Previa {
+        /* El canal de la salida anterior. */
+        private FileChannel canal;
+        /* Tamaño de la salida anterior en bytes. */
+        private long tamano;
+        /* Codificación de la salida anterior. */
+        private Charset codificacion;
+        /* El último bloque leído. */
+        private ByteBuffer bloque;
+        /* Posición del último bloque leído en el archivo, o -1. */
+        private long inicioBloque;
+
+        /* Abre la salida anterior sobre su canal. */
+        public Previa(FileChannel canal, Charset codificacion) throws IOException {
+            this.canal = canal;
+            this.codificacion = codificacion;
+            tamano = canal.size();
+            bloque = ByteBuffer.allocate(TAMANO_BLOQUE);
+            inicioBloque = -1;
+        }
+
+        /* Regresa el byte en una posición, leyendo su bloque si hace falta. */
+        public byte en(long posicion) throws IOException {
+            if (inicioBloque < 0 || posicion < inicioBloque
+                || posicion >= inicioBloque + bloque.limit()) {
+                bloque.clear();
+                inicioBloque = posicion;
+                while (bloque.hasRemaining()
+                       && canal.read(bloque, inicioBloque + bloque.position()) > 0)
+                    ;
+                bloque.flip();
+            }
+            return bloque.get((int) (posicion - inicioBloque));
+        }
+
+        /* Regresa el comienzo de la primera línea que empieza en la posición
+         * o después, o el tamaño si no hay. */
+        public long siguienteLinea(long posicion) throws IOException {
+            if (posicion == 0)
+                return 0;
+            for (long i = posicion - 1; i < tamano; i++)
+                if (en(i) == '\n')
+                    return i + 1;
+            return tamano;
+        }
+
+        /* Regresa el texto de la línea que empieza en una posición. */
+        public String linea(long inicio) throws IOException {
+            long fin = inicio;
+            while (fin < tamano && en(fin) != '\n')
+                fin++;
+            byte[] bytes = new byte[(int) (fin - inicio)];
+            ByteBuffer destino = ByteBuffer.wrap(bytes);
+            while (destino.hasRemaining()
+                   && canal.read(destino, inicio + destino.position()) > 0)
+                ;
+            return new String(bytes, codificacion);
+        }
+    }
+
+    // las líneas agregadas, configuradas por quien crea el ordenamiento
+    private Archivo nuevas;
+    // indica si se ordena en reversa
+    private boolean reversa;
+    // indica si se descartan las líneas repetidas
+    private boolean unico;
+    // campos por los que se ordena, o null si se ordena por toda la línea
+    private Campos campos;
+
+    /**
+     * Crea un ordenamiento incremental.
+     *
+     * @param nuevas  Archivo vacío donde se ordenan las líneas agregadas; ya
+     *                debe tener su motor, sus hilos y sus campos.
+     * @param reversa Si se ordena en reversa.
+     */
+    public OrdenamientoIncremental(Archivo nuevas, boolean reversa) {
+        this.nuevas = nuevas;
+        this.reversa = reversa;
+    }
+
+    /**
+     * Define si se descartan las líneas repetidas. De cada grupo de líneas
+     * iguales sólo se queda la primera.
+     *
+     * @param unico Si se descartan las líneas repetidas.
+     */
+    public void setUnico(boolean unico) {
+        this.unico = unico;
+    }
+
+    /**
+     * Define los campos por los que se ordena.
+     *
+     * @param campos Los campos, o null para ordenar por toda la línea.
+     */
+    public void setCampos(Campos campos) {
+        this.campos = campos;
+    }
+
+    /**
+     * Lee las líneas completas del archivo que empiezan en un byte, hasta el
+     * último '\n'. Una última línea sin '\n' no se lee.
+     *
+     * @param fuente       El archivo al que se agregaron líneas.
+     * @param desde        Número de bytes del archivo que ya se ordenaron;
+     *                     debe ser el comienzo de una línea.
+     * @param codificacion La codificación del archivo.
+     * @return el número de bytes del archivo que quedan ordenados, hasta el
+     *         último '\n', para la siguiente ejecución.
+     * @throws ExcepcionArgumentoInvalido Si el byte no es el comienzo de una
+     *         línea del archivo.
+     * @throws IOException Si ocurre un error al leer.
+     */
+    public long cargaAgregadas(File fuente, long desde, Charset codificacion)
+        throws IOException {
+        long hasta;
+        try (RandomAccessFile acceso = new RandomAccessFile(fuente, "r")) {
+            if (desde > acceso.length())
+                throw new ExcepcionArgumentoInvalido(
+                    fuente + " tiene menos de " + desde + " bytes; ¿se reemplazó el archivo?");
+            if (desde > 0) {
+                acceso.seek(desde - 1);
+                if (acceso.read() != '\n')
+                    throw new ExcepcionArgumentoInvalido(
+                        "El byte " + desde + " de " + fuente + " no es el comienzo de una línea.");
+            }
+            hasta = ultimoSalto(acceso, desde);
+        }
+        FileInputStream entrada = new FileInputStream(fuente);
+        try (LectorLineas lector = new LectorFlujo(new BufferedReader(
+                 new InputStreamReader(new FlujoAcotado(entrada, hasta - desde), codificacion),
+                 Gzip.TAMANO_BUFER))) {
+            entrada.getChannel().position(desde);
+            nuevas.cargarArchivo(lector);
+        }
+        return hasta;
+    }
+
+    /* Regresa la posición después del último '\n' del archivo que está en
+     * una posición o después, o la posición si no hay ninguno. Se busca desde
+     * el final, así que sólo se recorre la última línea. */
+    private static long ultimoSalto(RandomAccessFile acceso, long desde) throws IOException {
+        byte[] bloque = new byte[TAMANO_BLOQUE];
+        long fin = acceso.length();
+        while (fin > desde) {
+            int n = (int) Math.min(bloque.length, fin - desde);
+            acceso.seek(fin - n);
+            acceso.readFully(bloque, 0, n);
+            for (int i = n - 1; i >= 0; i--)
+                if (bloque[i] == '\n')
+                    return fin - n + i + 1;
+            fin -= n;
+        }
+        return desde;
+    }
+
+    /**
+     * Ordena las líneas agregadas y las inserta en la salida anterior,
+     * copiando tal cual los bytes de la salida anterior que quedan entre
+     * ellas. No cierra el escritor.
+     *
+     * @param previa       La salida anterior, sin comprimir; los saltos de
+     *                     línea de su codificación deben ser un solo byte,
+     *                     vea {@link LectorMapeado#soporta}.
+     * @param codificacion La codificación de la salida anterior.
+     * @param salida       Escritor donde se escriben las líneas.
+     * @throws IOException Si ocurre un error I/O.
+     */
+    public void escribe(File previa, Charset codificacion, EscritorSalida salida)
+        throws IOException {
+        try (RandomAccessFile acceso = new RandomAccessFile(previa, "r")) {
+            ordenaNuevas();
+            Previa anterior = new Previa(acceso.getChannel(), codificacion);
+            LectorLineas lector = nuevas.lector();
+            long actual = 0;
+            String texto;
+            while ((texto = lector.leeLinea()) != null) {
+                // las que van después de toda la salida anterior ya no se
+                // comparan
+                long lugar = (actual == anterior.tamano)
+                    ? actual
+                    : busca(anterior, actual, texto);
+                copia(anterior, actual, lugar, salida);
+                actual = lugar;
+                // con -u la anterior es la primera de las iguales
+                if (unico && lugar < anterior.tamano
+                    && compara(texto, anterior.linea(lugar)) == 0)
+                    continue;
+                salida.escribeLinea(texto);
+            }
+            copia(anterior, actual, anterior.tamano, salida);
+        } finally {
+            nuevas.libera();
+        }
+    }
+
+    /**
+     * Ordena las líneas agregadas, las mezcla línea por línea con la salida
+     * anterior y escribe el resultado. Cierra la salida anterior pero no el
+     * escritor.
+     *
+     * @param nombre El nombre de la salida anterior, para los errores.
+     * @param previa Lector de la salida anterior, ya ordenada.
+     * @param salida Escritor donde se escriben las líneas.
+     * @throws IOException Si ocurre un error I/O.
+     * @throws ExcepcionEntradaDesordenada Si la salida anterior no está
+     *         ordenada con las mismas opciones.
+     */
+    public void escribe(String nombre, LectorLineas previa, EscritorSalida salida)
+        throws IOException {
+        MezclaOrdenada mezcla = new MezclaOrdenada(reversa);
+        mezcla.setUnico(unico);
+        mezcla.setCampos(campos);
+        try {
+            try {
+                ordenaNuevas();
+            } catch (RuntimeException e) {
+                previa.close();
+                throw e;
+            }
+            // desde aquí la mezcla cierra la salida anterior
+            mezcla.agregaEntrada(nombre, previa);
+            mezcla.agregaEntrada("líneas agregadas", nuevas.lector());
+            mezcla.escribe(salida);
+        } finally {
+            nuevas.libera();
+        }
+    }
+
+    /* Ordena las líneas agregadas. */
+    private void ordenaNuevas() {
+        if (reversa)
+            nuevas.ordenaReversa();
+        else
+            nuevas.ordena();
+    }
+
+    /* Regresa el comienzo de la primera línea de la salida anterior, desde
+     * una posición, antes de la cual va la línea agregada; o el tamaño si va
+     * después de todas. Primero salta el doble cada vez hasta pasarse, y luego
+     * busca en binario entre los dos últimos saltos. */
+    private long busca(Previa anterior, long desde, String linea) throws IOException {
+        if (desde == anterior.tamano || vaAntes(linea, anterior.linea(desde)))
+            return desde;
+        long antes = desde;
+        long despues = anterior.tamano;
+        long salto = SALTO_INICIAL;
+        while (antes + salto < anterior.tamano) {
+            long probada = anterior.siguienteLinea(antes + salto);
+            if (probada == anterior.tamano)
+                break;
+            if (vaAntes(linea, anterior.linea(probada))) {
+                despues = probada;
+                break;
+            }
+            antes = probada;
+            salto *= 2;
+        }
+        // la línea va después de la que empieza en antes y antes de la que
+        // empieza en despues
+        while (true) {
+            long siguiente = anterior.siguienteLinea(antes + 1);
+            if (siguiente == despues)
+                return despues;
+            long probada = anterior.siguienteLinea(antes + (despues - antes) / 2);
+            if (probada <= antes || probada == despues)
+                probada = siguiente;
+            if (vaAntes(linea, anterior.linea(probada)))
+                despues = probada;
+            else
+                antes = probada;
+        }
+    }
+
+    /* Nos dice si la línea agregada se escribe antes que una de la salida
+     * anterior. En los empates va después, salvo con -u, donde se descarta
+     * al llegar a la anterior igual. */
+    private boolean vaAntes(String agregada, String anterior) {
+        int c = compara(agregada, anterior);
+        return unico ? c <= 0 : c < 0;
+    }
+
+    /* Copia tal cual las líneas de la salida anterior entre dos posiciones;
+     * si la última no termina en '\n' se lo agrega. */
+    private void copia(Previa anterior, long desde, long hasta, EscritorSalida salida)
+        throws IOException {
+        if (desde == hasta)
+            return;
+        salida.copia(anterior.canal, desde, hasta - desde);
+        if (anterior.en(hasta - 1) != '\n')
+            salida.escribeLinea(new byte[0], 0, 0);
+    }
+
+    /* Compara dos líneas en el orden del ordenamiento. Cada línea de la
+     * salida anterior se compara pocas veces, así que se comparan los textos
+     * sin calcular sus llaves. */
+    private int compara(String a, String b) {
+        int c;
+        if (Estadisticas.activas()) {
+            long inicio = Estadisticas.iniciaComparacion();
+            c = comparaTextos(a, b);
+            Estadisticas.terminaComparacion(inicio);
+        } else {
+            c = comparaTextos(a, b);
+        }
+        return reversa ? -c : c;
+    }
+
+    /* Compara dos textos por toda la línea o por sus campos. */
+    private int comparaTextos(String a, String b) {
+        return (campos == null) ? Archivo.compara(a, b) : campos.compara(a, b);
+    }
+}
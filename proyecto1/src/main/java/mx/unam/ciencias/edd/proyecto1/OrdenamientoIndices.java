@@ -0,0 +1,310 @@
+package mx.unam.ciencias.edd.proyecto1;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>MergeSort estable sobre un arreglo de índices.</p>
+ *
+ * <p>Las líneas de {@link AlmacenLineas} se ordenan permutando sus índices en
+ * lugar de moverlas. Con varios hilos las mitades grandes se ordenan en
+ * paralelo, como en {@link mx.unam.ciencias.edd.Lista#mergeSortParalelo}; el
+ * resultado es el mismo.</p>
+ *
+ * <p>Como en {@link mx.unam.ciencias.edd.Lista#mergeSortNatural}, se
+ * aprovecha el orden que ya tenga la entrada. Los rangos pequeños se ordenan
+ * por inserción a partir de la corrida con la que empiezan; si es
+ * estrictamente descendente se invierte, lo que no cambia el orden de los
+ * iguales. Dos mitades que ya van una tras otra no se mezclan, y si van al
+ * revés sólo se intercambian, así que una entrada ordenada o en reversa
+ * cuesta un recorrido. Al mezclar, cuando un lado gana varias veces seguidas
+ * se busca con saltos exponenciales hasta dónde sigue ganando, y los
+ * primeros de la izquierda que ya están en su lugar no se mueven.</p>
+ *
+ * <p>Si se piden índices únicos, de cada grupo de elementos iguales sólo queda
+ * el primero. Los repetidos se descartan al mezclar, así que cada mezcla
+ * trabaja con rangos cada vez más cortos.</p>
+ */
+class OrdenamientoIndices {
+
+    /**
+     * Comparador de elementos identificados por su índice.
+     */
+    interface Comparador {
+
+        /**
+         * Compara dos elementos.
+         *
+         * @param a el índice del primer elemento.
+         * @param b el índice del segundo elemento.
+         * @return un número menor que cero si a va antes, 0 si son iguales y un
+         *         número mayor que cero si va después.
+         */
+        int compara(int a, int b);
+    }
+
+    /* Tarea que ordena un rango y sus mitades en paralelo. */
+    private class Tarea extends RecursiveAction {
+
+        /* Inicio del rango. */
+        private int inicio;
+        /* Fin del rango, exclusivo. */
+        private int fin;
+        /* Fin del rango ya ordenado, exclusivo. */
+        private int resultado;
+
+        /* Construye la tarea del rango. */
+        public Tarea(int inicio, int fin) {
+            this.inicio = inicio;
+            this.fin = fin;
+        }
+
+        /* Ordena el rango. */
+        @Override
+        protected void compute() {
+            if (fin - inicio <= UMBRAL_PARALELO) {
+                resultado = ordena(inicio, fin);
+                return;
+            }
+            int mitad = (inicio + fin) >>> 1;
+            Tarea izquierda = new Tarea(inicio, mitad);
+            Tarea derecha = new Tarea(mitad, fin);
+            invokeAll(izquierda, derecha);
+            resultado = mezcla(inicio, izquierda.resultado, mitad, derecha.resultado);
+        }
+    }
+
+    /* Rangos de este tamaño o menos se ordenan por inserción. */
+    private static final int UMBRAL_INSERCION = 32;
+    /* Rangos de este tamaño o menos se ordenan en un solo hilo. */
+    private static final int UMBRAL_PARALELO = 1 << 13;
+    /* Veces seguidas que un lado gana una mezcla antes de buscar con saltos. */
+    private static final int GALOPE = 7;
+
+    /* Los índices a ordenar. */
+    private int[] indices;
+    /* El comparador de los índices. */
+    private Comparador comparador;
+    /* Arreglo auxiliar para las mezclas. */
+    private int[] auxiliar;
+    /* Si se descartan los elementos repetidos. */
+    private boolean unico;
+
+    /* Construye el ordenamiento. */
+    private OrdenamientoIndices(int[] indices, Comparador comparador, boolean unico) {
+        this.indices = indices;
+        this.comparador = comparador;
+        this.unico = unico;
+        auxiliar = new int[(indices.length + 1) / 2];
+    }
+
+    /**
+     * Ordena de manera estable un arreglo de índices.
+     *
+     * @param indices los índices a ordenar.
+     * @param comparador el comparador de los índices.
+     * @param hilos el número de hilos, debe ser positivo.
+     */
+    static void ordena(int[] indices, Comparador comparador, int hilos) {
+        ordena(indices, comparador, hilos, false);
+    }
+
+    /**
+     * Ordena de manera estable un arreglo de índices y, si se pide, descarta
+     * los repetidos. Los índices que quedan se recorren al principio del
+     * arreglo.
+     *
+     * @param indices los índices a ordenar.
+     * @param comparador el comparador de los índices.
+     * @param hilos el número de hilos, debe ser positivo.
+     * @param unico si de cada grupo de elementos iguales sólo se deja el
+     *              primero.
+     * @return el número de índices que quedan al principio del arreglo.
+     */
+    static int ordena(int[] indices, Comparador comparador, int hilos, boolean unico) {
+        if (indices.length == 0)
+            return 0;
+        OrdenamientoIndices o = new OrdenamientoIndices(indices, comparador, unico);
+        if (hilos == 1 || indices.length <= UMBRAL_PARALELO)
+            return o.ordena(0, indices.length);
+        ForkJoinPool alberca = new ForkJoinPool(hilos);
+        try {
+            Tarea tarea = o.new Tarea(0, indices.length);
+            alberca.invoke(tarea);
+            return tarea.resultado;
+        } finally {
+            alberca.shutdown();
+        }
+    }
+
+    /* Ordena un rango en el hilo actual y regresa dónde termina lo que
+     * quedó. */
+    private int ordena(int inicio, int fin) {
+        if (fin - inicio <= UMBRAL_INSERCION) {
+            insercion(inicio, corrida(inicio, fin), fin);
+            return unico ? compacta(inicio, fin) : fin;
+        }
+        int mitad = (inicio + fin) >>> 1;
+        int finIzquierda = ordena(inicio, mitad);
+        int finDerecha = ordena(mitad, fin);
+        return mezcla(inicio, finIzquierda, mitad, finDerecha);
+    }
+
+    /* Descarta los repetidos de un rango ordenado y regresa dónde termina lo
+     * que quedó. */
+    private int compacta(int inicio, int fin) {
+        int k = inicio + 1;
+        for (int i = inicio + 1; i < fin; i++)
+            if (comparador.compara(indices[k - 1], indices[i]) != 0)
+                indices[k++] = indices[i];
+        return k;
+    }
+
+    /* Regresa dónde termina la corrida con la que empieza un rango no vacío:
+     * en orden, o estrictamente descendente, y entonces la invierte. */
+    private int corrida(int inicio, int fin) {
+        int i = inicio + 1;
+        if (i == fin)
+            return fin;
+        if (comparador.compara(indices[inicio], indices[i]) > 0) {
+            i++;
+            while (i < fin && comparador.compara(indices[i - 1], indices[i]) > 0)
+                i++;
+            invierte(inicio, i);
+        } else {
+            i++;
+            while (i < fin && comparador.compara(indices[i - 1], indices[i]) <= 0)
+                i++;
+        }
+        return i;
+    }
+
+    /* Invierte un rango. */
+    private void invierte(int inicio, int fin) {
+        for (int i = inicio, j = fin - 1; i < j; i++, j--) {
+            int t = indices[i];
+            indices[i] = indices[j];
+            indices[j] = t;
+        }
+    }
+
+    /* Ordena por inserción un rango cuyo principio, hasta ordenados, ya está
+     * en orden. */
+    private void insercion(int inicio, int ordenados, int fin) {
+        for (int i = ordenados; i < fin; i++) {
+            int v = indices[i];
+            int j = i - 1;
+            while (j >= inicio && comparador.compara(indices[j], v) > 0) {
+                indices[j + 1] = indices[j];
+                j--;
+            }
+            indices[j + 1] = v;
+        }
+    }
+
+    /* Mezcla el rango ordenado [inicio, finIzquierda) con el rango ordenado
+     * [mitad, fin) a partir de inicio y regresa dónde termina la mezcla. Sin
+     * repetidos los rangos son consecutivos; con ellos, de dos elementos
+     * iguales se queda el de la izquierda. La mitad izquierda se copia a la
+     * misma posición relativa del auxiliar, así que rangos distintos no se
+     * estorban. Si ya están en orden sólo se recorre la derecha, y si toda la
+     * derecha va antes que la izquierda sólo se intercambian. */
+    private int mezcla(int inicio, int finIzquierda, int mitad, int fin) {
+        int c = comparador.compara(indices[finIzquierda - 1], indices[mitad]);
+        if (c < 0 || (c == 0 && !unico)) {
+            if (finIzquierda < mitad)
+                System.arraycopy(indices, mitad, indices, finIzquierda, fin - mitad);
+            return finIzquierda + fin - mitad;
+        }
+        int base = inicio / 2;
+        int n = finIzquierda - inicio;
+        if (comparador.compara(indices[fin - 1], indices[inicio]) < 0) {
+            System.arraycopy(indices, inicio, auxiliar, base, n);
+            System.arraycopy(indices, mitad, indices, inicio, fin - mitad);
+            System.arraycopy(auxiliar, base, indices, inicio + fin - mitad, n);
+            return inicio + fin - mitad + n;
+        }
+        // los primeros de la izquierda que van antes que toda la derecha ya
+        // están en su lugar
+        int enSuLugar = galopa(indices, inicio, finIzquierda, indices[mitad], !unico);
+        inicio += enSuLugar;
+        n -= enSuLugar;
+        System.arraycopy(indices, inicio, auxiliar, base, n);
+        int i = 0;
+        int j = mitad;
+        int k = inicio;
+        int ganaIzquierda = 0;
+        int ganaDerecha = 0;
+        while (i < n && j < fin) {
+            if (ganaDerecha >= GALOPE) {
+                int m = galopa(indices, j, fin, auxiliar[base + i], false);
+                System.arraycopy(indices, j, indices, k, m);
+                j += m;
+                k += m;
+                ganaDerecha = 0;
+                continue;
+            }
+            if (ganaIzquierda >= GALOPE) {
+                int m = galopa(auxiliar, base + i, base + n, indices[j], !unico);
+                System.arraycopy(auxiliar, base + i, indices, k, m);
+                i += m;
+                k += m;
+                ganaIzquierda = 0;
+                continue;
+            }
+            c = comparador.compara(indices[j], auxiliar[base + i]);
+            if (c < 0) {
+                indices[k++] = indices[j++];
+                ganaDerecha++;
+                ganaIzquierda = 0;
+            } else {
+                if (c == 0 && unico)
+                    j++;
+                indices[k++] = auxiliar[base + i++];
+                ganaIzquierda++;
+                ganaDerecha = 0;
+            }
+        }
+        while (i < n)
+            indices[k++] = auxiliar[base + i++];
+        if (k < j)
+            System.arraycopy(indices, j, indices, k, fin - j);
+        return k + fin - j;
+    }
+
+    /* Regresa cuántos elementos de un rango ordenado del arreglo, desde su
+     * inicio, van antes que la clave, o antes o empatados si así se pide.
+     * Primero salta de uno en uno, de dos en dos, de cuatro en cuatro..., y
+     * luego busca binariamente en el último salto, así que cuesta del orden
+     * del logaritmo de la respuesta. */
+    private int galopa(int[] arreglo, int inicio, int fin, int clave, boolean empates) {
+        int n = fin - inicio;
+        // los primeros bajo van antes; el elemento alto - 1, si existe, no
+        int bajo = 0;
+        int alto = 1;
+        while (alto <= n && antes(arreglo[inicio + alto - 1], clave, empates)) {
+            bajo = alto;
+            if (alto > n / 2) {
+                alto = n + 1;
+                break;
+            }
+            alto *= 2;
+        }
+        alto = Math.min(alto - 1, n);
+        while (bajo < alto) {
+            int m = (bajo + alto) >>> 1;
+            if (antes(arreglo[inicio + m], clave, empates))
+                bajo = m + 1;
+            else
+                alto = m;
+        }
+        return bajo;
+    }
+
+    /* Nos dice si un elemento va antes que la clave, o empata con ella si así
+     * se pide. */
+    private boolean antes(int elemento, int clave, boolean empates) {
+        int c = comparador.compara(elemento, clave);
+        return c < 0 || (empates && c == 0);
+    }
+}
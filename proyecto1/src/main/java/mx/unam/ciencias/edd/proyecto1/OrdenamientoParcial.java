@@ -0,0 +1,242 @@
+package mx.unam.ciencias.edd.proyecto1;
+
+import java.io.IOException;
+import mx.unam.ciencias.edd.Estadisticas;
+
+/**
+ * <p>Ordenamiento parcial: sólo las primeras N líneas en orden.</p>
+ *
+ * <p>Las líneas pasan por un montículo máximo acotado a N elementos cuya raíz
+ * es la peor de las líneas guardadas. Una línea nueva sólo entra si va antes
+ * que la raíz, y entonces la reemplaza; así se usa tiempo O(n log N) y
+ * memoria O(N), sin guardar nunca toda la entrada. Al final el montículo se
+ * vacía de la peor a la mejor.</p>
+ *
+ * <p>Las líneas se comparan como en {@link Archivo#compara}; entre líneas
+ * iguales va antes la que se leyó primero, así que el resultado es idéntico
+ * a las primeras N líneas de ordenar todo. Una línea nueva se compara con la
+ * raíz con {@link TablaPesos} o {@link LlaveBytes} cuando se puede, y sólo se
+ * crea su {@link Linea} si entra al montículo o no es Latin-1.</p>
+ */
+public class OrdenamientoParcial {
+
+    /* Capacidad inicial del montículo, que crece hasta N. */
+    private static final int CAPACIDAD_INICIAL = 1 << 10;
+    /* Resultado de comparaTexto cuando el texto o la raíz no son Latin-1. */
+    private static final int SIN_LLAVE = Integer.MIN_VALUE;
+
+    // número de líneas que se escriben
+    private int limite;
+    // indica si se ordena en reversa
+    private boolean reversa;
+    // campos por los que se ordena, o null si se ordena por toda la línea
+    private Campos campos;
+    // las líneas guardadas, en un montículo con la peor en la raíz
+    private Linea[] lineas;
+    // número de lectura de cada línea guardada, para desempatar
+    private long[] lecturas;
+    // número de líneas guardadas
+    private int elementos;
+    // número de líneas leídas
+    private long leidas;
+    // la raíz cuya llave de bytes se calculó, y su llave, o null si no es
+    // Latin-1; casi cada línea nueva se compara con la misma raíz
+    private Linea raiz;
+    private byte[] llaveRaiz;
+
+    /**
+     * Crea un ordenamiento parcial.
+     *
+     * @param limite  Número de líneas que se escriben; debe ser positivo.
+     * @param reversa Si se debe ordenar en reversa.
+     */
+    public OrdenamientoParcial(int limite, boolean reversa) {
+        this.limite = limite;
+        this.reversa = reversa;
+        int capacidad = Math.min(limite, CAPACIDAD_INICIAL);
+        lineas = new Linea[capacidad];
+        lecturas = new long[capacidad];
+    }
+
+    /**
+     * Define los campos por los que se ordena. Se debe llamar antes de
+     * agregar líneas.
+     *
+     * @param campos Los campos, o null para ordenar por toda la línea.
+     */
+    public void setCampos(Campos campos) {
+        this.campos = campos;
+    }
+
+    /**
+     * Lee todas las líneas de una entrada.
+     *
+     * @param lector Entrada de la cual leer las líneas.
+     * @throws IOException Si ocurre un error al leer.
+     */
+    public void cargarArchivo(LectorLineas lector) throws IOException {
+        String linea = lector.leeLinea();
+        while (linea != null) {
+            agregaLinea(linea);
+            linea = lector.leeLinea();
+        }
+    }
+
+    /**
+     * Agrega una línea. Si ya se tienen N líneas y ésta no va antes que la
+     * peor de ellas, se descarta.
+     *
+     * @param linea La línea a agregar.
+     */
+    public void agregaLinea(String linea) {
+        long lectura = leidas++;
+        if (Estadisticas.activas())
+            Estadisticas.cuentaLineas(1);
+        if (elementos < limite) {
+            if (elementos == lineas.length)
+                crece();
+            int i = elementos++;
+            lineas[i] = new Linea(linea, campos);
+            lecturas[i] = lectura;
+            subir(i);
+            return;
+        }
+        if (Estadisticas.activas())
+            Estadisticas.cuentaLineas(-1);
+        // casi todas las líneas se descartan, así que sin campos primero se
+        // comparan los textos sin crear la línea nueva; la nueva se leyó
+        // después, así que empatada con la raíz va después
+        Linea nueva = null;
+        int c;
+        if (campos == null && (c = comparaTexto(linea)) != SIN_LLAVE) {
+            if (c >= 0)
+                return;
+        } else if (compara(nueva = new Linea(linea, campos), lineas[0]) >= 0) {
+            return;
+        }
+        if (nueva == null)
+            nueva = new Linea(linea);
+        lineas[0] = nueva;
+        lecturas[0] = lectura;
+        bajar(0, elementos);
+    }
+
+    /**
+     * Escribe en orden las líneas guardadas y las olvida. No cierra el
+     * escritor.
+     *
+     * @param salida Escritor donde se escriben las líneas.
+     * @throws IOException Si ocurre un error I/O.
+     */
+    public void escribe(EscritorSalida salida) throws IOException {
+        // cada peor línea se saca a la posición que queda libre al final
+        for (int n = elementos - 1; n > 0; n--) {
+            intercambia(0, n);
+            bajar(0, n);
+        }
+        for (int i = 0; i < elementos; i++)
+            salida.escribeLinea(lineas[i].getTexto());
+        if (Estadisticas.activas())
+            Estadisticas.cuentaLineas(-elementos);
+        lineas = new Linea[0];
+        lecturas = new long[0];
+        elementos = 0;
+        raiz = null;
+        llaveRaiz = null;
+    }
+
+    /* Duplica la capacidad del montículo sin pasar del límite. */
+    private void crece() {
+        int capacidad = (int) Math.min(limite, 2L * lineas.length);
+        Linea[] nuevas = new Linea[capacidad];
+        long[] nuevasLecturas = new long[capacidad];
+        System.arraycopy(lineas, 0, nuevas, 0, elementos);
+        System.arraycopy(lecturas, 0, nuevasLecturas, 0, elementos);
+        lineas = nuevas;
+        lecturas = nuevasLecturas;
+    }
+
+    /* Sube el elemento en la posición i del montículo hasta su lugar. */
+    private void subir(int i) {
+        while (i > 0) {
+            int padre = (i - 1) / 2;
+            if (!despues(i, padre))
+                return;
+            intercambia(i, padre);
+            i = padre;
+        }
+    }
+
+    /* Baja el elemento en la posición i de los primeros n elementos del
+     * montículo hasta su lugar. */
+    private void bajar(int i, int n) {
+        while (true) {
+            int izquierdo = 2 * i + 1;
+            int derecho = izquierdo + 1;
+            int maximo = i;
+            if (izquierdo < n && despues(izquierdo, maximo))
+                maximo = izquierdo;
+            if (derecho < n && despues(derecho, maximo))
+                maximo = derecho;
+            if (maximo == i)
+                return;
+            intercambia(i, maximo);
+            i = maximo;
+        }
+    }
+
+    /* Nos dice si la línea en la posición a va después que la línea en la
+     * posición b. */
+    private boolean despues(int a, int b) {
+        int c = compara(lineas[a], lineas[b]);
+        return c > 0 || (c == 0 && lecturas[a] > lecturas[b]);
+    }
+
+    /* Compara dos líneas en el orden del ordenamiento. */
+    private int compara(Linea a, Linea b) {
+        int c;
+        if (Estadisticas.activas()) {
+            long inicio = Estadisticas.iniciaComparacion();
+            c = a.compareTo(b);
+            Estadisticas.terminaComparacion(inicio);
+        } else {
+            c = a.compareTo(b);
+        }
+        return reversa ? -c : c;
+    }
+
+    /* Compara un texto con la raíz del montículo en el orden del
+     * ordenamiento sin pasar por el comparador: con la tabla de pesos si
+     * ambos son ASCII y si no con sus llaves de bytes, calculando la de la
+     * raíz una sola vez. Regresa SIN_LLAVE si alguno no es Latin-1. */
+    private int comparaTexto(String linea) {
+        long inicio = Estadisticas.activas() ? Estadisticas.iniciaComparacion() : 0;
+        Linea r = lineas[0];
+        int c;
+        if (r.esAscii() && TablaPesos.esAscii(linea)) {
+            c = TablaPesos.compara(linea, r.getTexto());
+        } else {
+            if (r != raiz) {
+                raiz = r;
+                llaveRaiz = LlaveBytes.llave(r.getTexto());
+            }
+            byte[] llave = (llaveRaiz == null) ? null : LlaveBytes.llave(linea);
+            if (llave == null)
+                return SIN_LLAVE;
+            c = LlaveBytes.compara(llave, llaveRaiz);
+        }
+        if (Estadisticas.activas())
+            Estadisticas.terminaComparacion(inicio);
+        return reversa ? -c : c;
+    }
+
+    /* Intercambia dos elementos del montículo. */
+    private void intercambia(int a, int b) {
+        Linea t = lineas[a];
+        lineas[a] = lineas[b];
+        lineas[b] = t;
+        long l = lecturas[a];
+        lecturas[a] = lecturas[b];
+        lecturas[b] = l;
+    }
+}
@@ -0,0 +1,192 @@
+package mx.unam.ciencias.edd.proyecto1;
+
+/**
+ * <p>Ordenamiento radix por el dígito más significativo (estilo <i>American
+ * flag</i>) sobre llaves de bytes.</p>
+ *
+ * <p>Se ordena un arreglo de índices en su lugar: en cada rango se cuentan las
+ * llaves por su byte en la profundidad actual, se permutan los índices a sus
+ * cubetas siguiendo ciclos y cada cubeta se ordena en la siguiente
+ * profundidad. Los prefijos comunes se recorren una sola vez por rango en
+ * lugar de una vez por comparación. Los rangos pequeños se ordenan por
+ * inserción comparando desde la profundidad actual.</p>
+ *
+ * <p>Las llaves se comparan byte por byte sin signo, y una llave que es prefijo
+ * de otra va antes. El ordenamiento es estable: las llaves iguales quedan en el
+ * orden de sus índices originales, como con {@link mx.unam.ciencias.edd.Lista#mergeSort}.</p>
+ */
+class OrdenamientoRadix {
+
+    /* Rangos de este tamaño o menos se ordenan por inserción. */
+    private static final int UMBRAL_INSERCION = 32;
+    /* Número de cubetas: una por byte más una para las llaves que se acaban. */
+    private static final int CUBETAS = 257;
+
+    /* Las llaves a ordenar. */
+    private byte[][] llaves;
+    /* Los índices de las llaves, en el orden que se va calculando. */
+    private int[] indices;
+    /* Si se ordena en reversa. */
+    private boolean reversa;
+    /* Pila de rangos pendientes: inicio, fin y profundidad. */
+    private int[] pila;
+    /* Tamaño de la pila. */
+    private int tope;
+
+    /* Construye el ordenamiento de las llaves. */
+    private OrdenamientoRadix(byte[][] llaves, boolean reversa) {
+        this.llaves = llaves;
+        this.reversa = reversa;
+        indices = new int[llaves.length];
+        for (int i = 0; i < indices.length; i++)
+            indices[i] = i;
+        pila = new int[3 * 64];
+    }
+
+    /**
+     * Ordena las llaves y regresa la permutación que las ordena.
+     *
+     * @param llaves las llaves; no se modifican.
+     * @param reversa si se ordena de mayor a menor.
+     * @return un arreglo con los índices de las llaves en orden; los índices
+     *         de llaves iguales quedan en orden creciente.
+     */
+    static int[] ordena(byte[][] llaves, boolean reversa) {
+        OrdenamientoRadix radix = new OrdenamientoRadix(llaves, reversa);
+        radix.ordena();
+        return radix.indices;
+    }
+
+    /* Ordena todos los índices procesando los rangos de la pila. */
+    private void ordena() {
+        int[] cuenta = new int[CUBETAS];
+        int[] siguiente = new int[CUBETAS];
+        int[] fin = new int[CUBETAS];
+        mete(0, indices.length, 0);
+        while (tope > 0) {
+            tope -= 3;
+            int inicio = pila[tope];
+            int termino = pila[tope + 1];
+            int profundidad = pila[tope + 2];
+            if (termino - inicio <= UMBRAL_INSERCION) {
+                insercion(inicio, termino, profundidad);
+                continue;
+            }
+            for (int c = 0; c < CUBETAS; c++)
+                cuenta[c] = 0;
+            for (int i = inicio; i < termino; i++)
+                cuenta[cubeta(indices[i], profundidad)]++;
+            int p = inicio;
+            for (int c = 0; c < CUBETAS; c++) {
+                siguiente[c] = p;
+                p += cuenta[c];
+                fin[c] = p;
+            }
+            /* Permuta los índices a sus cubetas siguiendo ciclos. */
+            for (int c = 0; c < CUBETAS; c++) {
+                while (siguiente[c] < fin[c]) {
+                    int v = indices[siguiente[c]];
+                    int cv = cubeta(v, profundidad);
+                    while (cv != c) {
+                        int t = indices[siguiente[cv]];
+                        indices[siguiente[cv]++] = v;
+                        v = t;
+                        cv = cubeta(v, profundidad);
+                    }
+                    indices[siguiente[c]++] = v;
+                }
+            }
+            int ultima = reversa ? CUBETAS - 1 : 0;
+            for (int c = 0; c < CUBETAS; c++) {
+                int i = fin[c] - cuenta[c];
+                if (cuenta[c] < 2)
+                    continue;
+                if (c == ultima)
+                    ordenaIndices(i, fin[c]);
+                else
+                    mete(i, fin[c], profundidad + 1);
+            }
+        }
+    }
+
+    /* Regresa la cubeta de la llave con el índice en la profundidad: 0 si la
+     * llave se acabó y 1 más el byte si no; en reversa se invierte. */
+    private int cubeta(int indice, int profundidad) {
+        byte[] llave = llaves[indice];
+        int c = profundidad < llave.length ? 1 + (llave[profundidad] & 0xFF) : 0;
+        return reversa ? CUBETAS - 1 - c : c;
+    }
+
+    /* Mete un rango a la pila, creciéndola si hace falta. */
+    private void mete(int inicio, int termino, int profundidad) {
+        if (tope == pila.length) {
+            int[] nueva = new int[2 * pila.length];
+            for (int i = 0; i < tope; i++)
+                nueva[i] = pila[i];
+            pila = nueva;
+        }
+        pila[tope++] = inicio;
+        pila[tope++] = termino;
+        pila[tope++] = profundidad;
+    }
+
+    /* Ordena por inserción un rango cuyas llaves coinciden antes de la
+     * profundidad; los empates se rompen por índice. */
+    private void insercion(int inicio, int termino, int profundidad) {
+        for (int i = inicio + 1; i < termino; i++) {
+            int v = indices[i];
+            int j = i - 1;
+            while (j >= inicio && compara(indices[j], v, profundidad) > 0) {
+                indices[j + 1] = indices[j];
+                j--;
+            }
+            indices[j + 1] = v;
+        }
+    }
+
+    /* Compara dos llaves desde la profundidad, y por índice si son iguales. */
+    private int compara(int a, int b, int profundidad) {
+        byte[] la = llaves[a];
+        byte[] lb = llaves[b];
+        int n = Math.min(la.length, lb.length);
+        for (int i = profundidad; i < n; i++) {
+            int d = (la[i] & 0xFF) - (lb[i] & 0xFF);
+            if (d != 0)
+                return reversa ? -d : d;
+        }
+        int d = la.length - lb.length;
+        if (d != 0)
+            return reversa ? -d : d;
+        return a - b;
+    }
+
+    /* Ordena un rango de índices de llaves iguales de menor a mayor, con
+     * heapsort para no usar memoria extra. */
+    private void ordenaIndices(int inicio, int termino) {
+        int n = termino - inicio;
+        for (int i = n / 2 - 1; i >= 0; i--)
+            hunde(inicio, i, n);
+        for (int m = n - 1; m > 0; m--) {
+            int t = indices[inicio];
+            indices[inicio] = indices[inicio + m];
+            indices[inicio + m] = t;
+            hunde(inicio, 0, m);
+        }
+    }
+
+    /* Hunde el elemento i del montículo de máximos de tamaño n que empieza en
+     * inicio. */
+    private void hunde(int inicio, int i, int n) {
+        int v = indices[inicio + i];
+        while (2 * i + 1 < n) {
+            int h = 2 * i + 1;
+            if (h + 1 < n && indices[inicio + h + 1] > indices[inicio + h])
+                h++;
+            if (indices[inicio + h] <= v)
+                break;
+            indices[inicio + i] = indices[inicio + h];
+            i = h;
+        }
+        indices[inicio + i] = v;
+    }
+}
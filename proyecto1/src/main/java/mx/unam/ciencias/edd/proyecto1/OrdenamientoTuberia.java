@@ -0,0 +1,323 @@
+package mx.unam.ciencias.edd.proyecto1;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import mx.unam.ciencias.edd.Estadisticas;
+import mx.unam.ciencias.edd.Lista;
+
+/**
+ * <p>Ordenamiento en tubería: leer, construir llaves y ordenar al mismo
+ * tiempo.</p>
+ *
+ * <p>El hilo que lee junta las líneas en lotes y los pasa por una cola acotada
+ * a los hilos trabajadores, que ordenan cada lote (y con ello calculan sus
+ * llaves) mientras se sigue leyendo. Cuando la entrada se acaba sólo falta
+ * mezclar los lotes ordenados con un montículo mínimo, comparando con las
+ * llaves que se calcularon al ordenar cada lote. Los empates se
+ * resuelven a favor del lote más antiguo, así que el resultado es idéntico al
+ * de ordenar todo de una vez.</p>
+ *
+ * <p>Sin repetidos, cada lote se ordena ya sin ellos y la mezcla descarta las
+ * líneas iguales a la última que escribió.</p>
+ */
+public class OrdenamientoTuberia {
+
+    /* Número de líneas de cada lote. */
+    private static final int TAMANO_LOTE = 1 << 16;
+    /* Lotes que pueden esperar en la cola por cada trabajador. */
+    private static final int LOTES_POR_TRABAJADOR = 2;
+    /* Lote vacío que avisa a un trabajador que ya no hay más lotes. */
+    private static final Archivo FIN = new Archivo();
+
+    /* Un lote ordenado abierto para mezclarse. */
+    private static class Cursor {
+        /* El lote. */
+        private Archivo lote;
+        /* Posición de la línea actual en el lote. */
+        private int posicion;
+        /* Orden del lote, para desempatar. */
+        private int indice;
+
+        /* Abre el lote en su primera línea. */
+        public Cursor(Archivo lote, int indice) {
+            this.lote = lote;
+            this.indice = indice;
+        }
+
+        /* Avanza a la siguiente línea; regresa false si el lote se acabó. */
+        public boolean avanza() {
+            return ++posicion < lote.getNumeroLineas();
+        }
+    }
+
+    // indica si se ordena en reversa
+    private boolean reversa;
+    // indica si se descartan las líneas repetidas
+    private boolean unico;
+    // motor con el que se ordena cada lote
+    private Motor motor = Motor.COLADOR;
+    // si los lotes guardan sus líneas fuera del montículo
+    private boolean fueraDelMonticulo;
+    // campos por los que se ordena, o null si se ordena por toda la línea
+    private Campos campos;
+    // lote que se está llenando
+    private Archivo lote;
+    // lotes en el orden en que se leyeron
+    private Lista<Archivo> lotes;
+    // cola de lotes por ordenar
+    private BlockingQueue<Archivo> cola;
+    // hilos que ordenan los lotes
+    private Thread[] trabajadores;
+    // primer error de algún trabajador, o null si no ha habido
+    private volatile RuntimeException error;
+
+    /**
+     * Crea un ordenamiento en tubería.
+     *
+     * @param reversa Si se debe ordenar en reversa.
+     * @param hilos   Número de hilos que ordenan los lotes, además del que lee;
+     *                debe ser positivo.
+     */
+    public OrdenamientoTuberia(boolean reversa, int hilos) {
+        this.reversa = reversa;
+        lotes = new Lista<>();
+        cola = new ArrayBlockingQueue<>(LOTES_POR_TRABAJADOR * hilos);
+        trabajadores = new Thread[hilos];
+    }
+
+    /**
+     * Define el motor con el que se ordena cada lote.
+     *
+     * @param motor El motor de ordenamiento.
+     */
+    public void setMotor(Motor motor) {
+        this.motor = motor;
+    }
+
+    /**
+     * Define si se descartan las líneas repetidas. De cada grupo de líneas
+     * iguales sólo se queda la primera que se leyó. Se debe llamar antes de
+     * agregar líneas.
+     *
+     * @param unico Si se descartan las líneas repetidas.
+     */
+    public void setUnico(boolean unico) {
+        this.unico = unico;
+    }
+
+    /**
+     * Define los campos por los que se ordena. Se debe llamar antes de
+     * agregar líneas.
+     *
+     * @param campos Los campos, o null para ordenar por toda la línea.
+     */
+    public void setCampos(Campos campos) {
+        this.campos = campos;
+    }
+
+    /**
+     * Define si los lotes guardan sus líneas fuera del montículo. Se debe
+     * llamar antes de agregar líneas.
+     *
+     * @param fueraDelMonticulo Si las líneas se guardan fuera del montículo.
+     */
+    public void setFueraDelMonticulo(boolean fueraDelMonticulo) {
+        this.fueraDelMonticulo = fueraDelMonticulo;
+    }
+
+    /**
+     * Lee todas las líneas de una entrada. Cada lote lleno se pasa a los
+     * trabajadores.
+     *
+     * @param lector Entrada de la cual leer las líneas.
+     * @throws IOException Si ocurre un error al leer.
+     */
+    public void cargarArchivo(LectorLineas lector) throws IOException {
+        String linea = lector.leeLinea();
+        while (linea != null) {
+            agregaLinea(linea);
+            linea = lector.leeLinea();
+        }
+    }
+
+    /**
+     * Agrega una línea al lote actual.
+     *
+     * @param linea La línea a agregar.
+     */
+    public void agregaLinea(String linea) {
+        if (lote == null)
+            lote = nuevoLote();
+        lote.agregaLinea(linea);
+        if (lote.getNumeroLineas() == TAMANO_LOTE) {
+            encola(lote);
+            lote = null;
+        }
+    }
+
+    /**
+     * Espera a que se ordenen todos los lotes, los mezcla y escribe las líneas
+     * ordenadas. No cierra el escritor.
+     *
+     * @param salida Escritor donde se escriben las líneas.
+     * @throws IOException Si ocurre un error I/O.
+     */
+    public void escribe(EscritorSalida salida) throws IOException {
+        try {
+            if (lote != null)
+                encola(lote);
+            lote = null;
+            for (Thread trabajador : trabajadores) {
+                if (trabajador == null)
+                    continue;
+                encola(FIN);
+            }
+            for (Thread trabajador : trabajadores)
+                if (trabajador != null)
+                    trabajador.join();
+            if (error != null)
+                throw error;
+            mezcla(salida);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Se interrumpió el ordenamiento.", e);
+        } finally {
+            for (Archivo l : lotes)
+                l.libera();
+            lotes.limpia();
+        }
+    }
+
+    /* Crea un lote vacío con el motor y el almacenamiento del ordenamiento. */
+    private Archivo nuevoLote() {
+        Archivo nuevo = new Archivo();
+        nuevo.setMotor(motor);
+        nuevo.setFueraDelMonticulo(fueraDelMonticulo);
+        nuevo.setUnico(unico);
+        nuevo.setCampos(campos);
+        return nuevo;
+    }
+
+    /* Pasa un lote a los trabajadores, arrancando uno más si aún no están
+     * todos. Si la cola está llena espera. */
+    private void encola(Archivo l) {
+        if (l != FIN) {
+            lotes.agregaFinal(l);
+            for (int i = 0; i < trabajadores.length; i++) {
+                if (trabajadores[i] == null) {
+                    trabajadores[i] = new Thread(this::trabaja, "sort-lotes-" + i);
+                    trabajadores[i].setDaemon(true);
+                    trabajadores[i].start();
+                    break;
+                }
+            }
+        }
+        try {
+            cola.put(l);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Se interrumpió la lectura.", e);
+        }
+        if (error != null)
+            throw error;
+    }
+
+    /* Ordena los lotes de la cola hasta recibir FIN. Si las estadísticas
+     * están prendidas, al terminar suma los bytes que asignó. */
+    private void trabaja() {
+        long asignados = Estadisticas.activas() ? Estadisticas.asignadosHilo() : -1;
+        try {
+            Archivo l;
+            while ((l = cola.take()) != FIN) {
+                // después de un error sólo se vacía la cola
+                if (error != null)
+                    continue;
+                try {
+                    if (reversa)
+                        l.ordenaReversa();
+                    else
+                        l.ordena();
+                } catch (RuntimeException e) {
+                    error = e;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (asignados >= 0)
+                Estadisticas.sumaAsignados(Estadisticas.asignadosHilo() - asignados);
+        }
+    }
+
+    /* Mezcla los lotes ordenados y escribe el resultado. Sin repetidos,
+     * descarta las líneas iguales a la última que escribió. */
+    private void mezcla(EscritorSalida salida) throws IOException {
+        Cursor[] monticulo = new Cursor[lotes.getLongitud()];
+        int elementos = 0;
+        int indice = 0;
+        // lote y posición de la última línea escrita
+        Archivo loteAnterior = null;
+        int anterior = 0;
+        for (Archivo l : lotes) {
+            if (!l.esVacio())
+                monticulo[elementos++] = new Cursor(l, indice);
+            indice++;
+        }
+        for (int i = elementos / 2 - 1; i >= 0; i--)
+            bajar(monticulo, elementos, i);
+        while (elementos > 1) {
+            Cursor minimo = monticulo[0];
+            if (!repetida(loteAnterior, anterior, minimo)) {
+                salida.escribeLinea(minimo.lote.getLinea(minimo.posicion));
+                loteAnterior = minimo.lote;
+                anterior = minimo.posicion;
+            }
+            if (!minimo.avanza())
+                monticulo[0] = monticulo[--elementos];
+            bajar(monticulo, elementos, 0);
+        }
+        // al último lote ya no hay con qué compararlo, salvo su primera línea
+        // con la última escrita
+        if (elementos == 1) {
+            Cursor ultimo = monticulo[0];
+            if (repetida(loteAnterior, anterior, ultimo))
+                ultimo.posicion++;
+            for (int i = ultimo.posicion; i < ultimo.lote.getNumeroLineas(); i++)
+                salida.escribeLinea(ultimo.lote.getLinea(i));
+        }
+    }
+
+    /* Baja el elemento en la posición i del montículo hasta su lugar. */
+    private void bajar(Cursor[] monticulo, int elementos, int i) {
+        while (true) {
+            int izquierdo = 2 * i + 1;
+            int derecho = izquierdo + 1;
+            int minimo = i;
+            if (izquierdo < elementos && antes(monticulo[izquierdo], monticulo[minimo]))
+                minimo = izquierdo;
+            if (derecho < elementos && antes(monticulo[derecho], monticulo[minimo]))
+                minimo = derecho;
+            if (minimo == i)
+                return;
+            Cursor t = monticulo[i];
+            monticulo[i] = monticulo[minimo];
+            monticulo[minimo] = t;
+            i = minimo;
+        }
+    }
+
+    /* Nos dice si, sin repetidos, la línea actual del cursor es igual a la
+     * línea en la posición indicada de un lote. */
+    private boolean repetida(Archivo lote, int posicion, Cursor c) {
+        return unico && lote != null && Archivo.compara(lote, posicion, c.lote, c.posicion) == 0;
+    }
+
+    /* Nos dice si la línea actual de a va antes que la de b. */
+    private boolean antes(Cursor a, Cursor b) {
+        int c = Archivo.compara(a.lote, a.posicion, b.lote, b.posicion);
+        if (reversa)
+            c = -c;
+        return c < 0 || (c == 0 && a.indice < b.indice);
+    }
+}
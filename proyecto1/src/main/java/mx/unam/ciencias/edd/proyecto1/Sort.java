@@ -1,34 +1,160 @@
 package mx.unam.ciencias.edd.proyecto1;
 
-import java.io.FileWriter;
-import java.io.FileReader;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.BufferedReader;
+import java.nio.charset.Charset;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import mx.unam.ciencias.edd.Estadisticas;
+import mx.unam.ciencias.edd.Lista;
 
 /**
  * Clase para ordenar archivos lexicograficamente. Los archivos a ordenar se
  * pasan como argumentos al constructor de la clase. Todos los archivos se
  * ordenan como uno solo. Admite las banderas -o para guardar el resultado en un
- * fichero y -r para invertir el orden.
+ * fichero, -r para invertir el orden, -u para descartar las líneas repetidas,
+ * -m para mezclar archivos que ya están ordenados y -c para sólo verificar que
+ * estén ordenados. Con -k se ordena por campos, separados por el caracter que
+ * indique -t, y con -n por el número con que empiezan. Con -S se fija un
+ * presupuesto de memoria y las entradas más grandes se ordenan en disco, en el
+ * directorio que indique -T. Con --parallel el ordenamiento usa varios hilos,
+ * con --engine se elige el motor de ordenamiento y con --off-heap las líneas se
+ * guardan fuera del montículo. Con --pipeline se ordena por lotes mientras se
+ * lee y con --head sólo se escriben las primeras líneas. Las entradas
+ * comprimidas con gzip se descomprimen solas, y con --gzip se comprimen la
+ * salida de -o y las corridas en disco. Con --index el orden de cada archivo se
+ * guarda en un índice junto a él, y si el archivo no cambia la siguiente vez no
+ * se ordena. Con --debug se reporta en la salida de error cuánto tardó en
+ * leerse cada entrada, y con --stats cuánto tardó cada fase, cuántas
+ * comparaciones se hicieron y cuánta memoria se asignó.
  */
 public class Sort {
+
+    // máximo de archivos que se leen a la vez
+    private static final int MAXIMO_LECTORES = 8;
+
+    /* Flujo que cuenta los bytes que se leen de él. */
+    private static class FlujoContado extends FilterInputStream {
+        /* Bytes leídos. */
+        private long bytes;
+
+        /* Envuelve al flujo. */
+        public FlujoContado(InputStream flujo) {
+            super(flujo);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1)
+                bytes++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0)
+                bytes += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long saltados = super.skip(n);
+            bytes += saltados;
+            return saltados;
+        }
+    }
+
     // indica si el arvhivo se debe ordenar en reversa
     private boolean reversa;
+    // indica si se descartan las líneas repetidas
+    private boolean unico;
+    // indica si las entradas ya están ordenadas y sólo se mezclan
+    private boolean mezcla;
+    // indica si sólo se verifica que las entradas estén ordenadas
+    private boolean verificacion;
     // ruta donde se va a guardar el archivo ordenado. Si no se especifica la ruta
     // tiene valor null
     private String ruta;
     // el archivo a ordenar
     private Archivo archivo;
+    // rutas de los archivos a ordenar, en el orden en que se recibieron
+    private Lista<String> rutas;
+    // presupuesto de memoria en bytes para el ordenamiento externo. Si no se
+    // especifica vale 0 y todo se ordena en memoria
+    private long memoria;
+    // directorio para los archivos temporales del ordenamiento externo
+    private File temporales;
+    // número de hilos con los que se ordena
+    private int hilos = 1;
+    // motor de ordenamiento
+    private Motor motor = Motor.COLADOR;
+    // indica si las líneas se guardan fuera del montículo
+    private boolean fueraDelMonticulo;
+    // indica si se reporta información de depuración en la salida de error
+    private boolean depuracion;
+    // indica si se lee y se ordena al mismo tiempo
+    private boolean tuberia;
+    // número de líneas que se escriben, o 0 si se escriben todas
+    private int primeras;
+    // indica si se reportan estadísticas en la salida de error
+    private boolean estadisticas;
+    // nanosegundos que tomó cada fase; el ordenamiento vale -1 si se hizo
+    // junto con la lectura y la escritura
+    private long nanosLectura, nanosOrden = -1, nanosEscritura;
+    // entrada estándar con sus bytes contados, o null si no se leyó
+    private FlujoContado entradaEstandar;
+    // campos por los que se ordena, o null si se ordena por toda la línea
+    private Campos campos;
+    // indica si se ordena por el número con que empiezan las líneas o campos
+    private boolean numerico;
+    // indica si se comprimen la salida de -o y las corridas en disco
+    private boolean comprimir;
+    // indica si el orden de cada archivo se guarda y se reutiliza en un índice
+    private boolean indexar;
+    // salida ordenada de una ejecución anterior, o null si se ordena todo
+    private String previa;
+    // bytes del archivo que ya están en la salida anterior, o -1 si no se dan
+    private long desplazamiento = -1;
 
     /**
-     * Constructor que crea la aplicación a partir de los argumentos que le pasen.
-     * Los argumentos pueden ser -r para ordenar los archivos en reversa, -o seguido
-     * de una ruta para guardar el archivo ordenado en la ruta. Además puede recibir
-     * rutas correspondientes a los archivos a ordenar, estos se ordenan como uno
-     * solo. Si no se reciben archivos a ordenar se toma la entrada estándar.
+     * Constructor que crea la aplicación a partir de los argumentos que le
+     * pasen. Los argumentos pueden ser -r para ordenar los archivos en reversa,
+     * -u para descartar las líneas repetidas, -m para mezclar entradas ya
+     * ordenadas, -c para verificar que cada entrada esté ordenada, -o seguido
+     * de una ruta para guardar el archivo ordenado en la ruta, -k seguido de
+     * campos inicio[,fin] para ordenar por esos campos (puede repetirse), -t
+     * seguido de un caracter para separar los campos con él, -n para ordenar
+     * por el número con que empiezan las líneas o campos, -S seguido de un
+     * tamaño (con sufijo K, M o G opcional) para ordenar en disco usando a lo
+     * más esa memoria, y -T seguido del directorio para los archivos temporales
+     * del ordenamiento en disco, y --parallel[=N] para ordenar con N hilos (por
+     * omisión, uno por procesador) y --engine=M para ordenar con el motor M
+     * (collator, bytes o radix), --off-heap para guardar las líneas fuera del
+     * montículo, --pipeline para ordenar por lotes mientras se lee, --head N
+     * para escribir sólo las primeras N líneas, --gzip para comprimir el
+     * archivo de salida y las corridas en disco, --index para guardar y
+     * reutilizar el orden de cada archivo en un índice junto a él, --previous
+     * seguido de una salida ordenada anterior y --offset seguido de los bytes
+     * del archivo que ya estaban en ella para ordenar sólo las líneas agregadas
+     * después y mezclarlas con esa salida, --debug para reportar la lectura de
+     * cada entrada y --stats para reportar tiempos, comparaciones y memoria.
+     * Además puede recibir rutas correspondientes a los archivos a ordenar,
+     * estos se ordenan como uno solo. Si no se reciben archivos a ordenar se
+     * toma la entrada estándar.
      * 
      * @param argumentos Un arreglo que contiene los argumentos que se le pasan a la
      *                   aplicación.
@@ -38,6 +164,8 @@ public class Sort {
      */
     public Sort(String[] argumentos) {
         archivo = new Archivo();
+        rutas = new Lista<>();
+        temporales = new File(System.getProperty("java.io.tmpdir"));
         // procesa los argumentos
         for (int i = 0; i < argumentos.length; i++) {
             String cadena = argumentos[i];
@@ -45,12 +173,49 @@ public class Sort {
                 int salto = manejarBandera(argumentos, cadena, i);
                 i += salto; // se salta los argumentos ya procesados por manejarBandera.
             } else {
-                leerArchivo(cadena);
+                // las tuberías con nombre y /dev/fd/N no son archivos
+                // regulares; si no se pueden leer, lo reporta al abrirlas
+                File f = new File(cadena);
+                if (!f.exists() || f.isDirectory())
+                    throw new ExcepcionArchivoNoEncontrado("No se pudo leer: " + cadena);
+                rutas.agregaFinal(cadena);
             }
         }
-        // Si no se pasó como parámetro ningún archivo se toma la entrada estándar.
-        if (archivo.esVacio())
-            leerArchivo(null);
+        if (unico && primeras > 0)
+            throw new ExcepcionArgumentoInvalido("La opcion 'head' no se puede combinar con -u.");
+        // sin -o ni -S no hay nada que comprimir; la salida estándar se
+        // escribe tal cual
+        if (comprimir && ruta == null && memoria == 0)
+            throw new ExcepcionArgumentoInvalido("La opcion 'gzip' necesita -o o -S.");
+        if (indexar && rutas.esVacia())
+            throw new ExcepcionArgumentoInvalido("La opcion 'index' necesita archivos.");
+        if ((previa == null) != (desplazamiento < 0))
+            throw new ExcepcionArgumentoInvalido(
+                "Las opciones 'previous' y 'offset' se deben usar juntas.");
+        // cada una elige un modo distinto de ejecutar
+        int modos = (primeras > 0 ? 1 : 0) + (mezcla ? 1 : 0) + (verificacion ? 1 : 0)
+            + (indexar ? 1 : 0);
+        if (modos > 1)
+            throw new ExcepcionArgumentoInvalido(
+                "Las opciones --head, -m, -c y --index no se pueden combinar.");
+        if (tuberia && memoria > 0)
+            throw new ExcepcionArgumentoInvalido("La opcion 'pipeline' no se puede combinar con -S.");
+        if (verificacion && ruta != null)
+            throw new ExcepcionArgumentoInvalido("La opcion 'c' no se puede combinar con -o.");
+        if (previa != null && rutas.getLongitud() != 1)
+            throw new ExcepcionArgumentoInvalido("La opcion 'previous' necesita un solo archivo.");
+        if (previa != null && (mezcla || verificacion || primeras > 0 || indexar))
+            throw new ExcepcionArgumentoInvalido(
+                "La opcion 'previous' no se puede combinar con -m, -c, --head ni --index.");
+        // sin llaves, los números se toman de toda la línea y un separador
+        // no cambia el orden
+        if (numerico) {
+            getCampos().setNumerico(true);
+            if (campos.getNumeroLlaves() == 0)
+                campos.agregaLlave(1, 0);
+        }
+        if (campos != null && campos.getNumeroLlaves() == 0)
+            campos = null;
     }
 
     /**
@@ -61,65 +226,662 @@ public class Sort {
      * @throws ExcepcionArchivoNoEncontrado Si no se puede acceder a la ruta para guardar el archivo.
      */
     public void ejecutar() {
-        if (reversa)
-            archivo.ordenaReversa();
-        else
-            archivo.ordena();
-        if (ruta != null)
-            guardarArchivo();
+        archivo.setHilos(hilos);
+        archivo.setMotor(motor);
+        archivo.setFueraDelMonticulo(fueraDelMonticulo);
+        archivo.setUnico(unico);
+        archivo.setCampos(campos);
+        long asignados = -1;
+        if (estadisticas) {
+            Estadisticas.reinicia();
+            Estadisticas.setActivas(true);
+            asignados = Estadisticas.asignadosHilo();
+        }
+        if (verificacion)
+            ejecutarVerificacion();
+        else if (primeras > 0)
+            ejecutarParcial();
+        else if (mezcla)
+            ejecutarMezcla();
+        else if (indexar)
+            ejecutarIndexado();
+        else if (previa != null)
+            ejecutarIncremental();
+        else if (memoria > 0)
+            ejecutarExterno();
+        else if (tuberia)
+            ejecutarTuberia();
         else
-            archivo.imprimirArchivo();
+            ejecutarEnMemoria();
+        if (estadisticas) {
+            Estadisticas.setActivas(false);
+            reportarEstadisticas(asignados < 0 ? -1 : Estadisticas.asignadosHilo() - asignados);
+        }
     }
 
     /**
-     * Guarda el archivo en el sistema.
+     * Lee todas las entradas, las ordena en memoria y las escribe.
      */
-    private void guardarArchivo() {
-        FileWriter f = null;
+    private void ejecutarEnMemoria() {
+        // Si no se pasó como parámetro ningún archivo se toma la entrada estándar.
         try {
-            f = new FileWriter(new File(ruta));
-        } catch (FileNotFoundException e) {
-            throw new ExcepcionArchivoNoEncontrado("No se pudo abrir: " + e.getMessage(), e);
+            long inicio = System.nanoTime();
+            if (rutas.getLongitud() > 1)
+                leerArchivosConcurrentes();
+            else
+                leerArchivo(rutas.esVacia() ? null : rutas.getPrimero());
+            long leido = System.nanoTime();
+            if (reversa)
+                archivo.ordenaReversa();
+            else
+                archivo.ordena();
+            long ordenado = System.nanoTime();
+            if (ruta != null) {
+                guardarArchivo();
+            } else {
+                try {
+                    archivo.imprimirArchivo();
+                } catch (IOException e) {
+                    reportaError(e);
+                }
+            }
+            nanosLectura = leido - inicio;
+            nanosOrden = ordenado - leido;
+            nanosEscritura = System.nanoTime() - ordenado;
+        } finally {
+            archivo.libera();
+        }
+    }
+
+    /**
+     * Ordena las entradas en bloques que caben en el presupuesto de memoria,
+     * usando el disco para las corridas intermedias.
+     */
+    private void ejecutarExterno() {
+        OrdenamientoExterno externo = new OrdenamientoExterno(memoria, temporales, reversa);
+        externo.setHilos(hilos);
+        externo.setMotor(motor);
+        externo.setFueraDelMonticulo(fueraDelMonticulo);
+        externo.setUnico(unico);
+        externo.setCampos(campos);
+        externo.setComprimido(comprimir);
+        try {
+            long inicio = System.nanoTime();
+            if (rutas.esVacia())
+                externo.cargarArchivo(abrirEntrada(null));
+            for (String r : rutas) {
+                try (LectorLineas lector = abrirEntrada(r)) {
+                    externo.cargarArchivo(lector);
+                }
+            }
+            long leido = System.nanoTime();
+            EscritorSalida salida = (ruta != null)
+                ? abrirSalida()
+                : EscritorSalida.salidaEstandar();
+            try {
+                externo.escribe(salida);
+            } finally {
+                salida.close();
+            }
+            nanosLectura = leido - inicio;
+            nanosEscritura = System.nanoTime() - leido;
         } catch (IOException e) {
-            e.printStackTrace();
+            reportaError(e);
         }
+    }
+
+    /**
+     * Escribe los archivos en orden usando el índice de cada uno. Los
+     * archivos sin índice válido se ordenan en memoria y su índice se
+     * reconstruye. Un solo archivo se escribe directamente en el orden de su
+     * índice; varios se mezclan como con -m.
+     */
+    private void ejecutarIndexado() {
+        Charset codificacion = Charset.defaultCharset();
+        if (!LectorMapeado.soporta(codificacion))
+            throw new ExcepcionArgumentoInvalido(
+                "La opcion 'index' no admite la codificación " + codificacion + ".");
+        String firma = firmaIndice();
+        Lista<IndiceOrden> indices = new Lista<>();
         try {
-            archivo.escribirFichero(f);
+            long inicio = System.nanoTime();
+            // cargarIndice suma lo que tarda en ordenar los que reconstruye
+            nanosOrden = 0;
+            for (String r : rutas)
+                indices.agregaFinal(cargarIndice(r, firma, codificacion));
+            long leido = System.nanoTime();
+            // las líneas se copian de los archivos mapeados mientras se
+            // escribe, así que -o no puede truncar a uno de ellos
+            File temporal = temporalDeSalida(rutas);
+            EscritorSalida salida = abrirSalida(temporal);
+            try {
+                if (indices.getLongitud() == 1) {
+                    indices.getPrimero().escribe(salida);
+                } else {
+                    MezclaOrdenada mezclaOrdenada = new MezclaOrdenada(reversa);
+                    mezclaOrdenada.setUnico(unico);
+                    mezclaOrdenada.setCampos(campos);
+                    int i = 0;
+                    for (IndiceOrden indice : indices)
+                        mezclaOrdenada.agregaEntrada(rutas.get(i++), indice.lector());
+                    mezclaOrdenada.escribe(salida);
+                }
+            } catch (IOException | RuntimeException e) {
+                descartarSalida(salida, temporal);
+                throw e;
+            }
+            cerrarSalida(salida, temporal);
+            nanosLectura = leido - inicio - nanosOrden;
+            nanosEscritura = System.nanoTime() - leido;
         } catch (IOException e) {
-            e.printStackTrace();
+            reportaError(e);
+        }
+    }
+
+    /**
+     * Carga el índice de un archivo, o lo construye y lo guarda si no tiene
+     * uno válido. Si el índice no se puede guardar sólo se avisa. Lo que
+     * tarda en ordenar un índice que se reconstruye se suma a nanosOrden.
+     */
+    private IndiceOrden cargarIndice(String rutaArchivo, String firma, Charset codificacion)
+        throws IOException {
+        File f = new File(rutaArchivo);
+        if (Gzip.esGzip(f))
+            throw new ExcepcionArgumentoInvalido(
+                "La opcion 'index' no admite archivos comprimidos: " + rutaArchivo);
+        IndiceOrden indice = new IndiceOrden(f, firma, codificacion);
+        if (indice.carga())
+            return indice;
+        Archivo parte = new Archivo();
+        parte.setHilos(hilos);
+        parte.setMotor(motor);
+        parte.setFueraDelMonticulo(fueraDelMonticulo);
+        parte.setUnico(unico);
+        parte.setCampos(campos);
+        try {
+            indice.lee(parte);
+            long leido = System.nanoTime();
+            indice.ordena(parte, reversa);
+            nanosOrden += System.nanoTime() - leido;
         } finally {
+            parte.libera();
+        }
+        try {
+            indice.guarda();
+        } catch (IOException e) {
+            System.err.println("No se pudo guardar el índice de " + rutaArchivo + ": "
+                               + e.getMessage());
+        }
+        return indice;
+    }
+
+    /**
+     * Regresa la firma de las opciones que cambian el orden, para saber si un
+     * índice se hizo con las mismas. Incluye el locale, del que depende el
+     * comparador.
+     */
+    private String firmaIndice() {
+        return String.format("locale %s, codificación %s, reversa %b, únicas %b, campos %s",
+                             Locale.getDefault().toLanguageTag(),
+                             Charset.defaultCharset().name(), reversa, unico,
+                             campos == null ? "ninguno" : campos.toString());
+    }
+
+    /**
+     * Ordena sólo las líneas que se agregaron al archivo después de los bytes
+     * de la salida anterior y las inserta en ella, copiando tal cual el resto
+     * de la salida anterior; si está comprimida se mezcla línea por línea. Si
+     * la salida es el mismo archivo que la anterior, se escribe en un temporal
+     * junto a ella que al final la reemplaza. Reporta en la salida de error
+     * hasta qué byte queda ordenado el archivo, para la siguiente ejecución;
+     * una última línea sin terminar se deja para entonces.
+     */
+    private void ejecutarIncremental() {
+        String fuente = rutas.getPrimero();
+        Charset codificacion = Charset.defaultCharset();
+        try {
+            if (Gzip.esGzip(new File(fuente)))
+                throw new ExcepcionArgumentoInvalido(
+                    "La opcion 'previous' no admite archivos comprimidos: " + fuente);
+            OrdenamientoIncremental incremental = new OrdenamientoIncremental(archivo, reversa);
+            incremental.setUnico(unico);
+            incremental.setCampos(campos);
+            long inicio = System.nanoTime();
+            long ordenados = incremental.cargaAgregadas(new File(fuente), desplazamiento,
+                                                        codificacion);
+            long leido = System.nanoTime();
+            File anterior = new File(previa);
+            Lista<String> leidas = new Lista<>();
+            leidas.agregaFinal(previa);
+            leidas.agregaFinal(fuente);
+            File temporal = temporalDeSalida(leidas);
+            EscritorSalida salida = abrirSalida(temporal);
             try {
-                f.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+                if (anterior.isFile() && LectorMapeado.soporta(codificacion)
+                    && !Gzip.esGzip(anterior))
+                    incremental.escribe(anterior, codificacion, salida);
+                else
+                    incremental.escribe(previa, abrirEntrada(previa), salida);
+            } catch (IOException | RuntimeException e) {
+                descartarSalida(salida, temporal);
+                throw e;
             }
+            cerrarSalida(salida, temporal);
+            nanosLectura = leido - inicio - nanosOrden;
+            nanosEscritura = System.nanoTime() - leido;
+            System.err.println(fuente + ": ordenado hasta el byte " + ordenados);
+        } catch (IOException e) {
+            reportaError(e);
         }
     }
 
     /**
-     * Lee un archivo del sistema. Si se le pasa una cadena null crea un Reader a
-     * partir de la entrada estándar
+     * Nos dice si dos rutas son el mismo archivo.
      */
-    private void leerArchivo(String rutaArchivo) {
-        BufferedReader bufer = null;
+    private boolean esMismoArchivo(File a, File b) throws IOException {
+        return a.exists() && b.exists()
+            && a.getCanonicalFile().equals(b.getCanonicalFile());
+    }
+
+    /**
+     * Regresa un archivo temporal junto a la salida de -o si ésta es una de
+     * las entradas, que se siguen leyendo mientras se escribe, o null si no
+     * lo es o no hay -o. El temporal reemplaza a la salida al cerrarla con
+     * {@link #cerrarSalida}.
+     */
+    private File temporalDeSalida(Lista<String> entradas) throws IOException {
+        if (ruta == null)
+            return null;
+        File destino = new File(ruta);
+        for (String r : entradas)
+            if (esMismoArchivo(destino, new File(r)))
+                return File.createTempFile(destino.getName(), ".tmp",
+                                           destino.getAbsoluteFile().getParentFile());
+        return null;
+    }
+
+    /**
+     * Abre la salida: la estándar si no hay -o, el temporal si se recibe uno
+     * y si no el archivo de -o.
+     */
+    private EscritorSalida abrirSalida(File temporal) {
+        if (ruta == null)
+            return EscritorSalida.salidaEstandar();
+        return abrirArchivoSalida(temporal != null ? temporal : new File(ruta));
+    }
+
+    /**
+     * Cierra la salida y, si se escribió en un temporal, lo pone en lugar del
+     * archivo de -o.
+     */
+    private void cerrarSalida(EscritorSalida salida, File temporal) throws IOException {
         try {
-            if (rutaArchivo == null)
-                bufer = new BufferedReader(new InputStreamReader(System.in));
-            else
-                bufer = new BufferedReader(new FileReader(new File(rutaArchivo)));
-        } catch (FileNotFoundException e) {
-            throw new ExcepcionArchivoNoEncontrado("No se pudo leer: " + e.getMessage(), e);
+            salida.close();
+        } catch (IOException e) {
+            if (temporal != null)
+                temporal.delete();
+            throw e;
+        }
+        if (temporal != null && !temporal.renameTo(new File(ruta))) {
+            temporal.delete();
+            throw new IOException("No se pudo reemplazar " + ruta);
         }
+    }
+
+    /**
+     * Cierra la salida después de un error y borra el temporal, si lo hay,
+     * para que el archivo de -o no cambie.
+     */
+    private void descartarSalida(EscritorSalida salida, File temporal) {
         try {
-            archivo.cargarArchivo(bufer);
+            salida.close();
         } catch (IOException e) {
+        }
+        if (temporal != null)
+            temporal.delete();
+    }
+
+    /**
+     * Verifica que cada entrada esté ordenada, leyéndola una sola vez. No
+     * escribe nada; en el primer desorden lanza
+     * {@link ExcepcionEntradaDesordenada}, y si una entrada no se puede leer
+     * lanza {@link ExcepcionArchivoNoEncontrado}.
+     */
+    private void ejecutarVerificacion() {
+        VerificadorOrden verificador = new VerificadorOrden(reversa, unico);
+        verificador.setCampos(campos);
+        long inicio = System.nanoTime();
+        if (rutas.esVacia())
+            verifica(verificador, null);
+        for (String r : rutas)
+            verifica(verificador, r);
+        nanosLectura = System.nanoTime() - inicio;
+    }
+
+    /* Verifica una entrada, o la entrada estándar si la ruta es null. */
+    private void verifica(VerificadorOrden verificador, String r) {
+        String nombre = r == null ? "-" : r;
+        try (LectorLineas lector = abrirEntrada(r)) {
+            verificador.verifica(nombre, lector);
+        } catch (IOException e) {
+            throw new ExcepcionArchivoNoEncontrado(
+                "No se pudo leer: " + nombre + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Escribe sólo las primeras líneas en orden, guardando a lo más ese número
+     * de líneas mientras se lee.
+     */
+    private void ejecutarParcial() {
+        OrdenamientoParcial parcial = new OrdenamientoParcial(primeras, reversa);
+        parcial.setCampos(campos);
+        try {
+            long inicio = System.nanoTime();
+            if (rutas.esVacia())
+                parcial.cargarArchivo(abrirEntrada(null));
+            for (String r : rutas) {
+                try (LectorLineas lector = abrirEntrada(r)) {
+                    parcial.cargarArchivo(lector);
+                }
+            }
+            long leido = System.nanoTime();
+            EscritorSalida salida = (ruta != null)
+                ? abrirSalida()
+                : EscritorSalida.salidaEstandar();
+            try {
+                parcial.escribe(salida);
+            } finally {
+                salida.close();
+            }
+            nanosLectura = leido - inicio;
+            nanosEscritura = System.nanoTime() - leido;
+        } catch (IOException e) {
+            reportaError(e);
+        }
+    }
+
+    /**
+     * Mezcla las entradas, que ya deben estar ordenadas, leyéndolas a la vez
+     * línea por línea.
+     */
+    private void ejecutarMezcla() {
+        MezclaOrdenada mezclaOrdenada = new MezclaOrdenada(reversa);
+        mezclaOrdenada.setUnico(unico);
+        mezclaOrdenada.setCampos(campos);
+        try {
+            long inicio = System.nanoTime();
+            if (rutas.esVacia())
+                mezclaOrdenada.agregaEntrada("-", abrirEntrada(null));
+            for (String r : rutas)
+                mezclaOrdenada.agregaEntrada(r, abrirEntrada(r));
+            long leido = System.nanoTime();
+            // las entradas se leen mientras se escribe, así que si -o es una
+            // de ellas no se puede truncar antes de terminar
+            File temporal = temporalDeSalida(rutas);
+            EscritorSalida salida = abrirSalida(temporal);
+            try {
+                mezclaOrdenada.escribe(salida);
+            } catch (IOException | RuntimeException e) {
+                descartarSalida(salida, temporal);
+                throw e;
+            }
+            cerrarSalida(salida, temporal);
+            nanosLectura = leido - inicio - nanosOrden;
+            nanosEscritura = System.nanoTime() - leido;
+        } catch (IOException e) {
+            reportaError(e);
+        }
+    }
+
+    /**
+     * Ordena las entradas por lotes mientras se leen; al terminar de leer
+     * sólo falta mezclar los lotes.
+     */
+    private void ejecutarTuberia() {
+        OrdenamientoTuberia ordenamiento = new OrdenamientoTuberia(reversa, hilos);
+        ordenamiento.setMotor(motor);
+        ordenamiento.setFueraDelMonticulo(fueraDelMonticulo);
+        ordenamiento.setUnico(unico);
+        ordenamiento.setCampos(campos);
+        try {
+            long inicio = System.nanoTime();
+            if (rutas.esVacia())
+                ordenamiento.cargarArchivo(abrirEntrada(null));
+            for (String r : rutas) {
+                try (LectorLineas lector = abrirEntrada(r)) {
+                    ordenamiento.cargarArchivo(lector);
+                }
+            }
+            long leido = System.nanoTime();
+            EscritorSalida salida = (ruta != null)
+                ? abrirSalida()
+                : EscritorSalida.salidaEstandar();
+            try {
+                ordenamiento.escribe(salida);
+            } finally {
+                salida.close();
+            }
+            nanosLectura = leido - inicio;
+            nanosEscritura = System.nanoTime() - leido;
+        } catch (IOException e) {
+            reportaError(e);
+        }
+    }
+
+    /**
+     * Reporta un error de entrada o salida lanzando
+     * {@link ExcepcionArchivoNoEncontrado}, para que la aplicación termine con
+     * un error. Si se cerró la tubería de la salida, como con
+     * <code>sort archivo | head</code>, sólo se termina.
+     */
+    private static void reportaError(IOException e) {
+        if (!EscritorSalida.esTuberiaRota(e))
+            throw new ExcepcionArchivoNoEncontrado(
+                "Error de entrada o salida: " + e.getMessage(), e);
+    }
+
+    /**
+     * Abre la ruta de salida para escritura, comprimida si se pidió --gzip.
+     */
+    private EscritorSalida abrirSalida() {
+        return abrirArchivoSalida(new File(ruta));
+    }
+
+    /**
+     * Abre un archivo de salida, comprimido si se pidió --gzip.
+     */
+    private EscritorSalida abrirArchivoSalida(File destino) {
+        try {
+            if (comprimir)
+                return EscritorSalida.comprimido(destino, Charset.defaultCharset(),
+                                                 Deflater.DEFAULT_COMPRESSION);
+            return EscritorSalida.archivo(destino);
+        } catch (IOException e) {
+            throw new ExcepcionArchivoNoEncontrado("No se pudo abrir: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Guarda el archivo en el sistema.
+     */
+    private void guardarArchivo() {
+        try (EscritorSalida f = abrirSalida()) {
+            archivo.escribir(f);
+        } catch (IOException e) {
+            reportaError(e);
+        }
+    }
+
+    /**
+     * Lee un archivo del sistema. Si se le pasa una cadena null lee la entrada
+     * estándar.
+     */
+    private void leerArchivo(String rutaArchivo) {
+        try {
+            cargarArchivo(archivo, rutaArchivo);
+        } catch (IOException e) {
+            throw new ExcepcionArchivoNoEncontrado(
+                "No se pudo leer: " + (rutaArchivo == null ? "-" : rutaArchivo) + ": "
+                + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Lee los archivos a la vez, cada uno en su propio archivo, con a lo más
+     * MAXIMO_LECTORES hilos. Al final los agrega al archivo a ordenar en el
+     * orden en que se recibieron, así que el resultado es el mismo que si se
+     * leyeran uno tras otro. Si un archivo no se puede leer se siguen leyendo
+     * los demás, para reportar todas las fallas juntas, y al final se lanza
+     * {@link ExcepcionArchivoNoEncontrado}: no se ordena una parte de las
+     * entradas como si fueran todas.
+     */
+    private void leerArchivosConcurrentes() {
+        int n = rutas.getLongitud();
+        ExecutorService lectores = Executors.newFixedThreadPool(Math.min(n, MAXIMO_LECTORES));
+        Lista<Future<Archivo>> partes = new Lista<>();
+        StringBuilder fallas = new StringBuilder();
+        try {
+            for (String r : rutas) {
+                partes.agregaFinal(lectores.submit(() -> {
+                    long asignados = estadisticas ? Estadisticas.asignadosHilo() : -1;
+                    Archivo parte = new Archivo();
+                    parte.setFueraDelMonticulo(fueraDelMonticulo);
+                    cargarArchivo(parte, r);
+                    if (asignados >= 0)
+                        Estadisticas.sumaAsignados(Estadisticas.asignadosHilo() - asignados);
+                    return parte;
+                }));
+            }
+            Iterator<String> nombres = rutas.iterator();
+            for (Future<Archivo> parte : partes) {
+                String r = nombres.next();
+                try {
+                    archivo.agregaArchivo(parte.get());
+                } catch (ExecutionException e) {
+                    Throwable causa = e.getCause();
+                    if (causa instanceof RuntimeException)
+                        throw (RuntimeException) causa;
+                    if (causa instanceof Error)
+                        throw (Error) causa;
+                    if (fallas.length() > 0)
+                        fallas.append('\n');
+                    fallas.append("No se pudo leer: ").append(r).append(": ")
+                        .append(causa.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             e.printStackTrace();
         } finally {
+            lectores.shutdownNow();
+        }
+        if (fallas.length() > 0)
+            throw new ExcepcionArchivoNoEncontrado(fallas.toString());
+    }
+
+    /**
+     * Carga en el archivo las líneas de una ruta, o de la entrada estándar si
+     * la ruta es null. Con --debug reporta cuánto tardó.
+     */
+    private void cargarArchivo(Archivo destino, String rutaArchivo) throws IOException {
+        long inicio = System.nanoTime();
+        int lineas = destino.getNumeroLineas();
+        try (LectorLineas lector = abrirEntrada(rutaArchivo)) {
+            destino.cargarArchivo(lector);
+        }
+        if (depuracion)
+            reportarLectura(rutaArchivo, destino.getNumeroLineas() - lineas,
+                            System.nanoTime() - inicio);
+    }
+
+    /**
+     * Reporta en la salida de error las líneas leídas de una entrada, el tiempo
+     * que tomó y, si es un archivo, a cuántos MB/s se leyó.
+     */
+    private void reportarLectura(String rutaArchivo, int lineas, long nanos) {
+        double segundos = nanos / 1e9;
+        String reporte = String.format("%s: %d líneas en %.3f s",
+                                       rutaArchivo == null ? "-" : rutaArchivo,
+                                       lineas, segundos);
+        if (rutaArchivo != null) {
+            double mb = new File(rutaArchivo).length() / (double) (1 << 20);
+            reporte += String.format(", %.2f MB a %.2f MB/s", mb, mb / segundos);
+        }
+        System.err.println(reporte);
+    }
+
+    /**
+     * Reporta en la salida de error cuánto tardó cada fase, las líneas y bytes
+     * leídos, las comparaciones, el pico de líneas en memoria y los bytes
+     * asignados. Los bytes asignados son los del hilo principal y los hilos
+     * de lectura y de lotes; los del ordenamiento con varios hilos no se
+     * cuentan.
+     */
+    private void reportarEstadisticas(long asignadosPrincipal) {
+        long bytes = entradaEstandar == null ? 0 : entradaEstandar.bytes;
+        for (String r : rutas)
+            bytes += new File(r).length();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("lectura: %.3f s%n", nanosLectura / 1e9));
+        if (nanosOrden >= 0)
+            sb.append(String.format("ordenamiento: %.3f s%n", nanosOrden / 1e9));
+        else
+            sb.append(String.format("ordenamiento: junto con la lectura y la escritura%n"));
+        sb.append(String.format("escritura: %.3f s%n", nanosEscritura / 1e9));
+        sb.append(String.format("líneas: %d%n", Estadisticas.getLineas()));
+        sb.append(String.format("bytes: %d (%.2f MB)%n", bytes, bytes / (double) (1 << 20)));
+        sb.append(String.format("comparaciones: %d", Estadisticas.getComparaciones()));
+        double costo = Estadisticas.getCostoComparacion();
+        if (costo >= 0)
+            sb.append(String.format(", %.1f ns cada una", costo));
+        sb.append(String.format("%npico de líneas: %d%n", Estadisticas.getPicoLineas()));
+        if (asignadosPrincipal >= 0) {
+            long asignados = asignadosPrincipal + Estadisticas.getAsignados();
+            sb.append(String.format("bytes asignados: %d (%.2f MB)%n",
+                                    asignados, asignados / (double) (1 << 20)));
+        } else {
+            sb.append(String.format("bytes asignados: no disponible%n"));
+        }
+        System.err.print(sb);
+    }
+
+    /**
+     * Abre un archivo del sistema para lectura. Si se le pasa una cadena null
+     * usa la entrada estándar. Los archivos regulares se mapean a memoria si su
+     * codificación lo permite y no están comprimidos; lo demás se lee como
+     * flujo, descomprimiéndolo si es gzip.
+     */
+    private LectorLineas abrirEntrada(String rutaArchivo) {
+        if (rutaArchivo == null) {
+            InputStream entrada = System.in;
+            if (estadisticas)
+                entrada = entradaEstandar = new FlujoContado(entrada);
             try {
-                bufer.close();
+                entrada = Gzip.detecta(entrada);
             } catch (IOException e) {
-                e.printStackTrace();
+                throw new ExcepcionArchivoNoEncontrado("No se pudo leer: -: " + e.getMessage(), e);
             }
+            return new LectorFlujo(new BufferedReader(new InputStreamReader(entrada)));
+        }
+        File f = new File(rutaArchivo);
+        Charset codificacion = Charset.defaultCharset();
+        try {
+            if (f.isFile() && LectorMapeado.soporta(codificacion) && !Gzip.esGzip(f))
+                return new LectorMapeado(f, codificacion);
+            InputStream entrada = new FileInputStream(f);
+            try {
+                entrada = Gzip.detecta(entrada);
+            } catch (IOException e) {
+                entrada.close();
+                throw e;
+            }
+            return new LectorFlujo(new BufferedReader(
+                new InputStreamReader(entrada, codificacion), Gzip.TAMANO_BUFER));
+        } catch (FileNotFoundException e) {
+            throw new ExcepcionArchivoNoEncontrado("No se pudo leer: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new ExcepcionArchivoNoEncontrado("No se pudo leer: " + rutaArchivo + ": " + e.getMessage(), e);
         }
     }
 
@@ -132,20 +894,47 @@ public class Sort {
      * 
      */
     private int manejarBandera(String[] argumentos, String bandera, int indice) {
+        if (bandera.startsWith("--"))
+            return manejarOpcionLarga(argumentos, bandera, indice);
         int procesados = 0;
         for (int i = 1; i < bandera.length(); i++) {
             switch (bandera.charAt(i)) {
                 case 'r':
                     reversa = true;
                     break;
+                case 'u':
+                    unico = true;
+                    break;
+                case 'm':
+                    mezcla = true;
+                    break;
+                case 'c':
+                    verificacion = true;
+                    break;
+                case 'n':
+                    numerico = true;
+                    break;
                 case 'o':
-                    int siguiente = indice + procesados + 1;
                     if (ruta != null)
                         throw new ExcepcionArgumentoInvalido("Ya se especificó un archivo de salida.");
-                    if (siguiente >= argumentos.length)
-                        throw new ExcepcionArgumentoInvalido("La opcion 'o' debe recibir un argumento.");
-                    ruta = argumentos[siguiente];
-                    procesados++;
+                    ruta = argumentoDeBandera(argumentos, indice + ++procesados, 'o');
+                    break;
+                case 'k':
+                    leerLlave(argumentoDeBandera(argumentos, indice + ++procesados, 'k'));
+                    break;
+                case 't':
+                    String separador = argumentoDeBandera(argumentos, indice + ++procesados, 't');
+                    if (separador.length() != 1)
+                        throw new ExcepcionArgumentoInvalido("La opcion 't' debe recibir un solo caracter.");
+                    getCampos().setSeparador(separador.charAt(0));
+                    break;
+                case 'S':
+                    memoria = leerTamano(argumentoDeBandera(argumentos, indice + ++procesados, 'S'));
+                    break;
+                case 'T':
+                    temporales = new File(argumentoDeBandera(argumentos, indice + ++procesados, 'T'));
+                    if (!temporales.isDirectory())
+                        throw new ExcepcionArgumentoInvalido(temporales + " no es un directorio.");
                     break;
                 default:
                     throw new ExcepcionBanderaInvalida(bandera.charAt(i) + " es una opción inválida.");
@@ -154,6 +943,178 @@ public class Sort {
         return procesados;
     }
 
+    /**
+     * Maneja una opción larga, de la forma --nombre o --nombre=valor. Regresa
+     * el número de argumentos siguientes que se usaron como su valor.
+     */
+    private int manejarOpcionLarga(String[] argumentos, String opcion, int indice) {
+        int igual = opcion.indexOf('=');
+        String nombre = (igual == -1) ? opcion.substring(2) : opcion.substring(2, igual);
+        String valor = (igual == -1) ? null : opcion.substring(igual + 1);
+        switch (nombre) {
+            case "parallel":
+                hilos = (valor == null)
+                    ? Runtime.getRuntime().availableProcessors()
+                    : leerEnteroPositivo(valor, nombre);
+                break;
+            case "engine":
+                if (valor == null)
+                    throw new ExcepcionArgumentoInvalido("La opcion 'engine' debe recibir un motor.");
+                motor = Motor.deNombre(valor);
+                break;
+            case "off-heap":
+                if (valor != null)
+                    throw new ExcepcionArgumentoInvalido("La opcion 'off-heap' no recibe valor.");
+                fueraDelMonticulo = true;
+                break;
+            case "pipeline":
+                if (valor != null)
+                    throw new ExcepcionArgumentoInvalido("La opcion 'pipeline' no recibe valor.");
+                tuberia = true;
+                break;
+            case "stats":
+                if (valor != null)
+                    throw new ExcepcionArgumentoInvalido("La opcion 'stats' no recibe valor.");
+                estadisticas = true;
+                break;
+            case "head":
+                if (valor != null) {
+                    primeras = leerEnteroPositivo(valor, nombre);
+                    break;
+                }
+                if (indice + 1 >= argumentos.length)
+                    throw new ExcepcionArgumentoInvalido("La opcion 'head' debe recibir un argumento.");
+                primeras = leerEnteroPositivo(argumentos[indice + 1], nombre);
+                return 1;
+            case "gzip":
+                if (valor != null)
+                    throw new ExcepcionArgumentoInvalido("La opcion 'gzip' no recibe valor.");
+                comprimir = true;
+                break;
+            case "index":
+                if (valor != null)
+                    throw new ExcepcionArgumentoInvalido("La opcion 'index' no recibe valor.");
+                indexar = true;
+                break;
+            case "previous":
+                if (valor != null) {
+                    previa = valor;
+                    break;
+                }
+                if (indice + 1 >= argumentos.length)
+                    throw new ExcepcionArgumentoInvalido("La opcion 'previous' debe recibir un archivo.");
+                previa = argumentos[indice + 1];
+                return 1;
+            case "offset":
+                if (valor != null) {
+                    desplazamiento = leerDesplazamiento(valor);
+                    break;
+                }
+                if (indice + 1 >= argumentos.length)
+                    throw new ExcepcionArgumentoInvalido("La opcion 'offset' debe recibir un argumento.");
+                desplazamiento = leerDesplazamiento(argumentos[indice + 1]);
+                return 1;
+            case "debug":
+                if (valor != null)
+                    throw new ExcepcionArgumentoInvalido("La opcion 'debug' no recibe valor.");
+                depuracion = true;
+                break;
+            default:
+                throw new ExcepcionBanderaInvalida(opcion + " es una opción inválida.");
+        }
+        return 0;
+    }
+
+    /**
+     * Interpreta el valor entero positivo de una opción.
+     */
+    private int leerEnteroPositivo(String valor, String opcion) {
+        try {
+            int n = Integer.parseInt(valor);
+            if (n > 0)
+                return n;
+        } catch (NumberFormatException e) {
+        }
+        throw new ExcepcionArgumentoInvalido("La opcion '" + opcion + "' debe recibir un entero positivo.");
+    }
+
+    /**
+     * Interpreta el número de bytes de la opción offset, que puede ser cero.
+     */
+    private long leerDesplazamiento(String valor) {
+        try {
+            long n = Long.parseLong(valor);
+            if (n >= 0)
+                return n;
+        } catch (NumberFormatException e) {
+        }
+        throw new ExcepcionArgumentoInvalido("La opcion 'offset' debe recibir un entero no negativo.");
+    }
+
+    /**
+     * Regresa el argumento que recibe una bandera.
+     */
+    private String argumentoDeBandera(String[] argumentos, int indice, char bandera) {
+        if (indice >= argumentos.length)
+            throw new ExcepcionArgumentoInvalido("La opcion '" + bandera + "' debe recibir un argumento.");
+        return argumentos[indice];
+    }
+
+    /**
+     * Interpreta una llave de la forma inicio[,fin] y la agrega a los campos.
+     */
+    private void leerLlave(String llave) {
+        int coma = llave.indexOf(',');
+        try {
+            int inicio = Integer.parseInt(coma == -1 ? llave : llave.substring(0, coma));
+            int fin = (coma == -1) ? 0 : Integer.parseInt(llave.substring(coma + 1));
+            if (inicio > 0 && (coma == -1 || fin >= inicio)) {
+                getCampos().agregaLlave(inicio, fin);
+                return;
+            }
+        } catch (NumberFormatException e) {
+        }
+        throw new ExcepcionArgumentoInvalido(llave + " no es una llave válida.");
+    }
+
+    /**
+     * Regresa los campos por los que se ordena y los crea si aún no se
+     * tienen.
+     */
+    private Campos getCampos() {
+        if (campos == null)
+            campos = new Campos();
+        return campos;
+    }
+
+    /**
+     * Interpreta un tamaño en bytes con sufijo K, M o G opcional.
+     */
+    private long leerTamano(String tamano) {
+        long factor = 1;
+        String numero = tamano;
+        switch (tamano.isEmpty() ? ' ' : Character.toUpperCase(tamano.charAt(tamano.length() - 1))) {
+            case 'K':
+                factor = 1L << 10;
+                break;
+            case 'M':
+                factor = 1L << 20;
+                break;
+            case 'G':
+                factor = 1L << 30;
+                break;
+        }
+        if (factor != 1)
+            numero = tamano.substring(0, tamano.length() - 1);
+        try {
+            long bytes = Long.parseLong(numero) * factor;
+            if (bytes > 0)
+                return bytes;
+        } catch (NumberFormatException e) {
+        }
+        throw new ExcepcionArgumentoInvalido(tamano + " no es un tamaño de memoria válido.");
+    }
+
     /**
      * Checa si un argumento es una bandera
      */
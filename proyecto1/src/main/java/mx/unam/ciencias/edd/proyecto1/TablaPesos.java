@@ -0,0 +1,215 @@
+package mx.unam.ciencias.edd.proyecto1;
+
+import java.nio.ByteBuffer;
+import java.text.CollationElementIterator;
+import java.text.RuleBasedCollator;
+
+/**
+ * <p>Pesos primarios del comparador de {@link Archivo} para los caracteres
+ * ASCII.</p>
+ *
+ * <p>Con fuerza primaria, el comparador ordena dos cadenas comparando la
+ * sucesión de pesos primarios de sus caracteres. Para las cadenas ASCII esa
+ * sucesión se puede leer de una tabla, así que dos cadenas ASCII se comparan
+ * con un ciclo simple, sin pasar por el comparador ni normalizar.</p>
+ *
+ * <p>La tabla se calcula preguntándole al comparador, de manera que respeta el
+ * locale. Si en el locale algún caracter ASCII se expande a varios pesos o
+ * alguna pareja de caracteres forma una contracción, la tabla no reproduce al
+ * comparador y no se usa.</p>
+ */
+class TablaPesos {
+
+    /* Peso primario de cada caracter ASCII; 0 si se ignora al comparar. */
+    private static final int[] PESOS = new int[128];
+    /* Si la tabla reproduce al comparador. */
+    private static final boolean VALIDA = calculaPesos();
+
+    /* Clase sin instancias. */
+    private TablaPesos() {}
+
+    /**
+     * Nos dice si una cadena se puede comparar con la tabla.
+     *
+     * @param cadena la cadena.
+     * @return <code>true</code> si la tabla es válida y la cadena es ASCII,
+     *         <code>false</code> en otro caso.
+     */
+    static boolean esAscii(String cadena) {
+        if (!VALIDA)
+            return false;
+        for (int i = 0; i < cadena.length(); i++)
+            if (cadena.charAt(i) >= 128)
+                return false;
+        return true;
+    }
+
+    /**
+     * Nos dice si un fragmento de un arreglo de bytes en Latin-1 se puede
+     * comparar con la tabla.
+     *
+     * @param a el arreglo.
+     * @param inicio el inicio del fragmento.
+     * @param n la longitud del fragmento.
+     * @return <code>true</code> si la tabla es válida y el fragmento es ASCII,
+     *         <code>false</code> en otro caso.
+     */
+    static boolean esAscii(byte[] a, int inicio, int n) {
+        if (!VALIDA)
+            return false;
+        for (int i = inicio; i < inicio + n; i++)
+            if (a[i] < 0)
+                return false;
+        return true;
+    }
+
+    /**
+     * Compara dos cadenas ASCII. El resultado tiene el mismo signo que
+     * {@link Archivo#compara}.
+     *
+     * @param a primera cadena, debe ser ASCII.
+     * @param b segunda cadena, debe ser ASCII.
+     * @return un número menor que cero si a&lt;b, 0 si a=b y un número mayor
+     *         que cero si a&gt;b.
+     */
+    static int compara(String a, String b) {
+        int i = 0;
+        int j = 0;
+        int na = a.length();
+        int nb = b.length();
+        while (true) {
+            int pa = 0;
+            while (i < na && (pa = PESOS[a.charAt(i++)]) == 0)
+                ;
+            int pb = 0;
+            while (j < nb && (pb = PESOS[b.charAt(j++)]) == 0)
+                ;
+            if (pa != pb)
+                return pa - pb;
+            if (pa == 0)
+                return 0;
+        }
+    }
+
+    /**
+     * Nos dice si un fragmento de un búfer en Latin-1 se puede comparar con la
+     * tabla.
+     *
+     * @param a el búfer.
+     * @param inicio el inicio del fragmento.
+     * @param n la longitud del fragmento.
+     * @return <code>true</code> si la tabla es válida y el fragmento es ASCII,
+     *         <code>false</code> en otro caso.
+     */
+    static boolean esAscii(ByteBuffer a, int inicio, int n) {
+        if (!VALIDA)
+            return false;
+        for (int i = inicio; i < inicio + n; i++)
+            if (a.get(i) < 0)
+                return false;
+        return true;
+    }
+
+    /**
+     * Compara dos fragmentos ASCII de arreglos de bytes. El resultado
+     * tiene el mismo signo que {@link Archivo#compara} sobre los fragmentos.
+     *
+     * @param a arreglo del primer fragmento.
+     * @param i inicio del primer fragmento.
+     * @param na longitud del primer fragmento.
+     * @param b arreglo del segundo fragmento.
+     * @param j inicio del segundo fragmento.
+     * @param nb longitud del segundo fragmento.
+     * @return un número menor que cero si el primero va antes, 0 si son
+     *         iguales y un número mayor que cero si va después.
+     */
+    static int compara(byte[] a, int i, int na, byte[] b, int j, int nb) {
+        na += i;
+        nb += j;
+        while (true) {
+            int pa = 0;
+            while (i < na && (pa = PESOS[a[i++]]) == 0)
+                ;
+            int pb = 0;
+            while (j < nb && (pb = PESOS[b[j++]]) == 0)
+                ;
+            if (pa != pb)
+                return pa - pb;
+            if (pa == 0)
+                return 0;
+        }
+    }
+
+    /**
+     * Compara dos fragmentos ASCII de búferes, como
+     * {@link #compara(byte[],int,int,byte[],int,int)}.
+     *
+     * @param a búfer del primer fragmento.
+     * @param i inicio del primer fragmento.
+     * @param na longitud del primer fragmento.
+     * @param b búfer del segundo fragmento.
+     * @param j inicio del segundo fragmento.
+     * @param nb longitud del segundo fragmento.
+     * @return un número menor que cero si el primero va antes, 0 si son
+     *         iguales y un número mayor que cero si va después.
+     */
+    static int compara(ByteBuffer a, int i, int na, ByteBuffer b, int j, int nb) {
+        na += i;
+        nb += j;
+        while (true) {
+            int pa = 0;
+            while (i < na && (pa = PESOS[a.get(i++)]) == 0)
+                ;
+            int pb = 0;
+            while (j < nb && (pb = PESOS[b.get(j++)]) == 0)
+                ;
+            if (pa != pb)
+                return pa - pb;
+            if (pa == 0)
+                return 0;
+        }
+    }
+
+    /* Llena la tabla y verifica que reproduzca al comparador. */
+    private static boolean calculaPesos() {
+        if (!(Archivo.COMPARADOR instanceof RuleBasedCollator))
+            return false;
+        RuleBasedCollator comparador = (RuleBasedCollator) Archivo.COMPARADOR;
+        int[] primarios = new int[4];
+        for (char c = 0; c < 128; c++) {
+            if (!Archivo.seConserva(c))
+                continue;
+            int n = primarios(comparador, String.valueOf(c), primarios);
+            if (n > 1)
+                return false;
+            PESOS[c] = (n == 0) ? 0 : primarios[0];
+        }
+        /* Busca contracciones entre parejas de caracteres. */
+        for (char c = 0; c < 128; c++) {
+            if (PESOS[c] == 0)
+                continue;
+            for (char d = 0; d < 128; d++) {
+                if (PESOS[d] == 0)
+                    continue;
+                int n = primarios(comparador, "" + c + d, primarios);
+                if (n != 2 || primarios[0] != PESOS[c] || primarios[1] != PESOS[d])
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /* Guarda en el arreglo los pesos primarios distintos de cero de la cadena
+     * y regresa cuántos son; deja de contar al llenar el arreglo. */
+    static int primarios(RuleBasedCollator comparador, String cadena, int[] primarios) {
+        CollationElementIterator i = comparador.getCollationElementIterator(cadena);
+        int n = 0;
+        int e;
+        while ((e = i.next()) != CollationElementIterator.NULLORDER && n < primarios.length) {
+            int p = CollationElementIterator.primaryOrder(e);
+            if (p != 0)
+                primarios[n++] = p;
+        }
+        return n;
+    }
+}
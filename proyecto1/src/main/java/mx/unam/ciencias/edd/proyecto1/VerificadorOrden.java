@@ -0,0 +1,101 @@
+package mx.unam.ciencias.edd.proyecto1;
+
+import java.io.IOException;
+import mx.unam.ciencias.edd.Estadisticas;
+
+/**
+ * <p>Verifica que una entrada esté ordenada.</p>
+ *
+ * <p>La entrada se lee una sola vez y cada línea se compara con la anterior
+ * como en {@link Archivo#compara}, así que sólo se guardan dos líneas. Las
+ * líneas se comparan con su {@link LlaveBytes}, que se construye en un
+ * recorrido; sólo las que no la tienen usan el comparador. En el
+ * primer desorden se lanza {@link ExcepcionEntradaDesordenada} con el número
+ * de la línea. Sin repetidos, dos líneas iguales seguidas también son un
+ * desorden.</p>
+ */
+public class VerificadorOrden {
+
+    // indica si se verifica el orden en reversa
+    private boolean reversa;
+    // indica si las líneas iguales seguidas son un desorden
+    private boolean unico;
+    // campos por los que se verifica el orden, o null si es por toda la línea
+    private Campos campos;
+
+    /**
+     * Crea un verificador.
+     *
+     * @param reversa Si se verifica el orden en reversa.
+     * @param unico   Si las líneas iguales seguidas son un desorden.
+     */
+    public VerificadorOrden(boolean reversa, boolean unico) {
+        this.reversa = reversa;
+        this.unico = unico;
+    }
+
+    /**
+     * Define los campos por los que se verifica el orden.
+     *
+     * @param campos Los campos, o null para verificar por toda la línea.
+     */
+    public void setCampos(Campos campos) {
+        this.campos = campos;
+    }
+
+    /**
+     * Lee toda una entrada y verifica que esté ordenada. No cierra el lector.
+     *
+     * @param nombre El nombre de la entrada, para el error.
+     * @param lector El lector de la entrada.
+     * @throws IOException Si ocurre un error al leer.
+     * @throws ExcepcionEntradaDesordenada Si la entrada no está ordenada.
+     */
+    public void verifica(String nombre, LectorLineas lector) throws IOException {
+        boolean estadisticas = Estadisticas.activas();
+        String anterior = null;
+        byte[] llaveAnterior = null;
+        long numero = 0;
+        String actual = lector.leeLinea();
+        while (actual != null) {
+            byte[] llave = llave(actual);
+            numero++;
+            if (estadisticas)
+                Estadisticas.cuentaLineas(1);
+            if (anterior != null) {
+                int c = compara(anterior, llaveAnterior, actual, llave, estadisticas);
+                if (c > 0 || (c == 0 && unico))
+                    throw new ExcepcionEntradaDesordenada(
+                        nombre + ": la línea " + numero + " no está en orden.");
+                if (estadisticas)
+                    Estadisticas.cuentaLineas(-1);
+            }
+            anterior = actual;
+            llaveAnterior = llave;
+            actual = lector.leeLinea();
+        }
+        if (estadisticas && anterior != null)
+            Estadisticas.cuentaLineas(-1);
+    }
+
+    /* Regresa la llave de bytes de una línea, o null si no tiene; las
+     * líneas con campos numéricos no tienen. */
+    private byte[] llave(String linea) {
+        if (campos == null)
+            return LlaveBytes.llave(linea);
+        return campos.esNumerico() ? null : campos.llaveBytes(linea);
+    }
+
+    /* Compara dos líneas en el orden que se verifica, con sus llaves de
+     * bytes si ambas las tienen. */
+    private int compara(String a, byte[] llaveA, String b, byte[] llaveB,
+                        boolean estadisticas) {
+        long inicio = estadisticas ? Estadisticas.iniciaComparacion() : 0;
+        int c = (llaveA != null && llaveB != null)
+            ? LlaveBytes.compara(llaveA, llaveB)
+            : (campos == null) ? Archivo.compara(a, b) : campos.compara(a, b);
+        if (estadisticas)
+            Estadisticas.terminaComparacion(inicio);
+        return reversa ? -c : c;
+    }
+}
@@ -0,0 +1,149 @@
+package mx.unam.ciencias.edd.proyecto1;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+/**
+ * Clase para pruebas unitarias de la clase {@link LectorMapeado}, con
+ * ventanas pequeñas para que las líneas crucen de una ventana a la siguiente.
+ * Está en el paquete de la clase porque el tamaño de la ventana sólo se
+ * define desde ahí. Las líneas deben ser las mismas que lee un
+ * {@link BufferedReader}.
+ */
+public class TestLectorMapeado {
+
+    /** Expiración para que ninguna prueba tarde más de 5 segundos. */
+    @Rule public Timeout expiracion = Timeout.seconds(5);
+
+    /* Caracteres de las líneas, de uno, dos y tres bytes en UTF-8. */
+    private static final String ALFABETO = "aAbn0 -ñé€中";
+    /* Terminadores de línea. */
+    private static final String[] TERMINADORES = { "\n", "\r\n", "\r" };
+
+    /* Generador de números aleatorios. */
+    private Random random;
+
+    /**
+     * Crea un generador de números aleatorios para cada prueba.
+     */
+    public TestLectorMapeado() {
+        random = new Random();
+    }
+
+    /* Regresa las líneas que lee un BufferedReader, cada una terminada en
+     * '\n'. */
+    private String esperado(String texto) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        BufferedReader lector = new BufferedReader(new StringReader(texto));
+        String linea;
+        while ((linea = lector.readLine()) != null)
+            sb.append(linea).append('\n');
+        return sb.toString();
+    }
+
+    /* Regresa las líneas que lee el lector mapeado con ventanas del tamaño
+     * recibido, cada una terminada en '\n'. Revisa además que la posición y
+     * la longitud de cada línea correspondan a sus bytes en el archivo. */
+    private String leido(String texto, long ventana) throws IOException {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        File archivo = File.createTempFile("mapeado", ".txt");
+        try {
+            Files.write(archivo.toPath(), bytes);
+            StringBuilder sb = new StringBuilder();
+            try (LectorMapeado lector = new LectorMapeado(archivo, StandardCharsets.UTF_8,
+                                                          ventana)) {
+                String linea;
+                while ((linea = lector.leeLinea()) != null) {
+                    Assert.assertEquals(linea, new String(bytes, (int) lector.getPosicionLinea(),
+                                                          lector.getLongitudLinea(),
+                                                          StandardCharsets.UTF_8));
+                    sb.append(linea).append('\n');
+                }
+                Assert.assertNull(lector.leeLinea());
+            }
+            return sb.toString();
+        } finally {
+            archivo.delete();
+        }
+    }
+
+    /* Compara las líneas del lector mapeado contra las de un BufferedReader,
+     * con ventanas del tamaño recibido. */
+    private void valida(String texto, long ventana) throws IOException {
+        Assert.assertEquals(esperado(texto), leido(texto, ventana));
+    }
+
+    /**
+     * Prueba unitaria para {@link LectorMapeado#leeLinea} con casos fijos:
+     * una línea que cruza la ventana, un "\r\n" partido entre dos ventanas,
+     * un '\r' solo, sin salto de línea al final y un archivo vacío.
+     */
+    @Test public void testCasos() throws IOException {
+        // "cd" empieza en la primera ventana y termina en la segunda
+        valida("ab\ncd\nef\n", 4);
+        // el '\r' es el último byte de la primera ventana y el '\n' el
+        // primero de la segunda
+        valida("x\nab\r\ncd", 5);
+        Assert.assertEquals("x\nab\ncd\n", leido("x\nab\r\ncd", 5));
+        // un '\r' solo termina una línea, igual que dos seguidos
+        valida("a\rb\r\rc\r", 3);
+        Assert.assertEquals("a\nb\n\nc\n", leido("a\rb\r\rc\r", 3));
+        // sin salto de línea al final
+        valida("a\nbc", 3);
+        Assert.assertEquals("a\nbc\n", leido("a\nbc", 3));
+        // un caracter de tres bytes partido entre dos ventanas
+        valida("a\n中\n", 4);
+        // vacío, o sólo un salto de línea
+        Assert.assertEquals("", leido("", 4));
+        Assert.assertEquals("\n", leido("\n", 4));
+        Assert.assertEquals("\n", leido("\r\n", 4));
+    }
+
+    /**
+     * Prueba unitaria para {@link LectorMapeado#leeLinea} con textos al azar,
+     * con los tres terminadores y con o sin el último, leídos con ventanas de
+     * varios tamaños.
+     */
+    @Test public void testVentanas() throws IOException {
+        for (int caso = 0; caso < 20; caso++) {
+            StringBuilder sb = new StringBuilder();
+            int lineas = random.nextInt(200);
+            int maximo = 0;
+            for (int i = 0; i < lineas; i++) {
+                StringBuilder linea = new StringBuilder();
+                int longitud = random.nextInt(10);
+                for (int j = 0; j < longitud; j++)
+                    linea.append(ALFABETO.charAt(random.nextInt(ALFABETO.length())));
+                maximo = Math.max(maximo, linea.toString().getBytes(StandardCharsets.UTF_8).length);
+                sb.append(linea);
+                if (i < lineas - 1 || random.nextBoolean())
+                    sb.append(TERMINADORES[random.nextInt(TERMINADORES.length)]);
+            }
+            String texto = sb.toString();
+            // cada línea con su terminador cabe en una ventana
+            for (long ventana = maximo + 2; ventana < maximo + 10; ventana++)
+                valida(texto, ventana);
+            valida(texto, 1L << 30);
+        }
+    }
+
+    /**
+     * Prueba unitaria para {@link LectorMapeado#leeLinea} con una línea que
+     * no cabe en una ventana: es un error, no una línea partida.
+     */
+    @Test public void testLineaMuyLarga() throws IOException {
+        try {
+            leido("a\nabcdef\n", 4);
+            Assert.fail();
+        } catch (IOException e) {}
+    }
+}
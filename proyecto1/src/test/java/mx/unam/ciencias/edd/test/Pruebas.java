@@ -0,0 +1,143 @@
+package mx.unam.ciencias.edd.test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import mx.unam.ciencias.edd.proyecto1.Archivo;
+import mx.unam.ciencias.edd.proyecto1.EscritorSalida;
+import mx.unam.ciencias.edd.proyecto1.LectorFlujo;
+import mx.unam.ciencias.edd.proyecto1.LectorLineas;
+
+/**
+ * Utilerías compartidas por las pruebas unitarias: textos al azar, archivos
+ * temporales y el resultado esperado de ordenar con {@link Archivo}.
+ */
+final class Pruebas {
+
+    /**
+     * Algo que escribe en un {@link EscritorSalida}.
+     */
+    @FunctionalInterface
+    interface Escritura {
+        /**
+         * Escribe en el escritor.
+         *
+         * @param salida El escritor.
+         * @throws IOException si ocurre un error al escribir.
+         */
+        void escribe(EscritorSalida salida) throws IOException;
+    }
+
+    /* No se crean instancias. */
+    private Pruebas() {}
+
+    /**
+     * Genera una línea al azar con caracteres del alfabeto.
+     *
+     * @param random   El generador de números aleatorios.
+     * @param alfabeto Los caracteres de la línea.
+     * @param maximo   La línea tiene menos de este número de caracteres.
+     * @return la línea, sin salto de línea.
+     */
+    static String linea(Random random, String alfabeto, int maximo) {
+        int longitud = random.nextInt(maximo);
+        StringBuilder sb = new StringBuilder(longitud);
+        for (int i = 0; i < longitud; i++)
+            sb.append(alfabeto.charAt(random.nextInt(alfabeto.length())));
+        return sb.toString();
+    }
+
+    /**
+     * Genera un texto de líneas al azar, cada una terminada en '\n'.
+     *
+     * @param random   El generador de números aleatorios.
+     * @param alfabeto Los caracteres de las líneas.
+     * @param lineas   El número de líneas.
+     * @param maximo   Cada línea tiene menos de este número de caracteres.
+     * @return el texto.
+     */
+    static String texto(Random random, String alfabeto, int lineas, int maximo) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lineas; i++)
+            sb.append(linea(random, alfabeto, maximo)).append('\n');
+        return sb.toString();
+    }
+
+    /**
+     * Regresa un lector de las líneas de un texto.
+     *
+     * @param texto El texto.
+     * @return un lector de sus líneas.
+     */
+    static LectorLineas lector(String texto) {
+        return new LectorFlujo(new BufferedReader(new StringReader(texto)));
+    }
+
+    /**
+     * Regresa lo que se escribe en UTF-8 en un escritor.
+     *
+     * @param escritura Lo que escribe.
+     * @return el texto escrito.
+     * @throws IOException si ocurre un error al escribir.
+     */
+    static String escrito(Escritura escritura) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (EscritorSalida salida = new EscritorSalida(
+                 Channels.newChannel(bytes), StandardCharsets.UTF_8, true)) {
+            escritura.escribe(salida);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Regresa lo que escribe {@link Archivo} al ordenar las líneas de un
+     * texto.
+     *
+     * @param texto   El texto.
+     * @param reversa Si se ordena en reversa.
+     * @param unico   Si se descartan las líneas repetidas.
+     * @return el texto ordenado.
+     * @throws IOException si ocurre un error al escribir.
+     */
+    static String ordenado(String texto, boolean reversa, boolean unico) throws IOException {
+        Archivo archivo = new Archivo();
+        archivo.setUnico(unico);
+        archivo.cargarArchivo(lector(texto));
+        if (reversa)
+            archivo.ordenaReversa();
+        else
+            archivo.ordena();
+        return escrito(archivo::escribir);
+    }
+
+    /**
+     * Crea un archivo temporal con un texto en UTF-8.
+     *
+     * @param prefijo El prefijo del nombre del archivo.
+     * @param texto   El texto.
+     * @return el archivo.
+     * @throws IOException si no se puede escribir el archivo.
+     */
+    static File archivo(String prefijo, String texto) throws IOException {
+        File archivo = File.createTempFile(prefijo, ".txt");
+        Files.write(archivo.toPath(), texto.getBytes(StandardCharsets.UTF_8));
+        return archivo;
+    }
+
+    /**
+     * Lee un archivo en UTF-8.
+     *
+     * @param archivo El archivo.
+     * @return su texto.
+     * @throws IOException si no se puede leer el archivo.
+     */
+    static String lee(File archivo) throws IOException {
+        return new String(Files.readAllBytes(archivo.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,552 @@
+package mx.unam.ciencias.edd.test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+import mx.unam.ciencias.edd.Estadisticas;
+import mx.unam.ciencias.edd.Lista;
+import mx.unam.ciencias.edd.proyecto1.Archivo;
+import mx.unam.ciencias.edd.proyecto1.Campos;
+import mx.unam.ciencias.edd.proyecto1.LlaveBytes;
+import mx.unam.ciencias.edd.proyecto1.Motor;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+/**
+ * Clase para pruebas unitarias de la clase {@link Archivo} y sus llaves. Las
+ * pruebas son diferenciales: el orden de {@link Archivo#ordena} con cualquier
+ * motor debe ser idéntico al de ordenar las cadenas con {@link Archivo#compara}.
+ */
+public class TestArchivo {
+
+    /** Expiración para que ninguna prueba tarde más de 5 segundos. */
+    @Rule public Timeout expiracion = Timeout.seconds(5);
+
+    /* Caracteres ASCII imprimibles y tabulador. */
+    private static final String ASCII;
+    static {
+        StringBuilder sb = new StringBuilder("\t");
+        for (char c = ' '; c < 127; c++)
+            sb.append(c);
+        ASCII = sb.toString();
+    }
+    /* El poema del README. */
+    private static final String[] POEMA = {
+        "Hombres necios que acusáis", "    a la mujer sin razón,",
+        "sin ver que sois la ocasión", "    de lo mismo que culpáis.", "",
+        "Si con ansia sin igual", "    solicitáis su desdén,",
+        "¿por qué queréis que obren bien", "    si las incitáis al mal?", "",
+        "Combatís su resistencia", "    y luego con gravedad",
+        "decís que fue liviandad", "    lo que hizo la diligencia.", "",
+        "Parecer quiere el denuedo", "    de vuestro parecer loco",
+        "al niño que pone el coco", "    y luego le tiene miedo.", "",
+        "Queréis con presunción necia", "    hallar a la que buscáis,",
+        "para pretendida, Tais,", "    y en la posesión, Lucrecia.", "",
+        "¿Qué humor puede ser más raro", "    que el que, falto de consejo,",
+        "él mismo empaña el espejo", "    y siente que no esté claro?"
+    };
+    /* Caracteres que no son ASCII. */
+    private static final String OTROS = "áéíóúÁÉÍÓÚñÑüÜçÇ¿¡ªºßæøł€αβ中文";
+
+    /* Generador de números aleatorios. */
+    private Random random;
+    /* Número total de líneas. */
+    private int total;
+
+    /**
+     * Crea un generador de números aleatorios para cada prueba y un número
+     * total de líneas.
+     */
+    public TestArchivo() {
+        random = new Random();
+        total = 1000 + random.nextInt(1000);
+    }
+
+    /* Genera una línea con caracteres del alfabeto; las líneas son cortas y el
+     * alfabeto se restringe a veces para que haya muchos empates. */
+    private String linea(String alfabeto) {
+        int longitud = random.nextInt(12);
+        int restringido = 1 + random.nextInt(alfabeto.length());
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < longitud; i++) {
+            char c = alfabeto.charAt(random.nextInt(restringido));
+            sb.append(random.nextBoolean() ? Character.toUpperCase(c) : c);
+        }
+        return sb.toString();
+    }
+
+    /* Genera una cadena con caracteres de todo Unicode, aunque sobre todo de
+     * Latin-1 para que la mayoría tenga llave de bytes. */
+    private String cadenaUnicode() {
+        int longitud = random.nextInt(10);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < longitud; i++) {
+            switch (random.nextInt(8)) {
+                case 0:
+                    sb.appendCodePoint(random.nextInt(0x3000));
+                    break;
+                case 1:
+                    sb.appendCodePoint(0x10000 + random.nextInt(0x10000));
+                    break;
+                default:
+                    sb.append((char) random.nextInt(0x100));
+            }
+        }
+        return sb.toString();
+    }
+
+    /* Nos dice si dos enteros tienen el mismo signo. */
+    private boolean mismoSigno(int a, int b) {
+        return Integer.signum(a) == Integer.signum(b);
+    }
+
+    /* Ordena las líneas con Archivo usando cada motor, dentro y fuera del
+     * montículo, y las compara contra ordenarlas con Archivo.compara. */
+    private void validaOrden(Lista<String> lineas) throws IOException {
+        StringBuilder texto = new StringBuilder();
+        for (String l : lineas)
+            texto.append(l).append('\n');
+        StringBuilder esperado = new StringBuilder();
+        for (String l : lineas.mergeSort((a, b) -> Archivo.compara(a, b)))
+            esperado.append(l).append('\n');
+        StringBuilder esperadoReversa = new StringBuilder();
+        for (String l : lineas.mergeSort((a, b) -> -Archivo.compara(a, b)))
+            esperadoReversa.append(l).append('\n');
+        for (Motor motor : Motor.values()) {
+            for (boolean fuera : new boolean[] { false, true }) {
+                Archivo archivo = new Archivo();
+                archivo.setMotor(motor);
+                archivo.setFueraDelMonticulo(fuera);
+                archivo.cargarArchivo(new BufferedReader(new StringReader(texto.toString())));
+                Archivo reversa = new Archivo();
+                reversa.setMotor(motor);
+                reversa.setFueraDelMonticulo(fuera);
+                reversa.cargarArchivo(new BufferedReader(new StringReader(texto.toString())));
+                archivo.ordena();
+                reversa.ordenaReversa();
+                Assert.assertEquals(esperado.toString(), archivo.toString());
+                Assert.assertEquals(esperadoReversa.toString(), reversa.toString());
+                archivo.libera();
+                reversa.libera();
+            }
+        }
+    }
+
+    /**
+     * Prueba unitaria para {@link Archivo#ordena} con líneas ASCII.
+     */
+    @Test public void testOrdenaAscii() throws IOException {
+        Lista<String> lineas = new Lista<>();
+        for (int i = 0; i < total; i++)
+            lineas.agregaFinal(linea(ASCII));
+        validaOrden(lineas);
+    }
+
+    /**
+     * Prueba unitaria para {@link Archivo#ordena} con líneas ASCII y no ASCII
+     * mezcladas.
+     */
+    @Test public void testOrdenaMezcla() throws IOException {
+        Lista<String> lineas = new Lista<>();
+        String alfabeto = "aAeEnN0+ -" + OTROS;
+        for (int i = 0; i < total; i++)
+            lineas.agregaFinal(linea(random.nextBoolean() ? ASCII : alfabeto));
+        validaOrden(lineas);
+    }
+
+    /**
+     * Prueba unitaria para {@link Archivo#ordena} con líneas que comparten
+     * prefijos largos y se repiten mucho, como las de una bitácora.
+     */
+    @Test public void testOrdenaPrefijos() throws IOException {
+        Lista<String> lineas = new Lista<>();
+        for (int i = 0; i < total; i++) {
+            String prefijo = String.format("2020-03-%02d servidor%d ", random.nextInt(3),
+                                           random.nextInt(3));
+            lineas.agregaFinal(prefijo + linea(random.nextBoolean() ? "ab" : "aáeé -"));
+        }
+        validaOrden(lineas);
+    }
+
+    /**
+     * Prueba unitaria para {@link Archivo#ordena} con el poema del README.
+     */
+    @Test public void testOrdenaPoema() throws IOException {
+        Lista<String> lineas = new Lista<>();
+        for (String l : POEMA)
+            lineas.agregaFinal(l);
+        validaOrden(lineas);
+    }
+
+    /**
+     * Prueba unitaria para {@link LlaveBytes#llave} con el poema del README:
+     * todas sus líneas tienen llave y las llaves se comparan igual que las
+     * cadenas.
+     */
+    @Test public void testLlaveBytesPoema() {
+        for (String a : POEMA) {
+            byte[] la = LlaveBytes.llave(a);
+            Assert.assertNotNull(la);
+            for (String b : POEMA)
+                Assert.assertTrue(mismoSigno(Archivo.compara(a, b),
+                                             LlaveBytes.compara(la, LlaveBytes.llave(b))));
+        }
+    }
+
+    /**
+     * Prueba unitaria para {@link LlaveBytes#compara} con cadenas Unicode
+     * aleatorias: si ambas tienen llave, las llaves se comparan igual que las
+     * cadenas.
+     */
+    @Test public void testLlaveBytesUnicode() {
+        int conLlave = 0;
+        for (int i = 0; i < total * 20; i++) {
+            String a = cadenaUnicode();
+            String b = random.nextInt(4) == 0 ? a.toUpperCase() : cadenaUnicode();
+            byte[] la = LlaveBytes.llave(a);
+            byte[] lb = LlaveBytes.llave(b);
+            if (la == null || lb == null)
+                continue;
+            conLlave++;
+            Assert.assertTrue(a + " " + b, mismoSigno(Archivo.compara(a, b),
+                                                      LlaveBytes.compara(la, lb)));
+        }
+        Assert.assertTrue(conLlave > total);
+    }
+
+    /**
+     * Prueba unitaria para {@link Archivo#setHilos}: con varios hilos el orden
+     * es el mismo que con uno.
+     */
+    @Test public void testOrdenaHilos() {
+        String alfabeto = "aAeEnN0+ -" + OTROS;
+        Archivo uno = new Archivo();
+        Archivo varios = new Archivo();
+        varios.setHilos(4);
+        for (int i = 0; i < 20 * total; i++) {
+            String l = linea(random.nextBoolean() ? ASCII : alfabeto);
+            uno.agregaLinea(l);
+            varios.agregaLinea(l);
+        }
+        uno.ordena();
+        varios.ordena();
+        Assert.assertEquals(uno.toString(), varios.toString());
+        uno.ordenaReversa();
+        varios.ordenaReversa();
+        Assert.assertEquals(uno.toString(), varios.toString());
+    }
+
+    /* Regresa el texto de las líneas sin las repetidas: de cada grupo de
+     * líneas iguales seguidas se queda la primera. */
+    private String sinRepetidas(Lista<String> ordenadas) {
+        StringBuilder sb = new StringBuilder();
+        String anterior = null;
+        for (String l : ordenadas) {
+            if (anterior == null || Archivo.compara(anterior, l) != 0)
+                sb.append(l).append('\n');
+            anterior = l;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Prueba unitaria para {@link Archivo#setUnico}: con cada motor y con uno
+     * o varios hilos sólo queda la primera de cada grupo de líneas iguales.
+     */
+    @Test public void testOrdenaUnico() {
+        Lista<String> lineas = new Lista<>();
+        for (int i = 0; i < 10 * total; i++)
+            lineas.agregaFinal(linea("aáeE -"));
+        String esperado = sinRepetidas(lineas.mergeSort((a, b) -> Archivo.compara(a, b)));
+        String esperadoReversa = sinRepetidas(lineas.mergeSort((a, b) -> -Archivo.compara(a, b)));
+        for (Motor motor : Motor.values()) {
+            for (int hilos : new int[] { 1, 4 }) {
+                Archivo archivo = new Archivo();
+                archivo.setMotor(motor);
+                archivo.setHilos(hilos);
+                archivo.setUnico(true);
+                for (String l : lineas)
+                    archivo.agregaLinea(l);
+                archivo.ordena();
+                Assert.assertEquals(esperado, archivo.toString());
+                Assert.assertTrue(archivo.getNumeroLineas() < lineas.getLongitud());
+                archivo.ordenaReversa();
+                Assert.assertEquals(esperadoReversa, archivo.toString());
+            }
+        }
+    }
+
+    /* Ordena las líneas con uno y varios hilos, con y sin repetidas, y las
+     * compara contra ordenarlas con Archivo.compara. */
+    private void validaCorridas(Lista<String> lineas) {
+        Lista<String> ordenadas = lineas.mergeSort((a, b) -> Archivo.compara(a, b));
+        Lista<String> reversa = lineas.mergeSort((a, b) -> -Archivo.compara(a, b));
+        StringBuilder esperado = new StringBuilder();
+        for (String l : ordenadas)
+            esperado.append(l).append('\n');
+        StringBuilder esperadoReversa = new StringBuilder();
+        for (String l : reversa)
+            esperadoReversa.append(l).append('\n');
+        for (int hilos : new int[] { 1, 4 }) {
+            for (boolean unico : new boolean[] { false, true }) {
+                Archivo archivo = new Archivo();
+                archivo.setHilos(hilos);
+                archivo.setUnico(unico);
+                for (String l : lineas)
+                    archivo.agregaLinea(l);
+                archivo.ordena();
+                Assert.assertEquals(unico ? sinRepetidas(ordenadas) : esperado.toString(),
+                                    archivo.toString());
+                archivo.ordenaReversa();
+                Assert.assertEquals(unico ? sinRepetidas(reversa) : esperadoReversa.toString(),
+                                    archivo.toString());
+            }
+        }
+    }
+
+    /* Regresa cuántas comparaciones cuesta ordenar las líneas. */
+    private long comparaciones(Lista<String> lineas, boolean reversa) {
+        Archivo archivo = new Archivo();
+        for (String l : lineas)
+            archivo.agregaLinea(l);
+        Estadisticas.reinicia();
+        Estadisticas.setActivas(true);
+        try {
+            if (reversa)
+                archivo.ordenaReversa();
+            else
+                archivo.ordena();
+            return Estadisticas.getComparaciones();
+        } finally {
+            Estadisticas.setActivas(false);
+            Estadisticas.reinicia();
+        }
+    }
+
+    /**
+     * Prueba unitaria para {@link Archivo#ordena} con entradas que ya tienen
+     * orden: ordenadas, en reversa, por bloques ordenados y con muchos
+     * empates. El resultado es el mismo, estable, y una entrada ordenada o en
+     * reversa cuesta poco más de una comparación por línea.
+     */
+    @Test public void testOrdenaCorridas() {
+        // más de 8192 líneas, para que con varios hilos haya mitades en paralelo
+        Lista<String> lineas = new Lista<>();
+        for (int i = 0; i < 9000 + total; i++)
+            lineas.agregaFinal(linea(random.nextBoolean() ? "aAeE -" : ASCII));
+        Lista<String> ordenadas = lineas.mergeSort((a, b) -> Archivo.compara(a, b));
+        validaCorridas(ordenadas);
+        validaCorridas(ordenadas.reversa());
+        // bloques ordenados, unos al derecho y otros al revés
+        Lista<String> bloques = new Lista<>();
+        Lista<String> bloque = new Lista<>();
+        for (String l : lineas) {
+            bloque.agregaFinal(l);
+            if (random.nextInt(100) == 0) {
+                bloque = bloque.mergeSort((a, b) -> Archivo.compara(a, b));
+                for (String b : random.nextBoolean() ? bloque : bloque.reversa())
+                    bloques.agregaFinal(b);
+                bloque = new Lista<>();
+            }
+        }
+        for (String l : bloque)
+            bloques.agregaFinal(l);
+        validaCorridas(bloques);
+
+        // líneas distintas, para que la reversa sea estrictamente descendente
+        Lista<String> distintas = new Lista<>();
+        String anterior = null;
+        for (String l : ordenadas) {
+            if (anterior == null || Archivo.compara(anterior, l) != 0)
+                distintas.agregaFinal(l);
+            anterior = l;
+        }
+        long n = distintas.getLongitud();
+        Assert.assertTrue(comparaciones(distintas, false) < 2 * n);
+        Assert.assertTrue(comparaciones(distintas, true) < 2 * n);
+        Assert.assertTrue(comparaciones(distintas.reversa(), false) < 2 * n);
+    }
+
+    /* Ordena por campos las líneas con Archivo usando cada motor, dentro y
+     * fuera del montículo, con y sin repetidos, y las compara contra
+     * ordenarlas con Campos.compara. */
+    private void validaCampos(String alfabeto) {
+        Campos campos = new Campos();
+        campos.setSeparador(',');
+        campos.agregaLlave(2, 2);
+        campos.agregaLlave(1, 0);
+        Lista<String> lineas = new Lista<>();
+        for (int i = 0; i < total; i++) {
+            StringBuilder sb = new StringBuilder();
+            int n = random.nextInt(4);
+            for (int j = 0; j < n; j++)
+                sb.append(linea(alfabeto)).append(',');
+            lineas.agregaFinal(sb.toString());
+        }
+        StringBuilder esperado = new StringBuilder();
+        for (String l : lineas.mergeSort((a, b) -> campos.compara(a, b)))
+            esperado.append(l).append('\n');
+        StringBuilder esperadoUnico = new StringBuilder();
+        String anterior = null;
+        for (String l : lineas.mergeSort((a, b) -> -campos.compara(a, b))) {
+            if (anterior == null || campos.compara(anterior, l) != 0)
+                esperadoUnico.append(l).append('\n');
+            anterior = l;
+        }
+        for (Motor motor : Motor.values()) {
+            for (boolean fuera : new boolean[] { false, true }) {
+                Archivo archivo = new Archivo();
+                archivo.setMotor(motor);
+                archivo.setFueraDelMonticulo(fuera);
+                archivo.setCampos(campos);
+                for (String l : lineas)
+                    archivo.agregaLinea(l);
+                archivo.ordena();
+                Assert.assertEquals(esperado.toString(), archivo.toString());
+                archivo.setUnico(true);
+                archivo.ordenaReversa();
+                Assert.assertEquals(esperadoUnico.toString(), archivo.toString());
+                archivo.libera();
+            }
+        }
+    }
+
+    /**
+     * Prueba unitaria para {@link Archivo#setCampos}: el orden es el de
+     * ordenar las cadenas con {@link Campos#compara}, y las líneas con llaves
+     * iguales quedan en el orden en que se agregaron. Con el segundo alfabeto
+     * algunas líneas no tienen llave de bytes.
+     */
+    @Test public void testOrdenaCampos() {
+        validaCampos("aáE -");
+        validaCampos("aáE -€");
+    }
+
+    /* Genera una línea que empieza con un número al azar: entero, a veces
+     * con decimales si se piden, y a veces con blancos o texto. */
+    private String lineaNumerica(boolean decimales) {
+        StringBuilder sb = new StringBuilder();
+        if (random.nextInt(4) == 0)
+            sb.append("  ");
+        if (random.nextBoolean())
+            sb.append('-');
+        sb.append(random.nextInt(random.nextBoolean() ? 20 : Integer.MAX_VALUE));
+        if (decimales && random.nextBoolean())
+            sb.append('.').append(random.nextInt(100));
+        if (random.nextInt(4) == 0)
+            sb.append(' ').append(linea("ab"));
+        return sb.toString();
+    }
+
+    /**
+     * Prueba unitaria para {@link Campos#setNumerico}: con cada motor el orden
+     * es el de ordenar las cadenas con {@link Campos#compara}, con números
+     * enteros y con decimales.
+     */
+    @Test public void testOrdenaNumerico() {
+        for (boolean decimales : new boolean[] { false, true }) {
+            Campos campos = new Campos();
+            campos.setNumerico(true);
+            campos.agregaLlave(1, 0);
+            Lista<String> lineas = new Lista<>();
+            for (int i = 0; i < total; i++)
+                lineas.agregaFinal(lineaNumerica(decimales));
+            StringBuilder esperado = new StringBuilder();
+            for (String l : lineas.mergeSort((a, b) -> -campos.compara(a, b)))
+                esperado.append(l).append('\n');
+            for (Motor motor : Motor.values()) {
+                for (int hilos : new int[] { 1, 4 }) {
+                    Archivo archivo = new Archivo();
+                    archivo.setMotor(motor);
+                    archivo.setHilos(hilos);
+                    archivo.setCampos(campos);
+                    for (String l : lineas)
+                        archivo.agregaLinea(l);
+                    archivo.ordenaReversa();
+                    Assert.assertEquals(esperado.toString(), archivo.toString());
+                }
+            }
+        }
+    }
+
+    /**
+     * Prueba unitaria para {@link Archivo#agregaLinea}: las líneas agregadas
+     * después de ordenar van al final, y el texto de las líneas se conserva
+     * tal cual, incluso fuera del plano básico de Unicode.
+     */
+    @Test public void testAgregaLinea() {
+        Archivo archivo = new Archivo();
+        Assert.assertTrue(archivo.esVacio());
+        archivo.agregaLinea("b");
+        archivo.agregaLinea("\uD83D\uDE00 ç");
+        archivo.agregaLinea("a");
+        Assert.assertEquals(3, archivo.getNumeroLineas());
+        archivo.ordena();
+        archivo.agregaLinea("");
+        archivo.agregaLinea("ñ");
+        Assert.assertEquals(5, archivo.getNumeroLineas());
+        Assert.assertEquals("a\nb\n\uD83D\uDE00 ç\n\nñ\n", archivo.toString());
+    }
+
+    /**
+     * Prueba unitaria para {@link Archivo#libera}: el archivo queda vacío y se
+     * puede volver a usar.
+     */
+    @Test public void testLibera() {
+        Archivo archivo = new Archivo();
+        archivo.setFueraDelMonticulo(true);
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < total; j++)
+                archivo.agregaLinea(linea(ASCII + OTROS));
+            Assert.assertEquals(total, archivo.getNumeroLineas());
+            archivo.ordena();
+            archivo.libera();
+            Assert.assertTrue(archivo.esVacio());
+            Assert.assertEquals("", archivo.toString());
+        }
+        archivo.agregaLinea("b");
+        archivo.agregaLinea("a");
+        archivo.ordena();
+        Assert.assertEquals("a\nb\n", archivo.toString());
+        try {
+            archivo.setFueraDelMonticulo(false);
+            Assert.fail();
+        } catch (IllegalStateException ise) {}
+    }
+
+    /**
+     * Prueba unitaria para {@link Archivo#agregaArchivo}: el resultado es el
+     * mismo que agregar las líneas una tras otra, con las líneas dentro o
+     * fuera del montículo.
+     */
+    @Test public void testAgregaArchivo() {
+        for (int k = 0; k < 4; k++) {
+            Archivo todo = new Archivo();
+            Archivo combinado = new Archivo();
+            combinado.setFueraDelMonticulo(k % 2 == 0);
+            for (int p = 0; p < 5; p++) {
+                Archivo parte = new Archivo();
+                parte.setFueraDelMonticulo(k / 2 == 0);
+                int n = random.nextInt(total);
+                for (int i = 0; i < n; i++) {
+                    String l = linea(ASCII + OTROS);
+                    todo.agregaLinea(l);
+                    parte.agregaLinea(l);
+                }
+                combinado.agregaArchivo(parte);
+                Assert.assertTrue(parte.esVacio());
+                combinado.agregaLinea("+");
+                todo.agregaLinea("+");
+            }
+            Assert.assertEquals(todo.getNumeroLineas(), combinado.getNumeroLineas());
+            Assert.assertEquals(todo.toString(), combinado.toString());
+            todo.ordena();
+            combinado.ordena();
+            Assert.assertEquals(todo.toString(), combinado.toString());
+            combinado.libera();
+        }
+    }
+}
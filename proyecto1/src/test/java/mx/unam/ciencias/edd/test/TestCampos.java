@@ -0,0 +1,69 @@
+package mx.unam.ciencias.edd.test;
+
+import mx.unam.ciencias.edd.proyecto1.Archivo;
+import mx.unam.ciencias.edd.proyecto1.Campos;
+import mx.unam.ciencias.edd.proyecto1.ExcepcionArgumentoInvalido;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+/**
+ * Clase para pruebas unitarias de la clase {@link Campos}.
+ */
+public class TestCampos {
+
+    /** Expiración para que ninguna prueba tarde más de 5 segundos. */
+    @Rule public Timeout expiracion = Timeout.seconds(5);
+
+    /**
+     * Prueba unitaria para {@link Campos#compara} con campos separados por
+     * blancos: los blancos al inicio no forman un campo.
+     */
+    @Test public void testComparaBlancos() {
+        Campos campos = new Campos();
+        campos.agregaLlave(2, 2);
+        Assert.assertTrue(campos.compara("  b \t a", "a b") < 0);
+        Assert.assertTrue(campos.compara("z b", "a a") > 0);
+        Assert.assertEquals(0, campos.compara("x Ñu y", "y nu x"));
+        // a la línea le falta el campo, así que su llave es vacía
+        Assert.assertTrue(campos.compara("b", "a a") < 0);
+    }
+
+    /**
+     * Prueba unitaria para {@link Campos#compara} con un separador y llaves
+     * de varios campos.
+     */
+    @Test public void testComparaSeparador() {
+        Campos campos = new Campos();
+        campos.setSeparador(',');
+        campos.agregaLlave(3, 0);
+        campos.agregaLlave(1, 2);
+        Assert.assertTrue(campos.compara("b,x,a", "a,x,b") < 0);
+        Assert.assertTrue(campos.compara("b,x,a,b", "a,x,a,a") > 0);
+        Assert.assertTrue(campos.compara("b,x,a", "c,,a") < 0);
+        Assert.assertEquals(0, campos.compara("a b,,c", "ab,,c"));
+        Assert.assertTrue(campos.compara(",,", "a,,") < 0);
+        Assert.assertEquals(Integer.signum(Archivo.compara("á", "b")),
+                            Integer.signum(campos.compara("x,y,á", "x,y,b")));
+    }
+
+    /**
+     * Prueba unitaria para {@link Campos#agregaLlave} con campos que no
+     * forman una llave.
+     */
+    @Test public void testAgregaLlaveInvalida() {
+        Campos campos = new Campos();
+        int[][] invalidas = { { 0, 0 }, { 2, 1 }, { 1, -1 } };
+        for (int[] llave : invalidas) {
+            try {
+                campos.agregaLlave(llave[0], llave[1]);
+                Assert.fail();
+            } catch (ExcepcionArgumentoInvalido eai) {
+            }
+        }
+        for (int i = 1; i <= 5; i++)
+            campos.agregaLlave(i, i);
+        Assert.assertEquals(5, campos.getNumeroLlaves());
+    }
+}
@@ -0,0 +1,145 @@
+package mx.unam.ciencias.edd.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import mx.unam.ciencias.edd.proyecto1.EscritorSalida;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+/**
+ * Clase para pruebas unitarias de la clase {@link EscritorSalida}. Los bytes
+ * escritos deben ser los mismos que da {@link String#getBytes(Charset)}, que
+ * también reemplaza por '?' lo que no se puede codificar.
+ */
+public class TestEscritorSalida {
+
+    /** Expiración para que ninguna prueba tarde más de 5 segundos. */
+    @Rule public Timeout expiracion = Timeout.seconds(5);
+
+    /* Tamaño del búfer del escritor. */
+    private static final int TAMANO_BUFER = 1 << 20;
+    /* Caracteres de uno, dos y tres bytes en UTF-8, uno que no está en
+     * ISO-8859-1 pero sí en windows-1252, y pares sustitutos, de cuatro
+     * bytes. */
+    private static final String[] CARACTERES = {
+        "a", "Z", " ", "~", "ñ", "é", "ß", "€", "中", "\u0800", "\uFFFD", "😀", "𝄞"
+    };
+    /* Sustitutos sin pareja. */
+    private static final String[] SUSTITUTOS = { "\uD800", "\uDBFF", "\uDC00", "\uDFFF" };
+
+    /* Generador de números aleatorios. */
+    private Random random;
+
+    /**
+     * Crea un generador de números aleatorios para cada prueba.
+     */
+    public TestEscritorSalida() {
+        random = new Random();
+    }
+
+    /* Genera una línea al azar; a veces con sustitutos sin pareja, incluso al
+     * final. */
+    private String linea(int longitud) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < longitud; i++) {
+            if (random.nextInt(20) == 0)
+                sb.append(SUSTITUTOS[random.nextInt(SUSTITUTOS.length)]);
+            else
+                sb.append(CARACTERES[random.nextInt(CARACTERES.length)]);
+        }
+        return sb.toString();
+    }
+
+    /* Escribe las líneas con la codificación y regresa los bytes escritos. */
+    private byte[] escrito(String[] lineas, Charset codificacion) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (EscritorSalida salida = new EscritorSalida(
+                 Channels.newChannel(bytes), codificacion, true)) {
+            for (String l : lineas)
+                salida.escribeLinea(l);
+        }
+        return bytes.toByteArray();
+    }
+
+    /* Regresa los bytes esperados de las líneas con la codificación. */
+    private byte[] esperado(String[] lineas, Charset codificacion) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (String l : lineas) {
+            bytes.write(l.getBytes(codificacion));
+            bytes.write('\n');
+        }
+        return bytes.toByteArray();
+    }
+
+    /* Escribe las líneas con cada codificación y las compara contra
+     * String.getBytes. */
+    private void valida(String[] lineas) throws IOException {
+        for (Charset codificacion : new Charset[] {
+                StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1,
+                Charset.forName("windows-1252") })
+            Assert.assertArrayEquals(codificacion.name(), esperado(lineas, codificacion),
+                                     escrito(lineas, codificacion));
+    }
+
+    /**
+     * Prueba unitaria para {@link EscritorSalida#escribeLinea(String)} con el
+     * codificador de UTF-8 hecho a mano y con el de las demás codificaciones:
+     * pares sustitutos, sustitutos sin pareja y caracteres que no se pueden
+     * codificar.
+     */
+    @Test public void testCodificaciones() throws IOException {
+        valida(new String[] {
+                "", "a", "ñandú", "€", "中文", "😀", "a😀b",
+                "\uD800", "a\uDC00b", "\uDBFF\uDBFF\uDFFF", "\uDFFF\uD800", "fin\uD800"
+            });
+        for (int caso = 0; caso < 20; caso++) {
+            String[] lineas = new String[random.nextInt(100)];
+            for (int i = 0; i < lineas.length; i++)
+                lineas[i] = linea(random.nextInt(30));
+            valida(lineas);
+        }
+    }
+
+    /**
+     * Prueba unitaria para {@link EscritorSalida#escribeLinea(String)} con
+     * líneas que cruzan el final del búfer: una que mide más que el búfer,
+     * otra cuyo '\n' cae justo en el último byte y caracteres de varios bytes
+     * que ya no caben al final.
+     */
+    @Test public void testBufer() throws IOException {
+        StringBuilder ascii = new StringBuilder();
+        for (int i = 0; i < TAMANO_BUFER - 1; i++)
+            ascii.append((char) ('a' + i % 26));
+        valida(new String[] { ascii.toString(), "b", "c" });
+        valida(new String[] { "x", linea(TAMANO_BUFER + random.nextInt(TAMANO_BUFER)), "y" });
+        // al primer caracter de varios bytes le faltan bytes en el búfer
+        valida(new String[] { ascii.substring(3), "😀中ñ" + linea(100) });
+    }
+
+    /**
+     * Prueba unitaria para {@link EscritorSalida#escribeLinea(byte[], int,
+     * int)}: los bytes se copian tal cual aunque crucen el búfer.
+     */
+    @Test public void testBytes() throws IOException {
+        byte[] linea = new byte[TAMANO_BUFER + random.nextInt(TAMANO_BUFER)];
+        random.nextBytes(linea);
+        int inicio = random.nextInt(100);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (EscritorSalida salida = new EscritorSalida(
+                 Channels.newChannel(bytes), StandardCharsets.UTF_8, true)) {
+            salida.escribeLinea("ñ");
+            salida.escribeLinea(linea, inicio, linea.length - inicio);
+        }
+        ByteArrayOutputStream esperado = new ByteArrayOutputStream();
+        esperado.write("ñ\n".getBytes(StandardCharsets.UTF_8));
+        esperado.write(linea, inicio, linea.length - inicio);
+        esperado.write('\n');
+        Assert.assertArrayEquals(esperado.toByteArray(), bytes.toByteArray());
+    }
+}
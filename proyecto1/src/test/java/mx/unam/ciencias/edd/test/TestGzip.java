@@ -0,0 +1,123 @@
+package mx.unam.ciencias.edd.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.zip.Deflater;
+import mx.unam.ciencias.edd.proyecto1.EscritorSalida;
+import mx.unam.ciencias.edd.proyecto1.Gzip;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+/**
+ * Clase para pruebas unitarias de la clase {@link Gzip}.
+ */
+public class TestGzip {
+
+    /** Expiración para que ninguna prueba tarde más de 5 segundos. */
+    @Rule public Timeout expiracion = Timeout.seconds(5);
+
+    /* Caracteres de las líneas. */
+    private static final String ALFABETO = "aAáeEéñnN0+ -€中";
+
+    /* Generador de números aleatorios. */
+    private Random random;
+
+    /**
+     * Crea un generador de números aleatorios para cada prueba.
+     */
+    public TestGzip() {
+        random = new Random();
+    }
+
+    /* Genera un texto de líneas al azar, cada una terminada en '\n'. */
+    private String texto() {
+        return Pruebas.texto(random, ALFABETO, 1000 + random.nextInt(10000), 20);
+    }
+
+    /* Lee todos los bytes de un flujo y lo cierra. */
+    private byte[] lee(InputStream entrada) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (InputStream e = entrada) {
+            byte[] bufer = new byte[4096];
+            int n;
+            while ((n = e.read(bufer)) != -1)
+                salida.write(bufer, 0, n);
+        }
+        return salida.toByteArray();
+    }
+
+    /**
+     * Prueba unitaria para {@link EscritorSalida#comprimido}, {@link
+     * Gzip#esGzip} y {@link Gzip#detecta}: lo que se escribe comprimido se
+     * reconoce y se lee igual.
+     */
+    @Test public void testComprimido() throws IOException {
+        String texto = texto();
+        File archivo = File.createTempFile("gzip", ".gz");
+        try {
+            try (EscritorSalida salida = EscritorSalida.comprimido(
+                     archivo, StandardCharsets.UTF_8, Deflater.BEST_SPEED)) {
+                String[] lineas = texto.split("\n", -1);
+                // el texto termina en '\n', así que el último pedazo es vacío
+                for (int i = 0; i < lineas.length - 1; i++)
+                    salida.escribeLinea(lineas[i]);
+            }
+            Assert.assertTrue(Gzip.esGzip(archivo));
+            Assert.assertTrue(archivo.length() < texto.getBytes(StandardCharsets.UTF_8).length);
+            byte[] leido = lee(Gzip.detecta(new FileInputStream(archivo)));
+            Assert.assertEquals(texto, new String(leido, StandardCharsets.UTF_8));
+        } finally {
+            archivo.delete();
+        }
+    }
+
+    /**
+     * Prueba unitaria para {@link Gzip#esGzip} y {@link Gzip#detecta} con
+     * entradas que no están comprimidas, incluso vacías o de un byte.
+     */
+    @Test public void testSinComprimir() throws IOException {
+        byte[][] entradas = {
+            texto().getBytes(StandardCharsets.UTF_8), new byte[0], { 0x1f }
+        };
+        for (byte[] bytes : entradas) {
+            Assert.assertArrayEquals(bytes, lee(Gzip.detecta(new ByteArrayInputStream(bytes))));
+            File archivo = File.createTempFile("gzip", ".txt");
+            try {
+                Files.write(archivo.toPath(), bytes);
+                Assert.assertFalse(Gzip.esGzip(archivo));
+            } finally {
+                archivo.delete();
+            }
+        }
+    }
+
+    /**
+     * Prueba unitaria para {@link Gzip#comprime} y {@link Gzip#detecta} con
+     * varios miembros gzip seguidos, como los de concatenar archivos
+     * comprimidos.
+     */
+    @Test public void testMiembros() throws IOException {
+        String primero = texto();
+        String segundo = texto();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (String texto : new String[] { primero, segundo }) {
+            ByteArrayOutputStream miembro = new ByteArrayOutputStream();
+            try (OutputStream salida = Gzip.comprime(miembro, Deflater.DEFAULT_COMPRESSION)) {
+                salida.write(texto.getBytes(StandardCharsets.UTF_8));
+            }
+            miembro.writeTo(bytes);
+        }
+        byte[] leido = lee(Gzip.detecta(new ByteArrayInputStream(bytes.toByteArray())));
+        Assert.assertEquals(primero + segundo, new String(leido, StandardCharsets.UTF_8));
+    }
+}
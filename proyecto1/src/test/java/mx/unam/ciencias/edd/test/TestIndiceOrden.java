@@ -0,0 +1,215 @@
+package mx.unam.ciencias.edd.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import mx.unam.ciencias.edd.Estadisticas;
+import mx.unam.ciencias.edd.proyecto1.Archivo;
+import mx.unam.ciencias.edd.proyecto1.IndiceOrden;
+import mx.unam.ciencias.edd.proyecto1.LectorLineas;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+/**
+ * Clase para pruebas unitarias de la clase {@link IndiceOrden}. Lo que se
+ * escribe con el índice debe ser idéntico a lo que escribe {@link Archivo}
+ * al ordenar las mismas líneas.
+ */
+public class TestIndiceOrden {
+
+    /** Expiración para que ninguna prueba tarde más de 5 segundos. */
+    @Rule public Timeout expiracion = Timeout.seconds(5);
+
+    /* Caracteres de las líneas. */
+    private static final String ALFABETO = "aAáeEéñnN0+ -€中";
+    /* Firma de las opciones con las que se ordena en las pruebas. */
+    private static final String FIRMA = "pruebas";
+
+    /* Generador de números aleatorios. */
+    private Random random;
+
+    /**
+     * Crea un generador de números aleatorios para cada prueba.
+     */
+    public TestIndiceOrden() {
+        random = new Random();
+    }
+
+    /* Genera un texto de líneas al azar, cada una terminada en '\n'. */
+    private String texto() {
+        return Pruebas.texto(random, ALFABETO, 1000 + random.nextInt(1000), 12);
+    }
+
+    /* Crea un archivo temporal con el texto. */
+    private File archivo(String texto) throws IOException {
+        return Pruebas.archivo("indice", texto);
+    }
+
+    /* Borra el archivo y su índice. */
+    private void borra(File archivo) {
+        new File(archivo.getPath() + IndiceOrden.EXTENSION).delete();
+        archivo.delete();
+    }
+
+    /* Regresa lo que escribe Archivo al ordenar las líneas del texto. */
+    private String ordenado(String texto, boolean reversa) throws IOException {
+        return Pruebas.ordenado(texto, reversa, false);
+    }
+
+    /* Regresa lo que escribe el índice. */
+    private String escrito(IndiceOrden indice) throws IOException {
+        return Pruebas.escrito(indice::escribe);
+    }
+
+    /* Regresa las líneas del lector del índice, cada una terminada en '\n'. */
+    private String leido(IndiceOrden indice) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        try (LectorLineas lector = indice.lector()) {
+            String linea;
+            while ((linea = lector.leeLinea()) != null)
+                sb.append(linea).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Prueba unitaria para {@link IndiceOrden#construye}, {@link
+     * IndiceOrden#guarda} y {@link IndiceOrden#carga}: el índice construido y
+     * el cargado escriben lo mismo que Archivo.
+     */
+    @Test public void testConstruyeYCarga() throws IOException {
+        String texto = texto();
+        boolean reversa = random.nextBoolean();
+        String esperado = ordenado(texto, reversa);
+        File archivo = archivo(texto);
+        try {
+            IndiceOrden indice = new IndiceOrden(archivo, FIRMA, StandardCharsets.UTF_8);
+            Assert.assertFalse(indice.carga());
+            indice.construye(new Archivo(), reversa);
+            Assert.assertEquals(esperado, escrito(indice));
+            indice.guarda();
+
+            IndiceOrden cargado = new IndiceOrden(archivo, FIRMA, StandardCharsets.UTF_8);
+            Assert.assertTrue(cargado.carga());
+            Assert.assertEquals(indice.getNumeroLineas(), cargado.getNumeroLineas());
+            Assert.assertEquals(esperado, escrito(cargado));
+            Assert.assertEquals(esperado, leido(cargado));
+        } finally {
+            borra(archivo);
+        }
+    }
+
+    /**
+     * Prueba unitaria para las líneas que cuenta {@link IndiceOrden#escribe}
+     * en {@link Estadisticas}: las de un índice cargado se cuentan al
+     * escribirlas, y las de uno construido sólo cuando pasan por el
+     * {@link Archivo}, no otra vez al escribirlas.
+     */
+    @Test public void testEstadisticas() throws IOException {
+        File archivo = archivo(texto());
+        Estadisticas.reinicia();
+        Estadisticas.setActivas(true);
+        try {
+            IndiceOrden indice = new IndiceOrden(archivo, FIRMA, StandardCharsets.UTF_8);
+            Archivo destino = new Archivo();
+            indice.lee(destino);
+            Assert.assertEquals(0, indice.getNumeroLineas());
+            indice.ordena(destino, false);
+            int n = indice.getNumeroLineas();
+            Assert.assertEquals(n, Estadisticas.getLineas());
+            escrito(indice);
+            Assert.assertEquals(n, Estadisticas.getLineas());
+            indice.guarda();
+            destino.libera();
+
+            Estadisticas.reinicia();
+            IndiceOrden cargado = new IndiceOrden(archivo, FIRMA, StandardCharsets.UTF_8);
+            Assert.assertTrue(cargado.carga());
+            Assert.assertEquals(0, Estadisticas.getLineas());
+            escrito(cargado);
+            Assert.assertEquals(n, Estadisticas.getLineas());
+            Assert.assertEquals(n, Estadisticas.getPicoLineas());
+        } finally {
+            Estadisticas.setActivas(false);
+            Estadisticas.reinicia();
+            borra(archivo);
+        }
+    }
+
+    /**
+     * Prueba unitaria para {@link IndiceOrden#carga} cuando el archivo cambia
+     * o la firma es otra: el índice ya no sirve, aunque el tamaño y la fecha
+     * de modificación del archivo sigan iguales.
+     */
+    @Test public void testInvalida() throws IOException {
+        String texto = texto();
+        File archivo = archivo(texto);
+        try {
+            IndiceOrden indice = new IndiceOrden(archivo, FIRMA, StandardCharsets.UTF_8);
+            indice.construye(new Archivo(), false);
+            indice.guarda();
+
+            Assert.assertFalse(new IndiceOrden(archivo, "otra", StandardCharsets.UTF_8).carga());
+
+            // mismo tamaño y misma fecha, distinto contenido
+            long modificacion = archivo.lastModified();
+            byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+            bytes[0] = (byte) (bytes[0] == 'a' ? 'b' : 'a');
+            Files.write(archivo.toPath(), bytes);
+            archivo.setLastModified(modificacion);
+            IndiceOrden cambiado = new IndiceOrden(archivo, FIRMA, StandardCharsets.UTF_8);
+            Assert.assertFalse(cambiado.carga());
+            String nuevo = new String(bytes, StandardCharsets.UTF_8);
+            cambiado.construye(new Archivo(), false);
+            Assert.assertEquals(ordenado(nuevo, false), escrito(cambiado));
+            cambiado.guarda();
+            Assert.assertTrue(new IndiceOrden(archivo, FIRMA, StandardCharsets.UTF_8).carga());
+
+            // líneas agregadas al final
+            Files.write(archivo.toPath(), (nuevo + "zzz\n").getBytes(StandardCharsets.UTF_8));
+            Assert.assertFalse(new IndiceOrden(archivo, FIRMA, StandardCharsets.UTF_8).carga());
+        } finally {
+            borra(archivo);
+        }
+    }
+
+    /**
+     * Prueba unitaria para {@link IndiceOrden#carga} con un índice dañado: una
+     * firma que no es UTF-8 modificado o un número de líneas que no cabe en
+     * el índice hacen que se reconstruya, no que falle.
+     */
+    @Test public void testDanado() throws IOException {
+        File archivo = archivo(texto());
+        File sidecar = new File(archivo.getPath() + IndiceOrden.EXTENSION);
+        try {
+            IndiceOrden indice = new IndiceOrden(archivo, FIRMA, StandardCharsets.UTF_8);
+            indice.construye(new Archivo(), false);
+            indice.guarda();
+            byte[] bueno = Files.readAllBytes(sidecar.toPath());
+
+            // el primer byte de la firma no puede empezar un caracter
+            byte[] bytes = bueno.clone();
+            bytes[10] = (byte) 0xff;
+            Files.write(sidecar.toPath(), bytes);
+            Assert.assertFalse(new IndiceOrden(archivo, FIRMA, StandardCharsets.UTF_8).carga());
+
+            // el número de líneas va después del encabezado y la firma
+            bytes = bueno.clone();
+            int n = 4 + 4 + 2 + FIRMA.length() + 8 + 8 + 8;
+            bytes[n] = 0x7f;
+            Files.write(sidecar.toPath(), bytes);
+            Assert.assertFalse(new IndiceOrden(archivo, FIRMA, StandardCharsets.UTF_8).carga());
+
+            IndiceOrden reconstruido = new IndiceOrden(archivo, FIRMA, StandardCharsets.UTF_8);
+            reconstruido.construye(new Archivo(), false);
+            reconstruido.guarda();
+            Assert.assertTrue(new IndiceOrden(archivo, FIRMA, StandardCharsets.UTF_8).carga());
+        } finally {
+            borra(archivo);
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package mx.unam.ciencias.edd.test;
 
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Random;
 import mx.unam.ciencias.edd.Coleccion;
+import mx.unam.ciencias.edd.Estadisticas;
 import mx.unam.ciencias.edd.ExcepcionIndiceInvalido;
 import mx.unam.ciencias.edd.IteradorLista;
 import mx.unam.ciencias.edd.Lista;
@@ -802,6 +804,216 @@ public class TestLista {
         }
     }
 
+    /**
+     * Prueba unitaria para {@link Lista#mergeSortEnLugar(java.util.Comparator)}.
+     */
+    @Test public void testMergeSortEnLugar() {
+        for (int i = 0; i < total; i++)
+            lista.agregaFinal(random.nextInt(total));
+        Lista<Integer> copia = lista.copia();
+        lista.mergeSortEnLugar((a, b) -> a.compareTo(b));
+        Assert.assertTrue(lista.getLongitud() == copia.getLongitud());
+        Assert.assertTrue(lista.equals(copia.mergeSort((a, b) -> a.compareTo(b))));
+        for (int e : copia)
+            Assert.assertTrue(lista.contiene(e));
+        int a = lista.getPrimero();
+        for (int e : lista) {
+            Assert.assertTrue(a <= e);
+            a = e;
+        }
+        validaLista(lista);
+        /* Prueba estabilidad. */
+        total = 100 + total * 10;
+        int m = 7 + random.nextInt(20);
+        Lista<Par> pares = new Lista<Par>();
+        for (int i = 0; i < total; i++) {
+            int v = ((i % m) == 0) ? m : random.nextInt(total);
+            pares.agrega(new Par(v, i));
+        }
+        pares.mergeSortEnLugar((p, q) -> p.compareTo(q));
+        Assert.assertTrue(pares.getLongitud() == total);
+        Par u = null;
+        for (Par par : pares) {
+            if (u == null) {
+                u = par;
+                continue;
+            }
+            Assert.assertTrue(u.getValor() <= par.getValor());
+            if (u.getValor() == par.getValor())
+                Assert.assertTrue(u.getEtiqueta() < par.getEtiqueta());
+            u = par;
+        }
+        Assert.assertTrue(pares.getUltimo() == u);
+    }
+
+    /**
+     * Prueba unitaria para {@link Lista#mergeSortEnLugar(Lista)}.
+     */
+    @Test public void testMergeSortEnLugarLista() {
+        Lista.mergeSortEnLugar(lista);
+        Assert.assertTrue(lista.esVacia());
+        lista.agregaFinal(1);
+        Lista.mergeSortEnLugar(lista);
+        Assert.assertTrue(lista.getLongitud() == 1);
+        validaLista(lista);
+        for (int i = 0; i < total; i++)
+            lista.agregaFinal(random.nextInt(total));
+        Lista.mergeSortEnLugar(lista);
+        Assert.assertTrue(lista.getLongitud() == total + 1);
+        int a = lista.getPrimero();
+        for (int e : lista) {
+            Assert.assertTrue(a <= e);
+            a = e;
+        }
+        validaLista(lista);
+    }
+
+    /**
+     * Prueba unitaria para {@link Lista#mergeSortNatural(java.util.Comparator)}.
+     */
+    @Test public void testMergeSortNatural() {
+        for (int i = 0; i < total; i++)
+            lista.agregaFinal(random.nextInt(total));
+        Lista<Integer> copia = lista.copia();
+        lista.mergeSortNatural((a, b) -> a.compareTo(b));
+        Assert.assertTrue(lista.equals(copia.mergeSort((a, b) -> a.compareTo(b))));
+        validaLista(lista);
+        /* Prueba tramos largos, descendentes y con elementos repetidos. */
+        total = 1000 + total * 100;
+        Lista<Par> pares = new Lista<Par>();
+        int i = 0;
+        while (i < total) {
+            int l = 1 + random.nextInt(200);
+            int v = random.nextInt(total);
+            int d = random.nextInt(3) - 1;
+            for (int j = 0; j < l && i < total; j++, i++) {
+                pares.agrega(new Par(v, i));
+                if (random.nextInt(4) != 0)
+                    v += d;
+            }
+        }
+        Lista<Par> esperada = pares.mergeSort((p, q) -> p.compareTo(q));
+        pares.mergeSortNatural((p, q) -> p.compareTo(q));
+        Assert.assertTrue(pares.getLongitud() == total);
+        Par u = null;
+        int c = 0;
+        for (Par par : pares) {
+            Assert.assertTrue(par == esperada.get(c++));
+            if (u != null) {
+                Assert.assertTrue(u.getValor() <= par.getValor());
+                if (u.getValor() == par.getValor())
+                    Assert.assertTrue(u.getEtiqueta() < par.getEtiqueta());
+            }
+            u = par;
+        }
+        Assert.assertTrue(pares.getUltimo() == u);
+    }
+
+    /**
+     * Prueba unitaria para {@link Lista#mergeSortNatural(Lista)}.
+     */
+    @Test public void testMergeSortNaturalLista() {
+        Lista.mergeSortNatural(lista);
+        Assert.assertTrue(lista.esVacia());
+        total = 1000 + total * 100;
+        for (int i = 0; i < total; i++)
+            lista.agregaFinal(i);
+        /* Una lista ordenada sólo requiere n-1 comparaciones. */
+        int[] comparaciones = { 0 };
+        lista.mergeSortNatural((a, b) -> {
+                comparaciones[0]++;
+                return a.compareTo(b);
+            });
+        Assert.assertTrue(comparaciones[0] == total - 1);
+        validaLista(lista);
+        /* Y una lista en orden inverso también. */
+        lista = lista.reversa();
+        comparaciones[0] = 0;
+        lista.mergeSortNatural((a, b) -> {
+                comparaciones[0]++;
+                return a.compareTo(b);
+            });
+        Assert.assertTrue(comparaciones[0] == total - 1);
+        int c = 0;
+        for (int e : lista)
+            Assert.assertTrue(e == c++);
+        validaLista(lista);
+        lista.agregaInicio(total / 2);
+        Lista.mergeSortNatural(lista);
+        int a = lista.getPrimero();
+        for (int e : lista) {
+            Assert.assertTrue(a <= e);
+            a = e;
+        }
+        validaLista(lista);
+    }
+
+    /**
+     * Prueba unitaria para {@link Lista#mergeSortParalelo}.
+     */
+    @Test public void testMergeSortParalelo() {
+        total = 20000 + random.nextInt(20000);
+        for (int i = 0; i < total; i++)
+            lista.agregaFinal(random.nextInt(total));
+        Lista<Integer> ordenada = lista.mergeSortParalelo((a, b) -> a.compareTo(b), 4);
+        Assert.assertFalse(lista == ordenada);
+        Assert.assertTrue(lista.getLongitud() == ordenada.getLongitud());
+        Assert.assertTrue(ordenada.equals(lista.mergeSort((a, b) -> a.compareTo(b))));
+        validaLista(ordenada);
+        try {
+            lista.mergeSortParalelo((a, b) -> a.compareTo(b), 0);
+            Assert.fail();
+        } catch (IllegalArgumentException iae) {}
+        /* Prueba estabilidad. */
+        int m = 7 + random.nextInt(20);
+        Lista<Par> pares = new Lista<Par>();
+        for (int i = 0; i < total; i++) {
+            int v = ((i % m) == 0) ? m : random.nextInt(total);
+            pares.agrega(new Par(v, i));
+        }
+        pares = pares.mergeSortParalelo((a, b) -> a.compareTo(b), 4);
+        Par u = null;
+        for (Par par : pares) {
+            if (u == null) {
+                u = par;
+                continue;
+            }
+            Assert.assertTrue(u.getValor() <= par.getValor());
+            if (u.getValor() == par.getValor())
+                Assert.assertTrue(u.getEtiqueta() < par.getEtiqueta());
+            u = par;
+        }
+    }
+
+    /**
+     * Prueba unitaria para las comparaciones que {@link Lista#mergeSort} cuenta
+     * en {@link Estadisticas}.
+     */
+    @Test public void testMergeSortEstadisticas() {
+        for (int i = 0; i < total; i++)
+            lista.agregaFinal(random.nextInt(total));
+        int[] llamadas = { 0 };
+        Comparator<Integer> comparador = (a, b) -> {
+            llamadas[0]++;
+            return a.compareTo(b);
+        };
+        Estadisticas.reinicia();
+        lista.mergeSort(comparador);
+        Assert.assertTrue(Estadisticas.getComparaciones() == 0);
+        Lista<Integer> ordenada;
+        Estadisticas.setActivas(true);
+        try {
+            llamadas[0] = 0;
+            ordenada = lista.mergeSort(comparador);
+            Assert.assertTrue(Estadisticas.getComparaciones() == llamadas[0]);
+            Assert.assertTrue(llamadas[0] >= total - 1);
+        } finally {
+            Estadisticas.setActivas(false);
+            Estadisticas.reinicia();
+        }
+        Assert.assertTrue(ordenada.equals(Lista.mergeSort(lista)));
+    }
+
     /**
      * Prueba unitaria para {@link Lista#busquedaLineal}.
      */
@@ -0,0 +1,56 @@
+package mx.unam.ciencias.edd.test;
+
+import mx.unam.ciencias.edd.proyecto1.LlavesNumericas;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+/**
+ * Clase para pruebas unitarias de la clase {@link LlavesNumericas}.
+ */
+public class TestLlavesNumericas {
+
+    /** Expiración para que ninguna prueba tarde más de 5 segundos. */
+    @Rule public Timeout expiracion = Timeout.seconds(5);
+
+    /* Textos en orden numérico estrictamente creciente. */
+    private static final String[] CRECIENTES = {
+        "-123456789012345678901234567890", "-9223372036854775809",
+        "-9223372036854775807", "-12.5 b", "-12", "-.5", "0", "0.25", "1",
+        "  2 a", "3.5", "10", "4503599627370495", "4503599627370495.5",
+        "4503599627370496", "9223372036854775807", "9223372036854775808",
+        "123456789012345678901234567890"
+    };
+
+    /**
+     * Prueba unitaria para {@link LlavesNumericas#compara(String, String)}
+     * con números enteros, reales y que no caben en un long.
+     */
+    @Test public void testCompara() {
+        for (int i = 0; i < CRECIENTES.length; i++) {
+            for (int j = 0; j < CRECIENTES.length; j++) {
+                int c = LlavesNumericas.compara(CRECIENTES[i], CRECIENTES[j]);
+                Assert.assertEquals(CRECIENTES[i] + " " + CRECIENTES[j],
+                                    Integer.signum(Integer.compare(i, j)),
+                                    Integer.signum(c));
+            }
+        }
+    }
+
+    /**
+     * Prueba unitaria para {@link LlavesNumericas#compara(String, String)}
+     * con textos que valen lo mismo.
+     */
+    @Test public void testComparaIguales() {
+        String[][] iguales = {
+            { "", "abc", "-", "+", ".", "0", "-0", "0.000", "-0.0" },
+            { "7", "+7", " \t7", "7.", "7.00", "07x", "7e5" },
+            { "-3.25", "-03.250", " -3.25abc" }
+        };
+        for (String[] grupo : iguales)
+            for (String a : grupo)
+                for (String b : grupo)
+                    Assert.assertEquals(a + " " + b, 0, LlavesNumericas.compara(a, b));
+    }
+}
@@ -0,0 +1,125 @@
+package mx.unam.ciencias.edd.test;
+
+import java.io.IOException;
+import java.util.Random;
+import mx.unam.ciencias.edd.proyecto1.Archivo;
+import mx.unam.ciencias.edd.proyecto1.ExcepcionEntradaDesordenada;
+import mx.unam.ciencias.edd.proyecto1.MezclaOrdenada;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+/**
+ * Clase para pruebas unitarias de la clase {@link MezclaOrdenada}. El
+ * resultado debe ser idéntico al de ordenar todas las entradas juntas con
+ * {@link Archivo}.
+ */
+public class TestMezclaOrdenada {
+
+    /** Expiración para que ninguna prueba tarde más de 5 segundos. */
+    @Rule public Timeout expiracion = Timeout.seconds(5);
+
+    /* Caracteres de las líneas; pocos para que haya muchos empates. */
+    private static final String ALFABETO = "aAáeEéñnN0+ -";
+
+    /* Generador de números aleatorios. */
+    private Random random;
+
+    /**
+     * Crea un generador de números aleatorios para cada prueba.
+     */
+    public TestMezclaOrdenada() {
+        random = new Random();
+    }
+
+    /* Genera una línea corta con caracteres del alfabeto. */
+    private String linea() {
+        return Pruebas.linea(random, ALFABETO, 5);
+    }
+
+    /* Regresa un archivo con líneas al azar. */
+    private Archivo archivo(int lineas) {
+        Archivo archivo = new Archivo();
+        for (int i = 0; i < lineas; i++)
+            archivo.agregaLinea(linea());
+        return archivo;
+    }
+
+    /* Agrega a la mezcla el texto de un archivo como entrada. */
+    private void agrega(MezclaOrdenada mezcla, String nombre, Archivo archivo)
+        throws IOException {
+        mezcla.agregaEntrada(nombre, Pruebas.lector(archivo.toString()));
+    }
+
+    /* Escribe la mezcla y regresa su texto. */
+    private String escribe(MezclaOrdenada mezcla) throws IOException {
+        return Pruebas.escrito(mezcla::escribe);
+    }
+
+    /* Mezcla varias entradas ordenadas y compara contra ordenarlas juntas. */
+    private void valida(boolean reversa, boolean unico) throws IOException {
+        MezclaOrdenada mezcla = new MezclaOrdenada(reversa);
+        mezcla.setUnico(unico);
+        Archivo todas = new Archivo();
+        todas.setUnico(unico);
+        int entradas = 1 + random.nextInt(8);
+        for (int i = 0; i < entradas; i++) {
+            Archivo entrada = new Archivo();
+            int lineas = random.nextInt(2000);
+            for (int j = 0; j < lineas; j++) {
+                String l = linea();
+                entrada.agregaLinea(l);
+                todas.agregaLinea(l);
+            }
+            if (reversa)
+                entrada.ordenaReversa();
+            else
+                entrada.ordena();
+            agrega(mezcla, "entrada" + i, entrada);
+        }
+        if (reversa)
+            todas.ordenaReversa();
+        else
+            todas.ordena();
+        Assert.assertEquals(todas.toString(), escribe(mezcla));
+    }
+
+    /**
+     * Prueba unitaria para {@link MezclaOrdenada#escribe}.
+     */
+    @Test public void testEscribe() throws IOException {
+        valida(false, false);
+        valida(true, false);
+    }
+
+    /**
+     * Prueba unitaria para {@link MezclaOrdenada#escribe} sin líneas
+     * repetidas.
+     */
+    @Test public void testEscribeUnico() throws IOException {
+        valida(false, true);
+        valida(true, true);
+    }
+
+    /**
+     * Prueba unitaria para {@link MezclaOrdenada#escribe} con una entrada que
+     * no está ordenada.
+     */
+    @Test public void testEscribeDesordenada() throws IOException {
+        MezclaOrdenada mezcla = new MezclaOrdenada(false);
+        Archivo ordenada = archivo(100);
+        ordenada.ordena();
+        agrega(mezcla, "ordenada", ordenada);
+        Archivo desordenada = new Archivo();
+        desordenada.agregaLinea("b");
+        desordenada.agregaLinea("a");
+        agrega(mezcla, "desordenada", desordenada);
+        try {
+            escribe(mezcla);
+            Assert.fail();
+        } catch (ExcepcionEntradaDesordenada eed) {
+            Assert.assertTrue(eed.getMessage().startsWith("desordenada"));
+        }
+    }
+}
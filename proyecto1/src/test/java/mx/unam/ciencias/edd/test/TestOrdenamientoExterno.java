@@ -0,0 +1,106 @@
+package mx.unam.ciencias.edd.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import mx.unam.ciencias.edd.proyecto1.Archivo;
+import mx.unam.ciencias.edd.proyecto1.OrdenamientoExterno;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+/**
+ * Clase para pruebas unitarias de la clase {@link OrdenamientoExterno}. El
+ * resultado debe ser idéntico, byte por byte, al de ordenar todo en memoria
+ * con {@link Archivo}.
+ */
+public class TestOrdenamientoExterno {
+
+    /** Expiración para que ninguna prueba tarde más de 10 segundos. */
+    @Rule public Timeout expiracion = Timeout.seconds(10);
+
+    /* Caracteres de las líneas; pocos para que haya muchos empates. */
+    private static final String ALFABETO = "aAáeEéñnN0+ -";
+
+    /* Generador de números aleatorios. */
+    private Random random;
+
+    /**
+     * Crea un generador de números aleatorios para cada prueba.
+     */
+    public TestOrdenamientoExterno() {
+        random = new Random();
+    }
+
+    /* Crea un directorio temporal vacío para las corridas. */
+    private File directorio() throws IOException {
+        File directorio = File.createTempFile("externo", "");
+        Assert.assertTrue(directorio.delete());
+        Assert.assertTrue(directorio.mkdir());
+        return directorio;
+    }
+
+    /* Ordena el texto con el presupuesto de memoria y lo compara contra
+     * ordenarlo en memoria; al final no debe quedar ninguna corrida. */
+    private void valida(String texto, long memoria, boolean reversa, boolean unico,
+                        boolean comprimido) throws IOException {
+        File directorio = directorio();
+        try {
+            OrdenamientoExterno externo = new OrdenamientoExterno(memoria, directorio, reversa);
+            externo.setUnico(unico);
+            externo.setComprimido(comprimido);
+            externo.cargarArchivo(Pruebas.lector(texto));
+            Assert.assertEquals(Pruebas.ordenado(texto, reversa, unico),
+                                Pruebas.escrito(externo::escribe));
+            Assert.assertEquals(0, directorio.list().length);
+        } finally {
+            for (File f : directorio.listFiles())
+                f.delete();
+            directorio.delete();
+        }
+    }
+
+    /**
+     * Prueba unitaria para {@link OrdenamientoExterno#escribe} cuando todo
+     * cabe en memoria y no se escribe ninguna corrida.
+     */
+    @Test public void testEnMemoria() throws IOException {
+        String texto = Pruebas.texto(random, ALFABETO, 1000 + random.nextInt(1000), 8);
+        for (int caso = 0; caso < 4; caso++)
+            valida(texto, 1L << 30, (caso & 1) != 0, (caso & 2) != 0, false);
+    }
+
+    /**
+     * Prueba unitaria para {@link OrdenamientoExterno#escribe} con unas
+     * cuantas líneas por corrida, pero menos de 64 corridas: se mezclan todas
+     * a la vez, en reversa o no, con o sin repetidas y comprimidas o no.
+     */
+    @Test public void testUnaMezcla() throws IOException {
+        String texto = Pruebas.texto(random, ALFABETO, 200 + random.nextInt(200), 8);
+        for (int caso = 0; caso < 8; caso++)
+            valida(texto, 1 << 12, (caso & 1) != 0, (caso & 2) != 0, (caso & 4) != 0);
+    }
+
+    /**
+     * Prueba unitaria para {@link OrdenamientoExterno#escribe} con una línea
+     * por corrida y más de 64 corridas, así que se reducen en grupos antes de
+     * la mezcla final, en reversa o no y con o sin repetidas. Los empates
+     * quedan en el orden de la entrada.
+     */
+    @Test public void testReduccion() throws IOException {
+        String texto = Pruebas.texto(random, ALFABETO, 100 + random.nextInt(400), 4);
+        for (int caso = 0; caso < 4; caso++)
+            valida(texto, 1, (caso & 1) != 0, (caso & 2) != 0, random.nextBoolean());
+    }
+
+    /**
+     * Prueba unitaria para {@link OrdenamientoExterno#escribe} con una línea
+     * por corrida y más de 64 × 64 corridas, así que se reducen en dos
+     * niveles antes de la mezcla final.
+     */
+    @Test public void testVariosNiveles() throws IOException {
+        String texto = Pruebas.texto(random, ALFABETO, 4100 + random.nextInt(200), 4);
+        valida(texto, 1, random.nextBoolean(), random.nextBoolean(), false);
+    }
+}
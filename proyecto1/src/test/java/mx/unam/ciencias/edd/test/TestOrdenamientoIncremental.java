@@ -0,0 +1,159 @@
+package mx.unam.ciencias.edd.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import mx.unam.ciencias.edd.proyecto1.Archivo;
+import mx.unam.ciencias.edd.proyecto1.ExcepcionArgumentoInvalido;
+import mx.unam.ciencias.edd.proyecto1.OrdenamientoIncremental;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+/**
+ * Clase para pruebas unitarias de la clase {@link OrdenamientoIncremental}.
+ * Las pruebas son diferenciales: mezclar las líneas agregadas con la salida
+ * anterior debe dar lo mismo que ordenar todo el archivo con {@link Archivo}.
+ */
+public class TestOrdenamientoIncremental {
+
+    /** Expiración para que ninguna prueba tarde más de 5 segundos. */
+    @Rule public Timeout expiracion = Timeout.seconds(5);
+
+    /* Caracteres de las líneas; pocos para que haya muchos empates. */
+    private static final String ALFABETO = "aAáeEñn0+ -€中";
+
+    /* Generador de números aleatorios. */
+    private Random random;
+
+    /**
+     * Crea un generador de números aleatorios para cada prueba.
+     */
+    public TestOrdenamientoIncremental() {
+        random = new Random();
+    }
+
+    /* Genera un texto de líneas al azar, cada una terminada en '\n'. */
+    private String texto(int lineas) {
+        return Pruebas.texto(random, ALFABETO, lineas, 6);
+    }
+
+    /* Regresa el byte después del último '\n' del archivo que está en una
+     * posición o después, o la posición si no hay ninguno. */
+    private static long ordenados(File archivo, long desde) throws IOException {
+        String texto = Pruebas.lee(archivo);
+        long hasta = texto.substring(0, texto.lastIndexOf('\n') + 1)
+            .getBytes(StandardCharsets.UTF_8).length;
+        return Math.max(desde, hasta);
+    }
+
+    /* Ordena el archivo desde un byte con la salida anterior y regresa lo que
+     * se escribe; la salida anterior se lee de un archivo con acceso aleatorio
+     * o línea por línea. */
+    private String incremental(File archivo, long desde, String previa, boolean aleatorio,
+                               boolean reversa, boolean unico) throws IOException {
+        Archivo nuevas = new Archivo();
+        nuevas.setUnico(unico);
+        OrdenamientoIncremental incremental = new OrdenamientoIncremental(nuevas, reversa);
+        incremental.setUnico(unico);
+        Assert.assertEquals(ordenados(archivo, desde),
+                            incremental.cargaAgregadas(archivo, desde, StandardCharsets.UTF_8));
+        if (!aleatorio)
+            return Pruebas.escrito(s -> incremental.escribe("previa", Pruebas.lector(previa), s));
+        File anterior = archivo(previa);
+        try {
+            return Pruebas.escrito(s -> incremental.escribe(anterior, StandardCharsets.UTF_8, s));
+        } finally {
+            anterior.delete();
+        }
+    }
+
+    /* Crea un archivo temporal con el texto. */
+    private File archivo(String texto) throws IOException {
+        return Pruebas.archivo("incremental", texto);
+    }
+
+    /**
+     * Prueba unitaria para {@link OrdenamientoIncremental#cargaAgregadas} y
+     * las dos formas de {@link OrdenamientoIncremental#escribe}: el resultado
+     * es el de ordenar todo el archivo, en reversa o no y con o sin
+     * repetidas.
+     */
+    @Test public void testEscribe() throws IOException {
+        for (int caso = 0; caso < 8; caso++) {
+            boolean reversa = (caso & 1) != 0;
+            boolean unico = (caso & 2) != 0;
+            boolean aleatorio = (caso & 4) != 0;
+            String anterior = texto(random.nextInt(2000));
+            String agregado = texto(random.nextInt(200));
+            String previa = Pruebas.ordenado(anterior, reversa, unico);
+            File archivo = archivo(anterior + agregado);
+            try {
+                long desde = anterior.getBytes(StandardCharsets.UTF_8).length;
+                Assert.assertEquals(Pruebas.ordenado(anterior + agregado, reversa, unico),
+                                    incremental(archivo, desde, previa, aleatorio,
+                                                reversa, unico));
+            } finally {
+                archivo.delete();
+            }
+        }
+    }
+
+    /**
+     * Prueba unitaria para {@link OrdenamientoIncremental#cargaAgregadas} con
+     * bytes que no son el comienzo de una línea o que pasan del final.
+     */
+    @Test public void testDesplazamientoInvalido() throws IOException {
+        File archivo = archivo("b\nab\na\n");
+        try {
+            Assert.assertEquals("a\nab\nb\n",
+                                incremental(archivo, 0, "", true, false, false));
+            Assert.assertEquals("a\nab\nb\n",
+                                incremental(archivo, 2, "b\n", true, false, false));
+            // a la salida anterior le falta el último salto de línea
+            Assert.assertEquals("a\nab\nb\n",
+                                incremental(archivo, 2, "b", true, false, false));
+            for (long desde : new long[] { 1, 3, 8 }) {
+                try {
+                    incremental(archivo, desde, "", true, false, false);
+                    Assert.fail();
+                } catch (ExcepcionArgumentoInvalido e) {}
+            }
+        } finally {
+            archivo.delete();
+        }
+    }
+
+    /**
+     * Prueba unitaria para {@link OrdenamientoIncremental#cargaAgregadas} con
+     * una última línea sin terminar: no se ordena, y se toma en la siguiente
+     * ejecución, cuando ya tiene su salto de línea.
+     */
+    @Test public void testLineaSinTerminar() throws IOException {
+        String anterior = texto(random.nextInt(2000));
+        String agregado = texto(random.nextInt(200));
+        String parcial = Pruebas.linea(random, ALFABETO, 6) + "z";
+        String previa = Pruebas.ordenado(anterior, false, false);
+        File archivo = archivo(anterior + agregado + parcial);
+        try {
+            long desde = anterior.getBytes(StandardCharsets.UTF_8).length;
+            long hasta = desde + agregado.getBytes(StandardCharsets.UTF_8).length;
+            Assert.assertEquals(hasta, ordenados(archivo, desde));
+            String salida = incremental(archivo, desde, previa, random.nextBoolean(),
+                                        false, false);
+            Assert.assertEquals(Pruebas.ordenado(anterior + agregado, false, false), salida);
+
+            Files.write(archivo.toPath(), (anterior + agregado + parcial + "\n")
+                        .getBytes(StandardCharsets.UTF_8));
+            Assert.assertEquals(Pruebas.ordenado(anterior + agregado + parcial + "\n",
+                                                 false, false),
+                                incremental(archivo, hasta, salida, random.nextBoolean(),
+                                            false, false));
+        } finally {
+            archivo.delete();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package mx.unam.ciencias.edd.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import mx.unam.ciencias.edd.proyecto1.Archivo;
+import mx.unam.ciencias.edd.proyecto1.EscritorSalida;
+import mx.unam.ciencias.edd.proyecto1.OrdenamientoParcial;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+/**
+ * Clase para pruebas unitarias de la clase {@link OrdenamientoParcial}. El
+ * resultado debe ser idéntico a las primeras líneas de ordenar con
+ * {@link Archivo}.
+ */
+public class TestOrdenamientoParcial {
+
+    /** Expiración para que ninguna prueba tarde más de 5 segundos. */
+    @Rule public Timeout expiracion = Timeout.seconds(5);
+
+    /* Caracteres de las líneas; pocos para que haya muchos empates. Hay
+     * ASCII, Latin-1 y uno fuera de Latin-1, para comparar con la tabla de
+     * pesos, con las llaves de bytes y con el comparador. */
+    private static final String ALFABETO = "aAáeEéñnN0+ -€";
+
+    /* Generador de números aleatorios. */
+    private Random random;
+    /* Número total de líneas. */
+    private int total;
+
+    /**
+     * Crea un generador de números aleatorios para cada prueba y un número
+     * total de líneas.
+     */
+    public TestOrdenamientoParcial() {
+        random = new Random();
+        total = 5000 + random.nextInt(5000);
+    }
+
+    /* Genera una línea corta con caracteres del alfabeto. */
+    private String linea() {
+        int longitud = random.nextInt(5);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < longitud; i++)
+            sb.append(ALFABETO.charAt(random.nextInt(ALFABETO.length())));
+        return sb.toString();
+    }
+
+    /* Regresa las primeras n líneas de un texto. */
+    private String primeras(String texto, int n) {
+        int fin = 0;
+        for (int i = 0; i < n && fin < texto.length(); i++)
+            fin = texto.indexOf('\n', fin) + 1;
+        return texto.substring(0, fin);
+    }
+
+    /* Escribe las primeras n líneas con el ordenamiento parcial y las compara
+     * con las primeras n de ordenar todo con Archivo. */
+    private void valida(int n, boolean reversa) throws IOException {
+        OrdenamientoParcial parcial = new OrdenamientoParcial(n, reversa);
+        Archivo archivo = new Archivo();
+        for (int i = 0; i < total; i++) {
+            String l = linea();
+            parcial.agregaLinea(l);
+            archivo.agregaLinea(l);
+        }
+        if (reversa)
+            archivo.ordenaReversa();
+        else
+            archivo.ordena();
+        File destino = File.createTempFile("parcial", ".txt");
+        try {
+            try (EscritorSalida salida = EscritorSalida.archivo(destino, StandardCharsets.UTF_8)) {
+                parcial.escribe(salida);
+            }
+            String resultado = new String(Files.readAllBytes(destino.toPath()),
+                                         StandardCharsets.UTF_8);
+            Assert.assertEquals(primeras(archivo.toString(), n), resultado);
+        } finally {
+            destino.delete();
+        }
+    }
+
+    /**
+     * Prueba unitaria para {@link OrdenamientoParcial#escribe} con pocas,
+     * muchas y más líneas de las que hay.
+     */
+    @Test public void testEscribe() throws IOException {
+        valida(1, false);
+        valida(1 + random.nextInt(100), false);
+        valida(total / 2, false);
+        valida(2 * total, false);
+    }
+
+    /**
+     * Prueba unitaria para {@link OrdenamientoParcial#escribe} en reversa.
+     */
+    @Test public void testEscribeReversa() throws IOException {
+        valida(1, true);
+        valida(1 + random.nextInt(100), true);
+        valida(2 * total, true);
+    }
+}
@@ -0,0 +1,147 @@
+package mx.unam.ciencias.edd.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import mx.unam.ciencias.edd.proyecto1.Archivo;
+import mx.unam.ciencias.edd.proyecto1.Campos;
+import mx.unam.ciencias.edd.proyecto1.EscritorSalida;
+import mx.unam.ciencias.edd.proyecto1.Motor;
+import mx.unam.ciencias.edd.proyecto1.OrdenamientoTuberia;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+/**
+ * Clase para pruebas unitarias de la clase {@link OrdenamientoTuberia}. El
+ * resultado debe ser idéntico al de ordenar con {@link Archivo}.
+ */
+public class TestOrdenamientoTuberia {
+
+    /** Expiración para que ninguna prueba tarde más de 10 segundos. */
+    @Rule public Timeout expiracion = Timeout.seconds(10);
+
+    /* Caracteres de las líneas; pocos para que haya muchos empates. */
+    private static final String ALFABETO = "aAáeEéñnN01+ -";
+
+    /* Generador de números aleatorios. */
+    private Random random;
+    /* Número total de líneas, suficientes para varios lotes. */
+    private int total;
+
+    /**
+     * Crea un generador de números aleatorios para cada prueba y un número
+     * total de líneas.
+     */
+    public TestOrdenamientoTuberia() {
+        random = new Random();
+        total = 150000 + random.nextInt(100000);
+    }
+
+    /* Genera una línea corta con caracteres del alfabeto. */
+    private String linea() {
+        int longitud = random.nextInt(6);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < longitud; i++)
+            sb.append(ALFABETO.charAt(random.nextInt(ALFABETO.length())));
+        return sb.toString();
+    }
+
+    /* Ordena las líneas en tubería y con Archivo y compara los resultados. */
+    private void valida(boolean reversa, int hilos, Motor motor, boolean unico)
+        throws IOException {
+        valida(reversa, hilos, motor, unico, null);
+    }
+
+    /* Ordena las líneas por campos en tubería y con Archivo y compara los
+     * resultados. La primera línea no tiene llave de bytes ni su número es
+     * entero, así que el primer lote usa las llaves del comparador o números
+     * reales y los demás no. */
+    private void valida(boolean reversa, int hilos, Motor motor, boolean unico,
+                        Campos campos) throws IOException {
+        OrdenamientoTuberia tuberia = new OrdenamientoTuberia(reversa, hilos);
+        tuberia.setMotor(motor);
+        tuberia.setUnico(unico);
+        tuberia.setCampos(campos);
+        Archivo archivo = new Archivo();
+        archivo.setUnico(unico);
+        archivo.setCampos(campos);
+        for (int i = 0; i < total; i++) {
+            String l = (campos != null && i == 0) ? "0.5 中" : linea();
+            tuberia.agregaLinea(l);
+            archivo.agregaLinea(l);
+        }
+        if (reversa)
+            archivo.ordenaReversa();
+        else
+            archivo.ordena();
+        File destino = File.createTempFile("tuberia", ".txt");
+        try {
+            try (EscritorSalida salida = EscritorSalida.archivo(destino, StandardCharsets.UTF_8)) {
+                tuberia.escribe(salida);
+            }
+            String resultado = new String(Files.readAllBytes(destino.toPath()),
+                                         StandardCharsets.UTF_8);
+            Assert.assertEquals(archivo.toString(), resultado);
+        } finally {
+            destino.delete();
+        }
+    }
+
+    /**
+     * Prueba unitaria para {@link OrdenamientoTuberia#escribe} con un hilo.
+     */
+    @Test public void testEscribe() throws IOException {
+        valida(false, 1, Motor.COLADOR, false);
+    }
+
+    /**
+     * Prueba unitaria para {@link OrdenamientoTuberia#escribe} en reversa y con
+     * varios hilos.
+     */
+    @Test public void testEscribeReversa() throws IOException {
+        valida(true, 3, Motor.COLADOR, false);
+    }
+
+    /**
+     * Prueba unitaria para {@link OrdenamientoTuberia#escribe} con los otros
+     * motores.
+     */
+    @Test public void testEscribeMotores() throws IOException {
+        valida(false, 2, Motor.BYTES, false);
+        valida(true, 2, Motor.RADIX, false);
+    }
+
+    /**
+     * Prueba unitaria para {@link OrdenamientoTuberia#escribe} sin líneas
+     * repetidas.
+     */
+    @Test public void testEscribeUnico() throws IOException {
+        valida(false, 2, Motor.COLADOR, true);
+        valida(true, 1, Motor.BYTES, true);
+    }
+
+    /**
+     * Prueba unitaria para {@link OrdenamientoTuberia#escribe} por campos.
+     */
+    @Test public void testEscribeCampos() throws IOException {
+        Campos campos = new Campos();
+        campos.agregaLlave(2, 0);
+        valida(false, 2, Motor.BYTES, false, campos);
+        valida(true, 1, Motor.COLADOR, true, campos);
+    }
+
+    /**
+     * Prueba unitaria para {@link OrdenamientoTuberia#escribe} por números.
+     */
+    @Test public void testEscribeNumerico() throws IOException {
+        Campos campos = new Campos();
+        campos.setNumerico(true);
+        campos.agregaLlave(1, 0);
+        valida(false, 2, Motor.COLADOR, false, campos);
+        valida(true, 1, Motor.BYTES, true, campos);
+    }
+}
@@ -0,0 +1,214 @@
+package mx.unam.ciencias.edd.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+import mx.unam.ciencias.edd.proyecto1.ExcepcionArchivoNoEncontrado;
+import mx.unam.ciencias.edd.proyecto1.ExcepcionArgumentoInvalido;
+import mx.unam.ciencias.edd.proyecto1.IndiceOrden;
+import mx.unam.ciencias.edd.proyecto1.Sort;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+/**
+ * Clase para pruebas unitarias de la clase {@link Sort}, con sus opciones
+ * como se reciben de la línea de comandos.
+ */
+public class TestSort {
+
+    /** Expiración para que ninguna prueba tarde más de 5 segundos. */
+    @Rule public Timeout expiracion = Timeout.seconds(5);
+
+    /* Caracteres de las líneas; sólo ASCII, porque Sort lee y escribe con
+     * la codificación por omisión. */
+    private static final String ALFABETO = "aAbeEnN0+ -";
+
+    /* Generador de números aleatorios. */
+    private Random random;
+
+    /**
+     * Crea un generador de números aleatorios para cada prueba.
+     */
+    public TestSort() {
+        random = new Random();
+    }
+
+    /* Genera un texto de líneas al azar, cada una terminada en '\n'. */
+    private String texto() {
+        return Pruebas.texto(random, ALFABETO, 1000 + random.nextInt(1000), 8);
+    }
+
+    /**
+     * Prueba unitaria para {@link Sort#ejecutar} con -m cuando -o es una de
+     * las entradas: la salida reemplaza a la entrada sin dañarla mientras se
+     * lee.
+     */
+    @Test public void testMezclaSobreEntrada() throws IOException {
+        String primero = texto();
+        String segundo = texto();
+        File m1 = Pruebas.archivo("mezcla", Pruebas.ordenado(primero, false, false));
+        File m2 = Pruebas.archivo("mezcla", Pruebas.ordenado(segundo, false, false));
+        try {
+            new Sort(new String[] {
+                    "-m", m1.getPath(), m2.getPath(), "-o", m1.getPath()
+                }).ejecutar();
+            Assert.assertEquals(Pruebas.ordenado(primero + segundo, false, false),
+                                Pruebas.lee(m1));
+        } finally {
+            m1.delete();
+            m2.delete();
+        }
+    }
+
+    /**
+     * Prueba unitaria para {@link Sort#ejecutar} con --index cuando -o es la
+     * entrada: el archivo queda ordenado y su índice, que ya no le
+     * corresponde, se reconstruye en la siguiente ejecución.
+     */
+    @Test public void testIndiceSobreEntrada() throws IOException {
+        String texto = texto();
+        File f = Pruebas.archivo("indice", texto);
+        File indice = new File(f.getPath() + IndiceOrden.EXTENSION);
+        File salida = File.createTempFile("indice", ".out");
+        try {
+            new Sort(new String[] { "--index", f.getPath(), "-o", f.getPath() }).ejecutar();
+            String esperado = Pruebas.ordenado(texto, false, false);
+            Assert.assertEquals(esperado, Pruebas.lee(f));
+            new Sort(new String[] { "--index", f.getPath(), "-o", salida.getPath() }).ejecutar();
+            Assert.assertEquals(esperado, Pruebas.lee(salida));
+        } finally {
+            indice.delete();
+            f.delete();
+            salida.delete();
+        }
+    }
+
+    /**
+     * Prueba unitaria para {@link Sort#ejecutar} cuando uno de varios archivos,
+     * que se leen a la vez, falla a la mitad: los demás se terminan de leer,
+     * pero la ejecución falla con {@link ExcepcionArchivoNoEncontrado}, que
+     * nombra al archivo, y no se escribe una salida a la que le faltan líneas.
+     */
+    @Test public void testArchivoDanado() throws IOException {
+        File a = Pruebas.archivo("danado", texto());
+        File b = File.createTempFile("danado", ".gz");
+        File c = Pruebas.archivo("danado", texto());
+        File salida = File.createTempFile("danado", ".out");
+        try {
+            ByteArrayOutputStream comprimido = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(comprimido)) {
+                gzip.write(texto().getBytes(StandardCharsets.US_ASCII));
+            }
+            // sin el final, la descompresión falla al leer
+            byte[] bytes = comprimido.toByteArray();
+            byte[] mitad = new byte[bytes.length / 2];
+            System.arraycopy(bytes, 0, mitad, 0, mitad.length);
+            Files.write(b.toPath(), mitad);
+            try {
+                new Sort(new String[] {
+                        a.getPath(), b.getPath(), c.getPath(), "-o", salida.getPath()
+                    }).ejecutar();
+                Assert.fail();
+            } catch (ExcepcionArchivoNoEncontrado e) {
+                Assert.assertTrue(e.getMessage().contains(b.getPath()));
+            }
+            Assert.assertEquals(0, salida.length());
+        } finally {
+            a.delete();
+            b.delete();
+            c.delete();
+            salida.delete();
+        }
+    }
+
+    /**
+     * Prueba unitaria para {@link Sort#ejecutar} cuando no se puede escribir
+     * la salida: en memoria, por lotes, en disco y al mezclar, el error se
+     * lanza como {@link ExcepcionArchivoNoEncontrado} para que la aplicación
+     * termine con error. Usa /dev/full, donde toda escritura falla.
+     */
+    @Test public void testEscrituraFallida() throws IOException {
+        File lleno = new File("/dev/full");
+        Assume.assumeTrue(lleno.exists());
+        File f = Pruebas.archivo("escritura", Pruebas.ordenado(texto(), false, false));
+        try {
+            for (String[] opciones : new String[][] {
+                    {}, { "--pipeline" }, { "-S", "1K" }, { "-m" }
+                }) {
+                String[] argumentos = new String[opciones.length + 3];
+                System.arraycopy(opciones, 0, argumentos, 0, opciones.length);
+                argumentos[opciones.length] = f.getPath();
+                argumentos[opciones.length + 1] = "-o";
+                argumentos[opciones.length + 2] = lleno.getPath();
+                try {
+                    new Sort(argumentos).ejecutar();
+                    Assert.fail(String.join(" ", opciones));
+                } catch (ExcepcionArchivoNoEncontrado e) {}
+            }
+        } finally {
+            f.delete();
+        }
+    }
+
+    /**
+     * Prueba unitaria para {@link Sort#Sort} con --gzip sin -o ni -S: no hay
+     * nada que comprimir, así que se rechaza en lugar de ignorarse.
+     */
+    @Test public void testGzipSinSalida() throws IOException {
+        try {
+            new Sort(new String[] { "--gzip" });
+            Assert.fail();
+        } catch (ExcepcionArgumentoInvalido e) {}
+        File f = Pruebas.archivo("gzip", texto());
+        try {
+            new Sort(new String[] { "--gzip", "-o", f.getPath() });
+            new Sort(new String[] { "--gzip", "-S", "1M" });
+        } finally {
+            f.delete();
+        }
+    }
+
+    /**
+     * Prueba unitaria para {@link Sort#Sort} con opciones que eligen modos
+     * incompatibles: --head, -m, -c y --index entre sí, --pipeline con -S y -c
+     * con -o se rechazan en lugar de que una gane sin avisar.
+     */
+    @Test public void testModosIncompatibles() throws IOException {
+        File f = Pruebas.archivo("modos", Pruebas.ordenado(texto(), false, false));
+        String ruta = f.getPath();
+        try {
+            String[][] modos = {
+                { "--head", "3" }, { "-m" }, { "-c" }, { "--index" }
+            };
+            for (int i = 0; i < modos.length; i++) {
+                for (int j = i + 1; j < modos.length; j++) {
+                    String[] argumentos = new String[modos[i].length + modos[j].length + 1];
+                    System.arraycopy(modos[i], 0, argumentos, 0, modos[i].length);
+                    System.arraycopy(modos[j], 0, argumentos, modos[i].length, modos[j].length);
+                    argumentos[argumentos.length - 1] = ruta;
+                    try {
+                        new Sort(argumentos);
+                        Assert.fail(String.join(" ", argumentos));
+                    } catch (ExcepcionArgumentoInvalido e) {}
+                }
+            }
+            for (String[] argumentos : new String[][] {
+                    { "--pipeline", "-S", "1M", ruta }, { "-c", ruta, "-o", ruta }
+                }) {
+                try {
+                    new Sort(argumentos);
+                    Assert.fail(String.join(" ", argumentos));
+                } catch (ExcepcionArgumentoInvalido e) {}
+            }
+        } finally {
+            f.delete();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package mx.unam.ciencias.edd.test;
+
+import java.io.IOException;
+import java.util.Random;
+import mx.unam.ciencias.edd.proyecto1.Archivo;
+import mx.unam.ciencias.edd.proyecto1.ExcepcionEntradaDesordenada;
+import mx.unam.ciencias.edd.proyecto1.VerificadorOrden;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+/**
+ * Clase para pruebas unitarias de la clase {@link VerificadorOrden}.
+ */
+public class TestVerificadorOrden {
+
+    /** Expiración para que ninguna prueba tarde más de 5 segundos. */
+    @Rule public Timeout expiracion = Timeout.seconds(5);
+
+    /* Caracteres de las líneas; pocos para que haya muchos empates, y
+     * algunos fuera de Latin-1 para que no todas tengan llave de bytes. */
+    private static final String ALFABETO = "aAáeEéñnN0+ -€中";
+
+    /* Generador de números aleatorios. */
+    private Random random;
+    /* Número total de líneas. */
+    private int total;
+
+    /**
+     * Crea un generador de números aleatorios para cada prueba y un número
+     * total de líneas.
+     */
+    public TestVerificadorOrden() {
+        random = new Random();
+        total = 1000 + random.nextInt(1000);
+    }
+
+    /* Regresa un archivo con líneas cortas al azar. */
+    private Archivo archivo() {
+        Archivo archivo = new Archivo();
+        for (int i = 0; i < total; i++)
+            archivo.agregaLinea(Pruebas.linea(random, ALFABETO, 5));
+        return archivo;
+    }
+
+    /* Nos dice si el verificador acepta el texto del archivo. */
+    private boolean ordenado(VerificadorOrden verificador, Archivo archivo)
+        throws IOException {
+        try {
+            verificador.verifica("prueba", Pruebas.lector(archivo.toString()));
+            return true;
+        } catch (ExcepcionEntradaDesordenada eed) {
+            Assert.assertTrue(eed.getMessage().startsWith("prueba"));
+            return false;
+        }
+    }
+
+    /**
+     * Prueba unitaria para {@link VerificadorOrden#verifica}.
+     */
+    @Test public void testVerifica() throws IOException {
+        Archivo archivo = archivo();
+        Assert.assertFalse(ordenado(new VerificadorOrden(false, false), archivo));
+        archivo.ordena();
+        Assert.assertTrue(ordenado(new VerificadorOrden(false, false), archivo));
+        Assert.assertFalse(ordenado(new VerificadorOrden(true, false), archivo));
+        archivo.ordenaReversa();
+        Assert.assertTrue(ordenado(new VerificadorOrden(true, false), archivo));
+        Assert.assertTrue(ordenado(new VerificadorOrden(false, false), new Archivo()));
+    }
+
+    /**
+     * Prueba unitaria para {@link VerificadorOrden#verifica} sin líneas
+     * repetidas.
+     */
+    @Test public void testVerificaUnico() throws IOException {
+        Archivo archivo = archivo();
+        archivo.ordena();
+        Assert.assertFalse(ordenado(new VerificadorOrden(false, true), archivo));
+        archivo.setUnico(true);
+        archivo.ordena();
+        Assert.assertTrue(ordenado(new VerificadorOrden(false, true), archivo));
+    }
+}